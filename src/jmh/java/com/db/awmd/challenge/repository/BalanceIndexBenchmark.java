@@ -0,0 +1,65 @@
+package com.db.awmd.challenge.repository;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.exception.OperationException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead of the {@link BalanceIndex} on balance changes, by crediting and debiting
+ * random accounts with and without the index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(4)
+public class BalanceIndexBenchmark {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("1.25");
+
+    @Param({"false", "true"})
+    public boolean indexed;
+
+    @Param({"100000"})
+    public int accounts;
+
+    private Account[] accountsById;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        final AccountListeners listeners = new AccountListeners();
+        final AccountsRepositoryInMemory repository = new AccountsRepositoryInMemory(listeners);
+
+        if (this.indexed) {
+            new BalanceIndex(listeners).start();
+        }
+
+        this.accountsById = new Account[this.accounts];
+        for (int i = 0; i < this.accounts; i++) {
+            repository.createAccount(new Account("Id-" + i, new BigDecimal(1_000_000 + i)));
+            this.accountsById[i] = repository.getAccount("Id-" + i);
+        }
+    }
+
+    @Benchmark
+    public BigDecimal creditThenDebit() throws OperationException {
+
+        final Account account = this.accountsById[ThreadLocalRandom.current().nextInt(this.accounts)];
+
+        account.credit(AMOUNT);
+        return account.debit(AMOUNT);
+    }
+}
@@ -0,0 +1,55 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.MoneyTransferResult;
+import com.db.awmd.challenge.exception.MoneyTransferException;
+import com.db.awmd.challenge.repository.AccountListeners;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of a transfer through {@link AccountsService}, and of rejecting invalid transfer inputs,
+ * which the controller does before calling the service.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TransferMoneyBenchmark {
+
+    private static final BigDecimal BALANCE = new BigDecimal("1000000000000");
+
+    private AccountsService accountsService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        final AccountListeners listeners = new AccountListeners();
+        final AccountsRepositoryInMemory repository = new AccountsRepositoryInMemory(listeners);
+
+        this.accountsService =
+                new AccountsService(repository, (account, description) -> { }, new BalanceSnapshots(repository, listeners), new VelocityLimits("", Account.DEFAULT_CURRENCY, new FxRates()), new FxRates());
+
+        this.accountsService.createAccount(new Account("Id-1", BALANCE));
+        this.accountsService.createAccount(new Account("Id-2", BALANCE));
+    }
+
+    @Benchmark
+    public MoneyTransferResult transfer() throws MoneyTransferException {
+        return this.accountsService.transferMoney("Id-1", "Id-2", BigDecimal.ONE);
+    }
+
+    @Benchmark
+    public String rejectBlankAccountId() {
+        return TransferValidation.violation("Id-1", " ", BigDecimal.ONE);
+    }
+}
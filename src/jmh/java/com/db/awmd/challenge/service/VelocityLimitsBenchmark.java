@@ -0,0 +1,57 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.exception.OperationException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of checking the velocity limits of a transfer, on random accounts,
+ * with limits high enough for every transfer to be admitted.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(4)
+public class VelocityLimitsBenchmark {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("12.50");
+
+    @Param({"PT1M:1000000000:,PT1H::1000000000000", ""})
+    public String rules;
+
+    @Param({"100000"})
+    public int accounts;
+
+    private String[] accountIds;
+
+    private VelocityLimits limits;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        this.limits = new VelocityLimits(this.rules, Account.DEFAULT_CURRENCY, new FxRates());
+
+        this.accountIds = new String[this.accounts];
+        for (int i = 0; i < this.accounts; i++) {
+            this.accountIds[i] = "Id-" + i;
+        }
+    }
+
+    @Benchmark
+    public VelocityLimits.Permit acquire() throws OperationException {
+        return this.limits.acquire(this.accountIds[ThreadLocalRandom.current().nextInt(this.accounts)], AMOUNT, Account.DEFAULT_CURRENCY);
+    }
+}
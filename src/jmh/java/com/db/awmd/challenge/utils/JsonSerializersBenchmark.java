@@ -0,0 +1,90 @@
+package com.db.awmd.challenge.utils;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.MoneyTransferResult;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the specialized serializers of {@link Account} and {@link MoneyTransferResult}
+ * with the default bean serializer. Run with the {@code gc} profiler to compare allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JsonSerializersBenchmark {
+
+    @JsonSerialize(using = JsonSerializer.None.class)
+    private interface DefaultSerialization {
+    }
+
+    private final ObjectMapper specializedMapper = new ObjectMapper();
+
+    private final ObjectMapper defaultMapper =
+            new ObjectMapper()
+                    .addMixIn(Account.class, DefaultSerialization.class)
+                    .addMixIn(MoneyTransferResult.class, DefaultSerialization.class);
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+
+    private Account account;
+
+    private MoneyTransferResult result;
+
+    @Setup
+    public void setUp() {
+
+        this.account = new Account("Id-1234567890", new BigDecimal("1234567.89"));
+
+        this.result =
+                new MoneyTransferResult(
+                        "Id-1234567890",
+                        "Id-0987654321",
+                        new BigDecimal("99.5"),
+                        "EUR",
+                        new BigDecimal("107.89"),
+                        "USD",
+                        new BigDecimal("1234468.39"),
+                        new BigDecimal("7654420.71")
+                );
+    }
+
+    @Benchmark
+    public int account_specialized() throws IOException {
+        return write(this.specializedMapper, this.account);
+    }
+
+    @Benchmark
+    public int account_default() throws IOException {
+        return write(this.defaultMapper, this.account);
+    }
+
+    @Benchmark
+    public int moneyTransferResult_specialized() throws IOException {
+        return write(this.specializedMapper, this.result);
+    }
+
+    @Benchmark
+    public int moneyTransferResult_default() throws IOException {
+        return write(this.defaultMapper, this.result);
+    }
+
+    private int write(final ObjectMapper mapper, final Object value) throws IOException {
+        this.out.reset();
+        mapper.writeValue(this.out, value);
+        return this.out.size();
+    }
+}
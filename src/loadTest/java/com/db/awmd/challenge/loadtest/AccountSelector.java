@@ -0,0 +1,23 @@
+package com.db.awmd.challenge.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Selects the index of the account of a request, among {@code accounts} accounts.
+ */
+interface AccountSelector {
+
+    int next();
+
+    static AccountSelector create(final String distribution, final int accounts, final double zipfExponent) {
+
+        switch (distribution) {
+            case "uniform":
+                return () -> ThreadLocalRandom.current().nextInt(accounts);
+            case "zipfian":
+                return new ZipfianSelector(accounts, zipfExponent);
+            default:
+                throw new IllegalArgumentException(String.format("Unknown account distribution '%s', expected uniform or zipfian.", distribution));
+        }
+    }
+}
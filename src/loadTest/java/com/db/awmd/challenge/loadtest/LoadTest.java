@@ -0,0 +1,336 @@
+package com.db.awmd.challenge.loadtest;
+
+import com.db.awmd.challenge.DevChallengeApplication;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPatch;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.embedded.EmbeddedWebApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Drives the REST service with an open-loop load of account creations, account lookups and transfers, and reports
+ * the latency percentiles and the error rates of every operation.
+ *
+ * <p>Unless {@code loadtest.url} is set, the application is started on a free local port first. Then {@code loadtest.accounts}
+ * accounts are created, and every operation is sent at its own constant rate, whether earlier requests completed or not,
+ * for a warm-up period and then for the measured period. Accounts are selected uniformly or following a Zipfian
+ * distribution.</p>
+ *
+ * <p>Settings are read from the {@code loadtest.*} system properties, see the Developer Guide.</p>
+ */
+public final class LoadTest {
+
+    private static final String ACCOUNT_ID_PREFIX = "loadtest-";
+
+    private static final String TRANSFER_AMOUNT = "0.01";
+
+    private static final String INITIAL_BALANCE = "1000000";
+
+    /**
+     * An operation sent at a constant rate.
+     */
+    private static final class Operation {
+
+        final OperationStats stats;
+
+        final double rate;
+
+        final Supplier<HttpUriRequest> requests;
+
+        final int expectedStatus;
+
+        Operation(final String name, final double rate, final Supplier<HttpUriRequest> requests, final int expectedStatus) {
+            this.stats = new OperationStats(name);
+            this.rate = rate;
+            this.requests = requests;
+            this.expectedStatus = expectedStatus;
+        }
+    }
+
+    private final String url = System.getProperty("loadtest.url", "");
+
+    private final String applicationArguments = System.getProperty("loadtest.application-arguments", "--logging.level.com.db.awmd=WARN");
+
+    private final int accounts = Integer.getInteger("loadtest.accounts", 10_000);
+
+    private final double createRate = Double.parseDouble(System.getProperty("loadtest.create-rate", "10"));
+
+    private final double getRate = Double.parseDouble(System.getProperty("loadtest.get-rate", "500"));
+
+    private final double transferRate = Double.parseDouble(System.getProperty("loadtest.transfer-rate", "200"));
+
+    private final String distribution = System.getProperty("loadtest.distribution", "uniform");
+
+    private final double zipfExponent = Double.parseDouble(System.getProperty("loadtest.zipf-exponent", "0.99"));
+
+    private final int warmUpSeconds = Integer.getInteger("loadtest.warm-up-seconds", 10);
+
+    private final int durationSeconds = Integer.getInteger("loadtest.duration-seconds", 60);
+
+    private final int reportIntervalSeconds = Integer.getInteger("loadtest.report-interval-seconds", 10);
+
+    private final int connections = Integer.getInteger("loadtest.connections", 64);
+
+    private final Path reportDirectory = Paths.get(System.getProperty("loadtest.report-directory", "build/loadtest"));
+
+    private final PrintStream out = System.out;
+
+    /**
+     * Distinguishes the accounts created by this run from those of previous runs on the same server.
+     */
+    private final long runId = System.currentTimeMillis();
+
+    private final AtomicLong createdAccounts = new AtomicLong();
+
+    private CloseableHttpClient client;
+
+    private ExecutorService workers;
+
+    private volatile long measuredFromNanos;
+
+    public static void main(final String[] args) throws Exception {
+        new LoadTest().run();
+    }
+
+    private void run() throws Exception {
+
+        ConfigurableApplicationContext context = null;
+        String baseUrl = this.url;
+
+        if (baseUrl.isEmpty()) {
+            final List<String> arguments = new ArrayList<>(Arrays.asList(this.applicationArguments.trim().split("\\s+")));
+            arguments.add("--server.port=0");
+            arguments.removeIf(String::isEmpty);
+
+            context = SpringApplication.run(DevChallengeApplication.class, arguments.toArray(new String[0]));
+            baseUrl = "http://localhost:" + ((EmbeddedWebApplicationContext) context).getEmbeddedServletContainer().getPort();
+        }
+
+        this.client = HttpClients.custom().setMaxConnTotal(this.connections).setMaxConnPerRoute(this.connections).build();
+        // Starting the workers up front keeps thread creation off the dispatchers, which would otherwise fall behind their rates.
+        final ThreadPoolExecutor workers = (ThreadPoolExecutor) Executors.newFixedThreadPool(this.connections, new CustomizableThreadFactory("loadtest-worker-"));
+        workers.prestartAllCoreThreads();
+        this.workers = workers;
+
+        try {
+            seed(baseUrl);
+            drive(operations(baseUrl));
+
+        } finally {
+            this.workers.shutdownNow();
+            this.client.close();
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    private List<Operation> operations(final String baseUrl) {
+
+        final AccountSelector selector = AccountSelector.create(this.distribution, this.accounts, this.zipfExponent);
+        final List<Operation> operations = new ArrayList<>();
+
+        if (this.createRate > 0) {
+            operations.add(new Operation("create", this.createRate, () -> createAccount(baseUrl, this.runId + "-" + this.createdAccounts.incrementAndGet()), 201));
+        }
+
+        if (this.getRate > 0) {
+            operations.add(new Operation("get", this.getRate, () -> new HttpGet(baseUrl + "/v1/accounts/" + ACCOUNT_ID_PREFIX + selector.next()), 200));
+        }
+
+        if (this.transferRate > 0 && this.accounts > 1) {
+            operations.add(new Operation("transfer", this.transferRate, () -> {
+
+                final int source = selector.next();
+                int destination = selector.next();
+                if (destination == source) {
+                    destination = (source + 1) % this.accounts;
+                }
+
+                return new HttpPatch(
+                        baseUrl + "/v1/accounts/transferMoney?sourceAccountId=" + ACCOUNT_ID_PREFIX + source
+                                + "&destinationAccountId=" + ACCOUNT_ID_PREFIX + destination
+                                + "&amount=" + TRANSFER_AMOUNT
+                );
+            }, 200));
+        }
+
+        return operations;
+    }
+
+    /**
+     * Creates the accounts as fast as the connections allow. Accounts left by a previous run on the same server are reused.
+     */
+    private void seed(final String baseUrl) throws Exception {
+
+        this.out.printf("Creating %d accounts on %s%n", this.accounts, baseUrl);
+
+        final long started = System.nanoTime();
+        final List<Future<Integer>> statuses = new ArrayList<>(this.accounts);
+        for (int i = 0; i < this.accounts; i++) {
+            final HttpUriRequest request = createAccount(baseUrl, Integer.toString(i));
+            statuses.add(this.workers.submit(() -> send(request)));
+        }
+
+        int existing = 0;
+        for (final Future<Integer> status : statuses) {
+            switch (status.get()) {
+                case 201:
+                    break;
+                case 400:
+                    existing++;
+                    break;
+                default:
+                    throw new IllegalStateException("Failed to create accounts, the server responded with status " + status.get());
+            }
+        }
+
+        this.out.printf(
+                "Created %d accounts in %.1f s, %d already existed%n",
+                this.accounts - existing,
+                (System.nanoTime() - started) / 1e9,
+                existing
+        );
+    }
+
+    private void drive(final List<Operation> operations) throws Exception {
+
+        final long startNanos = System.nanoTime();
+        final long endNanos = startNanos + TimeUnit.SECONDS.toNanos(this.warmUpSeconds + this.durationSeconds);
+        this.measuredFromNanos = startNanos + TimeUnit.SECONDS.toNanos(this.warmUpSeconds);
+
+        this.out.printf("Warming up for %d s, then measuring for %d s, accounts selected %s%n", this.warmUpSeconds, this.durationSeconds, this.distribution);
+
+        final List<Thread> dispatchers = new ArrayList<>();
+        for (final Operation operation : operations) {
+            final Thread dispatcher = new Thread(() -> dispatch(operation, startNanos, endNanos), "loadtest-" + operation.stats.getName());
+            dispatcher.start();
+            dispatchers.add(dispatcher);
+        }
+
+        long nextReportNanos = this.measuredFromNanos + TimeUnit.SECONDS.toNanos(this.reportIntervalSeconds);
+        while (nextReportNanos < endNanos) {
+            LockSupport.parkNanos(nextReportNanos - System.nanoTime());
+            if (System.nanoTime() >= nextReportNanos) {
+                final long elapsedSeconds = TimeUnit.NANOSECONDS.toSeconds(nextReportNanos - this.measuredFromNanos);
+                operations.forEach(operation -> operation.stats.printInterval(this.out, elapsedSeconds));
+                nextReportNanos += TimeUnit.SECONDS.toNanos(this.reportIntervalSeconds);
+            }
+        }
+
+        for (final Thread dispatcher : dispatchers) {
+            dispatcher.join();
+        }
+
+        // Requests still queued were scheduled during the measured period: their latency counts.
+        this.workers.shutdown();
+        if (!this.workers.awaitTermination(1, TimeUnit.MINUTES)) {
+            this.out.println("Gave up waiting for the last requests to complete");
+        }
+
+        final long elapsedSeconds = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - this.measuredFromNanos);
+        operations.forEach(operation -> operation.stats.printInterval(this.out, elapsedSeconds));
+
+        this.out.println();
+        this.out.println("Latencies from the time every request was scheduled, and service times (svc) from the time it was sent:");
+        OperationStats.printSummaryHeader(this.out);
+        operations.forEach(operation -> operation.stats.printSummary(this.out, this.durationSeconds));
+
+        Files.createDirectories(this.reportDirectory);
+        for (final Operation operation : operations) {
+            operation.stats.writeDistribution(this.reportDirectory.resolve(operation.stats.getName() + ".hgrm"));
+        }
+        this.out.printf("Latency distributions written to %s%n", this.reportDirectory.toAbsolutePath());
+    }
+
+    /**
+     * Schedules a request every {@code 1 / rate} seconds, and hands it to the workers, even if they are all busy.
+     */
+    private void dispatch(final Operation operation, final long startNanos, final long endNanos) {
+
+        final double intervalNanos = 1e9 / operation.rate;
+
+        for (long n = 0; ; n++) {
+
+            final long scheduledNanos = startNanos + (long) (n * intervalNanos);
+            if (scheduledNanos >= endNanos) {
+                return;
+            }
+
+            final long delayNanos = scheduledNanos - System.nanoTime();
+            if (delayNanos > 0) {
+                LockSupport.parkNanos(delayNanos);
+            }
+
+            this.workers.execute(() -> execute(operation, scheduledNanos));
+        }
+    }
+
+    private void execute(final Operation operation, final long scheduledNanos) {
+
+        final long sentNanos = System.nanoTime();
+
+        int status;
+        try {
+            status = send(operation.requests.get());
+        } catch (final IOException e) {
+            status = -1;
+        }
+
+        final long completedNanos = System.nanoTime();
+
+        if (scheduledNanos >= this.measuredFromNanos) {
+            if (status == operation.expectedStatus) {
+                operation.stats.record(scheduledNanos, sentNanos, completedNanos);
+            } else {
+                operation.stats.recordError(status, scheduledNanos, sentNanos, completedNanos);
+            }
+        }
+    }
+
+    private int send(final HttpUriRequest request) throws IOException {
+
+        return this.client.execute(request, response -> {
+            EntityUtils.consume(response.getEntity());
+            return response.getStatusLine().getStatusCode();
+        });
+    }
+
+    private static HttpUriRequest createAccount(final String baseUrl, final String suffix) {
+
+        final HttpPost request = new HttpPost(baseUrl + "/v1/accounts");
+        request.setEntity(
+                new StringEntity(
+                        "{\"accountId\":\"" + ACCOUNT_ID_PREFIX + suffix + "\",\"balance\":" + INITIAL_BALANCE + "}",
+                        ContentType.APPLICATION_JSON
+                )
+        );
+
+        return request;
+    }
+}
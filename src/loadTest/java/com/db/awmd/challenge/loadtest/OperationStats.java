@@ -0,0 +1,137 @@
+package com.db.awmd.challenge.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and errors of the requests of an operation, in microseconds.
+ *
+ * <p>The latency of a request runs from the time it was scheduled to be sent, not from the time it was actually sent:
+ * requests delayed because earlier ones were slow count their delay, which corrects coordinated omission.
+ * The service time, from the time the request was actually sent, is recorded too, for comparison.</p>
+ */
+final class OperationStats {
+
+    private final String name;
+
+    private final Recorder latencies = new Recorder(3);
+
+    private final Recorder serviceTimes = new Recorder(3);
+
+    private final Histogram totalLatencies = new Histogram(3);
+
+    private final Histogram totalServiceTimes = new Histogram(3);
+
+    private final LongAdder requests = new LongAdder();
+
+    /**
+     * Numbers of failed requests by status, {@code -1} for I/O errors.
+     */
+    private final Map<Integer, LongAdder> errors = new ConcurrentHashMap<>();
+
+    OperationStats(final String name) {
+        this.name = name;
+    }
+
+    String getName() {
+        return this.name;
+    }
+
+    void record(final long scheduledNanos, final long sentNanos, final long completedNanos) {
+
+        this.requests.increment();
+        this.latencies.recordValue((completedNanos - scheduledNanos) / 1_000);
+        this.serviceTimes.recordValue((completedNanos - sentNanos) / 1_000);
+    }
+
+    /**
+     * @param status status of the response, or {@code -1} if the request failed with an I/O error
+     */
+    void recordError(final int status, final long scheduledNanos, final long sentNanos, final long completedNanos) {
+
+        record(scheduledNanos, sentNanos, completedNanos);
+        this.errors.computeIfAbsent(status, s -> new LongAdder()).increment();
+    }
+
+    /**
+     * Adds the latencies recorded since the previous interval to the totals, and prints them.
+     */
+    synchronized void printInterval(final PrintStream out, final long elapsedSeconds) {
+
+        final Histogram interval = this.latencies.getIntervalHistogram();
+        this.totalLatencies.add(interval);
+        this.totalServiceTimes.add(this.serviceTimes.getIntervalHistogram());
+
+        out.printf(
+                "[%4ds] %-8s %8d requests, p50 %8.2f ms, p99 %8.2f ms, max %8.2f ms%n",
+                elapsedSeconds,
+                this.name,
+                interval.getTotalCount(),
+                millis(interval.getValueAtPercentile(50)),
+                millis(interval.getValueAtPercentile(99)),
+                millis(interval.getMaxValue())
+        );
+    }
+
+    synchronized void printSummary(final PrintStream out, final double seconds) {
+
+        final Histogram l = this.totalLatencies;
+        final Histogram s = this.totalServiceTimes;
+        final long errorCount = this.errors.values().stream().mapToLong(LongAdder::sum).sum();
+        final long requestCount = this.requests.sum();
+
+        out.printf(
+                "%-8s %9.1f %9d %7.3f%% %8.2f %8.2f %8.2f %8.2f %8.2f %8.2f | %8.2f %8.2f%n",
+                this.name,
+                requestCount / seconds,
+                requestCount,
+                requestCount == 0 ? 0.0 : 100.0 * errorCount / requestCount,
+                millis(l.getValueAtPercentile(50)),
+                millis(l.getValueAtPercentile(90)),
+                millis(l.getValueAtPercentile(99)),
+                millis(l.getValueAtPercentile(99.9)),
+                millis(l.getValueAtPercentile(99.99)),
+                millis(l.getMaxValue()),
+                millis(s.getValueAtPercentile(99)),
+                millis(s.getMaxValue())
+        );
+
+        if (errorCount > 0) {
+            final Map<Integer, Long> byStatus = new TreeMap<>();
+            this.errors.forEach((status, count) -> byStatus.put(status, count.sum()));
+            byStatus.forEach((status, count) -> out.printf("         %9d %s%n", count, status < 0 ? "I/O errors" : "responses with status " + status));
+        }
+    }
+
+    static void printSummaryHeader(final PrintStream out) {
+
+        out.printf(
+                "%-8s %9s %9s %8s %8s %8s %8s %8s %8s %8s | %8s %8s%n",
+                "", "req/s", "requests", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "p99.99", "max ms", "svc p99", "svc max"
+        );
+    }
+
+    /**
+     * Writes the percentile distribution of the latencies, in milliseconds, in the format of HdrHistogram,
+     * which its plotter reads.
+     */
+    synchronized void writeDistribution(final Path file) throws IOException {
+
+        try (final PrintStream out = new PrintStream(Files.newOutputStream(file), false, "UTF-8")) {
+            this.totalLatencies.outputPercentileDistribution(out, 1_000.0);
+        }
+    }
+
+    private static double millis(final long micros) {
+        return micros / 1_000.0;
+    }
+}
@@ -0,0 +1,290 @@
+package com.db.awmd.challenge.loadtest;
+
+import com.db.awmd.challenge.DevChallengeApplication;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPatch;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures how soon fresh instances of the application take traffic: the time from launching the JVM to the first
+ * response, to the readiness probe succeeding, and to the peak throughput of transfers.
+ *
+ * <p>Every run launches the application in a JVM of its own, with {@code startup-benchmark.jvm-arguments} and
+ * {@code startup-benchmark.application-arguments}, and polls it until it responds. Then {@code startup-benchmark.connections}
+ * clients send transfers back to back for {@code startup-benchmark.duration-seconds}, each between two accounts of
+ * its own, and the number of transfers completed is counted every second. The peak is the best second; the time to
+ * peak is the end of the first second reaching {@code startup-benchmark.peak-share} of it.</p>
+ *
+ * <p>Settings are read from the {@code startup-benchmark.*} system properties, see the Developer Guide.</p>
+ */
+public final class StartupBenchmark {
+
+    private static final String INITIAL_BALANCE = "1000000";
+
+    private static final String TRANSFER_AMOUNT = "0.01";
+
+    private static final long POLL_INTERVAL_MILLIS = 10;
+
+    /**
+     * Outcome of a run, in seconds from the launch of the JVM.
+     */
+    private static final class Run {
+
+        double firstResponseSeconds;
+
+        double readySeconds;
+
+        double peakSeconds;
+
+        long peakThroughput;
+    }
+
+    private final String java = System.getProperty("startup-benchmark.java", Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+
+    private final String classpath = System.getProperty("startup-benchmark.classpath", System.getProperty("java.class.path"));
+
+    private final String jvmArguments = System.getProperty("startup-benchmark.jvm-arguments", "");
+
+    private final String applicationArguments = System.getProperty("startup-benchmark.application-arguments", "--logging.level.com.db.awmd=WARN");
+
+    private final int runs = Integer.getInteger("startup-benchmark.runs", 5);
+
+    private final int connections = Integer.getInteger("startup-benchmark.connections", 16);
+
+    private final int durationSeconds = Integer.getInteger("startup-benchmark.duration-seconds", 30);
+
+    private final double peakShare = Double.parseDouble(System.getProperty("startup-benchmark.peak-share", "0.9"));
+
+    private final int timeoutSeconds = Integer.getInteger("startup-benchmark.timeout-seconds", 120);
+
+    private final Path reportDirectory = Paths.get(System.getProperty("startup-benchmark.report-directory", "build/startup-benchmark"));
+
+    private final PrintStream out = System.out;
+
+    private CloseableHttpClient client;
+
+    public static void main(final String[] args) throws Exception {
+
+        // The application is not started in this JVM, so nothing else configures logging, which would otherwise log every request.
+        LoggingSystem.get(StartupBenchmark.class.getClassLoader()).setLogLevel(LoggingSystem.ROOT_LOGGER_NAME, LogLevel.WARN);
+
+        new StartupBenchmark().run();
+    }
+
+    private void run() throws Exception {
+
+        Files.createDirectories(this.reportDirectory);
+
+        final RequestConfig requestConfig = RequestConfig.custom().setConnectTimeout(1000).setSocketTimeout(10_000).build();
+        this.client =
+                HttpClients.custom()
+                        .setDefaultRequestConfig(requestConfig)
+                        .setMaxConnTotal(this.connections)
+                        .setMaxConnPerRoute(this.connections)
+                        .build();
+
+        this.out.printf("JVM arguments: %s%nApplication arguments: %s%n", this.jvmArguments, this.applicationArguments);
+
+        final List<Run> results = new ArrayList<>();
+        try {
+            for (int i = 1; i <= this.runs; i++) {
+                final Run result = measure(i);
+                this.out.printf(
+                        "Run %d: first response after %.2f s, ready after %.2f s, %.0f%% of the peak of %d transfers/s after %.2f s%n",
+                        i, result.firstResponseSeconds, result.readySeconds, this.peakShare * 100, result.peakThroughput, result.peakSeconds
+                );
+                results.add(result);
+            }
+        } finally {
+            this.client.close();
+        }
+
+        this.out.printf(
+                "Median of %d runs: first response after %.2f s, ready after %.2f s, peak after %.2f s, peak of %d transfers/s%n",
+                results.size(),
+                median(results.stream().mapToDouble(result -> result.firstResponseSeconds).toArray()),
+                median(results.stream().mapToDouble(result -> result.readySeconds).toArray()),
+                median(results.stream().mapToDouble(result -> result.peakSeconds).toArray()),
+                (long) median(results.stream().mapToDouble(result -> result.peakThroughput).toArray())
+        );
+    }
+
+    private Run measure(final int runNumber) throws Exception {
+
+        final int port = freePort();
+        final String baseUrl = "http://localhost:" + port;
+
+        final List<String> command = new ArrayList<>();
+        command.add(this.java);
+        command.addAll(split(this.jvmArguments));
+        command.addAll(Arrays.asList("-cp", this.classpath, DevChallengeApplication.class.getName(), "--server.port=" + port));
+        command.addAll(split(this.applicationArguments));
+
+        final File log = this.reportDirectory.resolve("run-" + runNumber + ".log").toFile();
+        final Run result = new Run();
+
+        final long launchedNanos = System.nanoTime();
+        final Process application = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log).start();
+
+        try {
+            awaitStatus(application, new HttpGet(baseUrl + "/v1/accounts/startup-benchmark"), 200, launchedNanos);
+            result.firstResponseSeconds = secondsSince(launchedNanos);
+
+            awaitStatus(application, new HttpGet(baseUrl + "/v1/readiness"), 200, launchedNanos);
+            result.readySeconds = secondsSince(launchedNanos);
+
+            measureThroughput(baseUrl, launchedNanos, result);
+
+        } finally {
+            application.destroy();
+            if (!application.waitFor(30, TimeUnit.SECONDS)) {
+                application.destroyForcibly().waitFor();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Sends transfers back to back from every connection, and records the best second, and the first one close to it.
+     */
+    private void measureThroughput(final String baseUrl, final long launchedNanos, final Run result) throws Exception {
+
+        for (int i = 0; i < 2 * this.connections; i++) {
+            final HttpPost request = new HttpPost(baseUrl + "/v1/accounts");
+            request.setEntity(new StringEntity("{\"accountId\":\"startup-" + i + "\",\"balance\":" + INITIAL_BALANCE + "}", ContentType.APPLICATION_JSON));
+            if (send(request) != 201) {
+                throw new IllegalStateException("Failed to create the accounts of the transfers");
+            }
+        }
+
+        final LongAdder transfers = new LongAdder();
+        final long endNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(this.durationSeconds);
+
+        final List<Thread> clients = new ArrayList<>();
+        for (int i = 0; i < this.connections; i++) {
+            final String first = "startup-" + 2 * i;
+            final String second = "startup-" + (2 * i + 1);
+
+            final Thread client = new Thread(() -> {
+                for (long n = 0; System.nanoTime() < endNanos; n++) {
+                    final String source = n % 2 == 0 ? first : second;
+                    final String destination = n % 2 == 0 ? second : first;
+                    try {
+                        if (send(new HttpPatch(baseUrl + "/v1/accounts/transferMoney?sourceAccountId=" + source + "&destinationAccountId=" + destination + "&amount=" + TRANSFER_AMOUNT)) == 200) {
+                            transfers.increment();
+                        }
+                    } catch (final IOException e) {
+                        // Failed transfers are not counted.
+                    }
+                }
+            }, "startup-benchmark-client-" + i);
+            client.start();
+            clients.add(client);
+        }
+
+        final List<Long> perSecond = new ArrayList<>();
+        final List<Double> secondsEnded = new ArrayList<>();
+        long previous = 0;
+        for (long nextNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(1); nextNanos <= endNanos; nextNanos += TimeUnit.SECONDS.toNanos(1)) {
+            TimeUnit.NANOSECONDS.sleep(nextNanos - System.nanoTime());
+            final long total = transfers.sum();
+            perSecond.add(total - previous);
+            secondsEnded.add(secondsSince(launchedNanos));
+            previous = total;
+        }
+
+        for (final Thread client : clients) {
+            client.join();
+        }
+
+        result.peakThroughput = perSecond.stream().mapToLong(Long::longValue).max().orElse(0);
+        for (int i = 0; i < perSecond.size(); i++) {
+            if (perSecond.get(i) >= this.peakShare * result.peakThroughput) {
+                result.peakSeconds = secondsEnded.get(i);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Sends {@code request} until it is answered with {@code status}, as the application starts.
+     */
+    private void awaitStatus(final Process application, final HttpUriRequest request, final int status, final long launchedNanos) throws Exception {
+
+        while (true) {
+            if (!application.isAlive()) {
+                throw new IllegalStateException("The application exited with status " + application.exitValue() + ", see " + this.reportDirectory);
+            }
+            if (secondsSince(launchedNanos) > this.timeoutSeconds) {
+                throw new IllegalStateException("The application did not respond with status " + status + " to " + request.getURI() + " in time");
+            }
+
+            try {
+                if (send(request) == status) {
+                    return;
+                }
+            } catch (final IOException e) {
+                // Not listening yet.
+            }
+
+            Thread.sleep(POLL_INTERVAL_MILLIS);
+        }
+    }
+
+    private int send(final HttpUriRequest request) throws IOException {
+
+        return this.client.execute(request, response -> {
+            EntityUtils.consume(response.getEntity());
+            return response.getStatusLine().getStatusCode();
+        });
+    }
+
+    private static double secondsSince(final long nanos) {
+        return (System.nanoTime() - nanos) / 1e9;
+    }
+
+    private static int freePort() throws IOException {
+
+        try (final ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static List<String> split(final String arguments) {
+
+        final List<String> split = new ArrayList<>(Arrays.asList(arguments.trim().split("\\s+")));
+        split.removeIf(String::isEmpty);
+
+        return split;
+    }
+
+    private static double median(final double[] values) {
+
+        Arrays.sort(values);
+
+        return values.length == 0 ? 0 : values.length % 2 == 1 ? values[values.length / 2] : (values[values.length / 2 - 1] + values[values.length / 2]) / 2;
+    }
+}
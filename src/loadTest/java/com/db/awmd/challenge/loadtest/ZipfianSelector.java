@@ -0,0 +1,59 @@
+package com.db.awmd.challenge.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Selects account {@code i} with a probability proportional to {@code 1 / (i + 1)^exponent}, so that a few accounts
+ * receive most requests, as described by Gray et al. in "Quickly Generating Billion-Record Synthetic Databases".
+ */
+final class ZipfianSelector implements AccountSelector {
+
+    private final int accounts;
+
+    private final double exponent;
+
+    private final double zetaN;
+
+    private final double alpha;
+
+    private final double eta;
+
+    ZipfianSelector(final int accounts, final double exponent) {
+
+        if (exponent <= 0 || exponent >= 1) {
+            throw new IllegalArgumentException(String.format("Zipf exponent must be between 0 and 1, exclusive, not %s.", exponent));
+        }
+
+        this.accounts = accounts;
+        this.exponent = exponent;
+        this.zetaN = zeta(accounts, exponent);
+        this.alpha = 1 / (1 - exponent);
+        this.eta = (1 - Math.pow(2.0 / accounts, 1 - exponent)) / (1 - zeta(2, exponent) / this.zetaN);
+    }
+
+    @Override
+    public int next() {
+
+        final double u = ThreadLocalRandom.current().nextDouble();
+        final double uz = u * this.zetaN;
+
+        if (uz < 1) {
+            return 0;
+        }
+        if (uz < 1 + Math.pow(0.5, this.exponent)) {
+            return Math.min(1, this.accounts - 1);
+        }
+
+        return Math.min((int) (this.accounts * Math.pow(this.eta * u - this.eta + 1, this.alpha)), this.accounts - 1);
+    }
+
+    private static double zeta(final int n, final double exponent) {
+
+        double sum = 0;
+        for (int i = 1; i <= n; i++) {
+            sum += 1 / Math.pow(i, exponent);
+        }
+
+        return sum;
+    }
+}
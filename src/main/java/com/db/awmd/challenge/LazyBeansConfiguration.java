@@ -0,0 +1,48 @@
+package com.db.awmd.challenge;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Makes the beans {@code startup.lazy-init.beans} lazy, enabled with {@code startup.lazy-init.enabled}, so that they are
+ * only created by the first request using them, and not while the application starts.
+ *
+ * <p>The default beans hold no state until requests create some, and no other bean created at start-up depends on them.
+ * Beans which listen to accounts from the start, such as the balance snapshots or the balance index, must not be lazy.</p>
+ */
+@Configuration
+@ConditionalOnProperty(name = "startup.lazy-init.enabled", havingValue = "true")
+@Slf4j
+public class LazyBeansConfiguration {
+
+  private static final String[] DEFAULT_LAZY_BEANS = {
+          "accrualService", "accrualsController",
+          "balanceExportService", "balanceExportController",
+          "balanceSubscriptionService", "balanceChangesController",
+          "holdsService", "holdsController",
+          "transferScheduler", "scheduledTransfersController"
+  };
+
+  /**
+   * Static, as bean factory post-processors must be created before the other beans of the configuration.
+   */
+  @Bean
+  static BeanFactoryPostProcessor lazyBeans(final Environment environment) {
+
+    final String[] beanNames = environment.getProperty("startup.lazy-init.beans", String[].class, DEFAULT_LAZY_BEANS);
+
+    return beanFactory -> {
+      for (final String beanName : beanNames) {
+        if (beanFactory.containsBeanDefinition(beanName)) {
+          beanFactory.getBeanDefinition(beanName).setLazyInit(true);
+        } else {
+          log.warn("Cannot make bean {} lazy, as there is no such bean", beanName);
+        }
+      }
+    };
+  }
+}
@@ -1,65 +1,324 @@
 package com.db.awmd.challenge.domain;
 
 import com.db.awmd.challenge.exception.OperationException;
+import com.db.awmd.challenge.utils.AccountJsonSerializer;
+import com.db.awmd.challenge.utils.IdDictionary;
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
 import lombok.Setter;
+import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 import org.hibernate.validator.constraints.NotEmpty;
 
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
 import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
 
+/**
+ * Responses are written by {@link AccountJsonSerializer}, which must be kept in line with the serialized fields.
+ */
 @Data
+@ToString(exclude = {"listener", "ids", "handle", "sequence", "incarnation", "accrualRunId"})
 @Slf4j
+@JsonSerialize(using = AccountJsonSerializer.class)
 public class Account {
 
+  /**
+   * One balance update out of {@code LOCK_SAMPLING_INTERVAL}, on average, is timed and reported
+   * to {@link AccountListener#lockSampled}.
+   */
+  public static final int LOCK_SAMPLING_INTERVAL = 64;
+
+  /**
+   * Currency of the accounts created without one.
+   */
+  public static final String DEFAULT_CURRENCY = "EUR";
+
+  /**
+   * Source of {@link #incarnation}s, from a random start so that they are not reused after a restart.
+   */
+  private static final AtomicLong INCARNATIONS = new AtomicLong(ThreadLocalRandom.current().nextLong());
+
+  private static final int LOCK_STRIPES = 4096;
+
+  /**
+   * Locks shared by the accounts, rather than one per account, which would take about 40 bytes per account.
+   * Accounts take the lock of their {@link #incarnation}'s stripe, so that accounts created fewer than
+   * {@value #LOCK_STRIPES} apart never share one. A thread never holds the locks of two accounts at once, so sharing them cannot deadlock.
+   * They are not the monitors of the accounts, on which virtual threads would pin their carrier thread while waiting.
+   */
+  private static final ReentrantLock[] LOCKS = new ReentrantLock[LOCK_STRIPES];
+
+  static {
+    for (int i = 0; i < LOCK_STRIPES; i++) {
+      LOCKS[i] = new ReentrantLock();
+    }
+  }
+
+  /**
+   * An operation on the balance and the held balance of an account.
+   * Held funds are not available to be debited or held again until the hold is released or captured.
+   */
   private enum Operation {
-    CREDIT {
+    CREDIT("Credited", "to") {
+      @Override
+      BigDecimal balance(final BigDecimal balance, final BigDecimal heldBalance, final BigDecimal amount) {
+        return balance.add(amount);
+      }
+    },
+
+    DEBIT("Debited", "from") {
+      @Override
+      void check(final BigDecimal balance, final BigDecimal heldBalance, final BigDecimal amount) throws OperationException {
+
+        if (balance.subtract(heldBalance).compareTo(amount) < 0) {
+          throw new OperationException("Current balance is less than the amount to be debited. Current balance is %s, of which %s is held. Amount to be debited is %s.", balance, heldBalance, amount);
+        }
+      }
+
       @Override
-      BigDecimal execute(final BigDecimal a, final BigDecimal b) {
-        return a.add(b);
+      BigDecimal balance(final BigDecimal balance, final BigDecimal heldBalance, final BigDecimal amount) {
+        return balance.subtract(amount);
       }
     },
 
-    DEBIT {
+    HOLD("Held", "on") {
       @Override
-      BigDecimal execute(final BigDecimal currentBalance, final BigDecimal amount) throws OperationException {
+      void check(final BigDecimal balance, final BigDecimal heldBalance, final BigDecimal amount) throws OperationException {
 
-        if (currentBalance.compareTo(amount) < 0) {
-          throw new OperationException("Current balance is less than the amount to be debited. Current balance is %s. Amount to be debited is %s.", currentBalance, amount);
+        if (balance.subtract(heldBalance).compareTo(amount) < 0) {
+          throw new OperationException("Current balance is less than the amount to be held. Current balance is %s, of which %s is held. Amount to be held is %s.", balance, heldBalance, amount);
         }
+      }
+
+      @Override
+      BigDecimal heldBalance(final BigDecimal balance, final BigDecimal heldBalance, final BigDecimal amount) {
+        return heldBalance.add(amount);
+      }
+    },
 
-        return currentBalance.subtract(amount);
+    RELEASE("Released", "on") {
+      @Override
+      void check(final BigDecimal balance, final BigDecimal heldBalance, final BigDecimal amount) throws OperationException {
+        checkHeld(heldBalance, amount);
+      }
+
+      @Override
+      BigDecimal heldBalance(final BigDecimal balance, final BigDecimal heldBalance, final BigDecimal amount) {
+        return heldBalance.subtract(amount);
+      }
+    },
+
+    CAPTURE("Captured", "from") {
+      @Override
+      void check(final BigDecimal balance, final BigDecimal heldBalance, final BigDecimal amount) throws OperationException {
+        checkHeld(heldBalance, amount);
+      }
+
+      @Override
+      BigDecimal balance(final BigDecimal balance, final BigDecimal heldBalance, final BigDecimal amount) {
+        return balance.subtract(amount);
+      }
+
+      @Override
+      BigDecimal heldBalance(final BigDecimal balance, final BigDecimal heldBalance, final BigDecimal amount) {
+        return heldBalance.subtract(amount);
       }
     };
 
-    abstract BigDecimal execute(final BigDecimal a, final BigDecimal b) throws OperationException;
+    private final String verb;
+    private final String preposition;
+
+    Operation(final String verb, final String preposition) {
+      this.verb = verb;
+      this.preposition = preposition;
+    }
+
+    void check(final BigDecimal balance, final BigDecimal heldBalance, final BigDecimal amount) throws OperationException {
+    }
+
+    BigDecimal balance(final BigDecimal balance, final BigDecimal heldBalance, final BigDecimal amount) {
+      return balance;
+    }
+
+    BigDecimal heldBalance(final BigDecimal balance, final BigDecimal heldBalance, final BigDecimal amount) {
+      return heldBalance;
+    }
+
+    private static void checkHeld(final BigDecimal heldBalance, final BigDecimal amount) throws OperationException {
+
+      if (heldBalance.compareTo(amount) < 0) {
+        throw new OperationException("Held balance is less than the amount to be released or captured. Held balance is %s. Amount is %s.", heldBalance, amount);
+      }
+    }
   }
 
 
+  /**
+   * {@code null} once the id is interned in {@link #ids}.
+   */
   @NotNull
   @NotEmpty
-  private final String accountId;
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  private volatile String accountId;
+
+  @JsonIgnore
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  private transient IdDictionary ids;
+
+  @JsonIgnore
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  private transient int handle;
 
   @NotNull
   @Min(value = 0, message = "Initial balance must be positive.")
   @Setter(AccessLevel.PRIVATE)
   private volatile BigDecimal balance;
 
+  /**
+   * ISO 4217 code of the currency of the balances, {@value #DEFAULT_CURRENCY} unless specified at creation.
+   */
+  @NotNull
+  @Pattern(regexp = "[A-Z]{3}", message = "Currency must be a three-letter ISO 4217 code.")
+  private final String currency;
+
+  @JsonIgnore
+  @Setter(AccessLevel.PRIVATE)
+  private volatile BigDecimal heldBalance = BigDecimal.ZERO;
+
+  /**
+   * Twice the number of updates of the balances, plus one while an update is being written.
+   * Readers read the balances without locking, and read them again if it changed meanwhile.
+   */
+  @JsonIgnore
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  private transient volatile long sequence;
+
+  /**
+   * Tells apart the instances of an account, whose versions restart from 0 when it is created or loaded again.
+   */
+  @JsonIgnore
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  private final transient long incarnation = INCARNATIONS.getAndIncrement();
+
+  /**
+   * Set by the repository holding the account.
+   */
+  @JsonIgnore
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  private transient volatile AccountListener listener;
+
+  /**
+   * Id of the last accrual run applied to this account, if any.
+   */
+  @JsonIgnore
+  @Setter(AccessLevel.NONE)
+  private volatile String accrualRunId;
+
   public Account(String accountId) {
-    this.accountId = accountId;
-    this.balance = BigDecimal.ZERO;
+    this(accountId, BigDecimal.ZERO);
+  }
+
+  public Account(String accountId, BigDecimal balance) {
+    this(accountId, balance, DEFAULT_CURRENCY);
   }
 
   @JsonCreator
   public Account(@JsonProperty("accountId") String accountId,
-    @JsonProperty("balance") BigDecimal balance) {
+    @JsonProperty("balance") BigDecimal balance,
+    @JsonProperty("currency") String currency) {
+    this.accountId = accountId;
+    this.balance = balance;
+    this.currency = currency == null ? DEFAULT_CURRENCY : currency;
+  }
+
+  /**
+   * Restores an account with its held balance, as saved by a repository.
+   */
+  public Account(String accountId, String currency, BigDecimal balance, BigDecimal heldBalance) {
     this.accountId = accountId;
+    this.currency = currency;
     this.balance = balance;
+    this.heldBalance = heldBalance;
+  }
+
+  public String getAccountId() {
+
+    final String id = this.accountId;
+
+    return id != null || this.ids == null ? id : this.ids.get(this.handle);
+  }
+
+  /**
+   * Drops the id of this account, which is then read from {@code ids}, where it is stored more compactly with {@code handle}.
+   */
+  public void internId(final IdDictionary ids, final int handle) {
+
+    this.ids = ids;
+    this.handle = handle;
+    this.accountId = null;
+  }
+
+  /**
+   * Starts notifying {@code listener} of the changes of this account, after notifying it that the account was added.
+   */
+  public void attach(final AccountListener listener) {
+
+    getLock().lock();
+    try {
+      this.listener = listener;
+      listener.accountAdded(this);
+    } finally {
+      getLock().unlock();
+    }
+  }
+
+  /**
+   * Starts notifying {@code listener} of the changes of this account, which was already added to the repository,
+   * for example after reloading it from storage.
+   */
+  public void resume(final AccountListener listener) {
+
+    getLock().lock();
+    try {
+      this.listener = listener;
+    } finally {
+      getLock().unlock();
+    }
+  }
+
+  /**
+   * Stops notifying the current listener of the changes of this account, after notifying it that the account was removed.
+   */
+  public void detach() {
+
+    getLock().lock();
+    try {
+      final AccountListener currentListener = this.listener;
+      if (currentListener != null) {
+        this.listener = null;
+        currentListener.accountRemoved(this);
+      }
+    } finally {
+      getLock().unlock();
+    }
   }
 
   public BigDecimal credit(final BigDecimal amount) throws OperationException {
@@ -70,26 +329,213 @@ public class Account {
     return updateBalance(Operation.DEBIT, amount);
   }
 
+  /**
+   * Holds {@code amount} of the available balance, so that it can neither be debited nor held again.
+   *
+   * @return new balance
+   */
+  public BigDecimal hold(final BigDecimal amount) throws OperationException {
+    return updateBalance(Operation.HOLD, amount);
+  }
+
+  /**
+   * Makes {@code amount} of the held balance available again.
+   *
+   * @return new balance
+   */
+  public BigDecimal release(final BigDecimal amount) throws OperationException {
+    return updateBalance(Operation.RELEASE, amount);
+  }
+
+  /**
+   * Debits {@code amount} of the held balance.
+   *
+   * @return new balance
+   */
+  public BigDecimal capture(final BigDecimal amount) throws OperationException {
+    return updateBalance(Operation.CAPTURE, amount);
+  }
+
+  /**
+   * Applies the accrual run {@code runId} to this account, unless it was already applied: credits the amount
+   * {@code accrual} computes from the balance, or debits it if negative. The balance is read, updated and the run
+   * recorded under the lock of the account, and the run is only recorded if the update succeeds, so that it is
+   * applied exactly once.
+   *
+   * @return {@code false} if the run was already applied
+   *
+   * @throws OperationException if the debit fails; the run is then not recorded
+   */
+  public boolean accrue(final String runId, final UnaryOperator<BigDecimal> accrual) throws OperationException {
+
+    getLock().lock();
+    try {
+      if (runId.equals(this.accrualRunId)) {
+        return false;
+      }
+
+      final BigDecimal amount = accrual.apply(this.balance);
+      if (amount.signum() > 0) {
+        credit(amount);
+      } else if (amount.signum() < 0) {
+        debit(amount.negate());
+      }
+
+      this.accrualRunId = runId;
+      return true;
+
+    } finally {
+      getLock().unlock();
+    }
+  }
+
+  /**
+   * Records that the accrual run {@code runId} was applied to this account, as when the account is loaded,
+   * without changing its balance.
+   *
+   * @return {@code false} if the run was already recorded
+   */
+  public boolean markAccrued(final String runId) {
+
+    getLock().lock();
+    try {
+      if (runId.equals(this.accrualRunId)) {
+        return false;
+      }
+      this.accrualRunId = runId;
+      return true;
+
+    } finally {
+      getLock().unlock();
+    }
+  }
+
+  /**
+   * @return part of the balance which is not held
+   */
+  @JsonIgnore
+  public BigDecimal getAvailableBalance() {
+
+    while (true) {
+      final long observed = this.sequence;
+      final BigDecimal currentBalance = this.balance;
+      final BigDecimal currentHeldBalance = this.heldBalance;
+
+      if ((observed & 1) == 0 && this.sequence == observed) {
+        return currentBalance.subtract(currentHeldBalance);
+      }
+    }
+  }
+
+  /**
+   * @return the number of updates of the balances of this account since it was created or loaded
+   */
+  @JsonIgnore
+  public long getVersion() {
+    return this.sequence >>> 1;
+  }
+
+  /**
+   * @return a strong HTTP entity tag, quoted, which changes whenever {@link #getVersion()} does,
+   * and is not reused by another instance of the account
+   */
+  @JsonIgnore
+  public String getEntityTag() {
+    return "\"" + Long.toHexString(this.incarnation) + '-' + getVersion() + '"';
+  }
+
+  /**
+   * @return the lock held while the balances and the listener of this account change, and while the listener is notified,
+   * which a few other accounts share
+   */
+  @JsonIgnore
+  public Lock getLock() {
+    return LOCKS[(int) this.incarnation & LOCK_STRIPES - 1];
+  }
+
+  /**
+   * Checks the operation, computes the new balances and commits them under the lock of the account, which orders
+   * the notifications of the listener. The operation is first checked against balances read consistently without
+   * the lock, so that an operation which would fail, for lack of funds for instance, fails without waiting for it.
+   */
   private BigDecimal updateBalance(final Operation operator, final BigDecimal amount) throws OperationException {
 
-    //If benchmarks reveal high contention on the lock, try Compare-and-Set (CAS) instead of locking.
+    long observed;
+    BigDecimal currentBalance;
+    BigDecimal currentHeldBalance;
+
+    do {
+      observed = this.sequence;
+      currentBalance = this.balance;
+      currentHeldBalance = this.heldBalance;
+    } while ((observed & 1) != 0 || this.sequence != observed);
+
+    operator.check(currentBalance, currentHeldBalance, amount);
 
     final BigDecimal newBalance;
+    final BigDecimal newHeldBalance;
+
+    final AccountListener lockSampler =
+            ThreadLocalRandom.current().nextInt(LOCK_SAMPLING_INTERVAL) == 0 ? this.listener : null;
+    final long requestedNanos = lockSampler == null ? 0L : System.nanoTime();
+    long acquiredNanos = 0L;
+    long releasedNanos = 0L;
+
+    try {
+      getLock().lock();
+      try {
+
+        if (lockSampler != null) {
+          acquiredNanos = System.nanoTime();
+        }
+
+        final long sequence = this.sequence;
+
+        if (sequence != observed) {
+          currentBalance = this.balance;
+          currentHeldBalance = this.heldBalance;
 
-    synchronized (this) {
+          operator.check(currentBalance, currentHeldBalance, amount);
+        }
+
+        newBalance = operator.balance(currentBalance, currentHeldBalance, amount);
+        newHeldBalance = operator.heldBalance(currentBalance, currentHeldBalance, amount);
+
+        final AccountListener currentListener = this.listener;
+        if (currentListener != null) {
+          if (newBalance != currentBalance) {
+            currentListener.balanceChanged(this, currentBalance, newBalance);
+          }
+          if (newHeldBalance != currentHeldBalance) {
+            currentListener.heldBalanceChanged(this, currentHeldBalance, newHeldBalance);
+          }
+        }
 
-      final BigDecimal currentBalance = getBalance();
-      newBalance = operator.execute(currentBalance, amount);
-      setBalance(newBalance);
+        this.sequence = sequence + 1;
+        setBalance(newBalance);
+        setHeldBalance(newHeldBalance);
+        this.sequence = sequence + 2;
+
+      } finally {
+        if (lockSampler != null) {
+          releasedNanos = System.nanoTime();
+        }
+        getLock().unlock();
+      }
+    } finally {
+      if (lockSampler != null) {
+        lockSampler.lockSampled(this, acquiredNanos - requestedNanos, releasedNanos - acquiredNanos);
+      }
     }
 
     log.debug(
-            "{} amount {} {} account {}. New balance is {}.",
-            operator == Operation.CREDIT ? "Credited" : "Debited",
+            "{} amount {} {} account {}. New balance is {}, of which {} is held.",
+            operator.verb,
             amount,
-            operator == Operation.CREDIT ? "to" : "from",
-            this.accountId,
-            newBalance
+            operator.preposition,
+            getAccountId(),
+            newBalance,
+            newHeldBalance
     );
 
     return newBalance;
@@ -0,0 +1,19 @@
+package com.db.awmd.challenge.domain;
+
+import com.db.awmd.challenge.utils.BigDecimalJsonSerializer;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+/**
+ * Balance of an account at a given time.
+ */
+@Value
+public class AccountBalance {
+
+    String accountId;
+
+    @JsonSerialize(using = BigDecimalJsonSerializer.class)
+    BigDecimal balance;
+}
@@ -0,0 +1,19 @@
+package com.db.awmd.challenge.domain;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Page of the results of a query on account balances.
+ */
+@Value
+public class AccountBalancePage {
+
+    List<AccountBalance> accounts;
+
+    /**
+     * Opaque cursor to pass to get the next page, {@code null} if this is the last page.
+     */
+    String nextCursor;
+}
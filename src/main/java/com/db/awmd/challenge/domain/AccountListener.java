@@ -0,0 +1,50 @@
+package com.db.awmd.challenge.domain;
+
+import java.math.BigDecimal;
+
+/**
+ * Listener of changes to {@link Account}s.
+ *
+ * <p>Unless stated otherwise, listeners are invoked while the account is locked, so they must be quick and must not block.
+ * Changes to the same account are notified in the order in which they are applied.</p>
+ */
+public interface AccountListener {
+
+  /**
+   * Invoked when {@code account} is added to the repository, before any change to it is notified.
+   */
+  default void accountAdded(Account account) {
+  }
+
+  /**
+   * Invoked when {@code account} is removed from the repository. No change to it is notified afterwards.
+   */
+  default void accountRemoved(Account account) {
+  }
+
+  /**
+   * Invoked when the balance of {@code account} is about to change from {@code oldBalance} to {@code newBalance},
+   * just before the new balance becomes visible to other threads.
+   */
+  default void balanceChanged(Account account, BigDecimal oldBalance, BigDecimal newBalance) {
+  }
+
+  /**
+   * Invoked when the held balance of {@code account} is about to change from {@code oldHeldBalance} to {@code newHeldBalance},
+   * just before the new held balance becomes visible to other threads.
+   */
+  default void heldBalanceChanged(Account account, BigDecimal oldHeldBalance, BigDecimal newHeldBalance) {
+  }
+
+  /**
+   * Invoked after a sampled balance update of {@code account}, outside of the lock of the account.
+   *
+   * @param waitNanos
+   *        time spent waiting for the lock
+   *
+   * @param holdNanos
+   *        time spent holding the lock
+   */
+  default void lockSampled(Account account, long waitNanos, long holdNanos) {
+  }
+}
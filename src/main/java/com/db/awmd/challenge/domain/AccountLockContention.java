@@ -0,0 +1,27 @@
+package com.db.awmd.challenge.domain;
+
+import lombok.Value;
+
+/**
+ * Lock waits and holds sampled on one account.
+ */
+@Value
+public class AccountLockContention {
+
+    String accountId;
+
+    long samples;
+
+    /**
+     * Total sampled wait, over-estimated by at most {@code waitNanosError}.
+     */
+    long waitNanos;
+
+    long waitNanosError;
+
+    long maxWaitNanos;
+
+    long holdNanos;
+
+    long maxHoldNanos;
+}
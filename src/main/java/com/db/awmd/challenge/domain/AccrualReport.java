@@ -0,0 +1,47 @@
+package com.db.awmd.challenge.domain;
+
+import com.db.awmd.challenge.utils.BigDecimalJsonSerializer;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+/**
+ * Outcome of an accrual run over all accounts, or of the part of it completed by a resumed run.
+ */
+@Value
+public class AccrualReport {
+
+    String runId;
+
+    @JsonSerialize(using = BigDecimalJsonSerializer.class)
+    BigDecimal interestRate;
+
+    @JsonSerialize(using = BigDecimalJsonSerializer.class)
+    BigDecimal fee;
+
+    String feeCurrency;
+
+    int partitions;
+
+    /**
+     * Partitions completed by a previous attempt of the run, and skipped.
+     */
+    int partitionsResumed;
+
+    long accountsAccrued;
+
+    /**
+     * Accounts the run was already applied to by a previous attempt.
+     */
+    long accountsSkipped;
+
+    /**
+     * Accounts whose fee could not be charged, for lack of available funds or of an exchange rate.
+     */
+    long accountsFailed;
+
+    long elapsedMillis;
+
+    double accountsPerSecond;
+}
@@ -0,0 +1,25 @@
+package com.db.awmd.challenge.domain;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * Summary of a point-in-time export of all balances to a file.
+ */
+@Value
+public class BalanceExport {
+
+    String file;
+
+    String format;
+
+    long epoch;
+
+    @JsonSerialize(using = ToStringSerializer.class)
+    Instant time;
+
+    long accounts;
+}
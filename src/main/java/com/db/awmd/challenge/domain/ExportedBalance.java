@@ -0,0 +1,20 @@
+package com.db.awmd.challenge.domain;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+/**
+ * Balance and held balance of an account in a point-in-time snapshot, in the currency of the account.
+ */
+@Value
+public class ExportedBalance {
+
+    String accountId;
+
+    BigDecimal balance;
+
+    BigDecimal heldBalance;
+
+    String currency;
+}
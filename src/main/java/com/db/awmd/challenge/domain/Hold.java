@@ -0,0 +1,27 @@
+package com.db.awmd.challenge.domain;
+
+import com.db.awmd.challenge.utils.BigDecimalJsonSerializer;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Funds reserved on an account until they are captured or released,
+ * or until {@code expirationTime}, when they are released automatically.
+ */
+@Value
+public class Hold {
+
+    String id;
+
+    String accountId;
+
+    @JsonSerialize(using = BigDecimalJsonSerializer.class)
+    BigDecimal amount;
+
+    @JsonSerialize(using = ToStringSerializer.class)
+    Instant expirationTime;
+}
@@ -0,0 +1,41 @@
+package com.db.awmd.challenge.domain;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import lombok.Value;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Lock waits and holds sampled on all accounts since {@code since},
+ * with the most contended accounts first.
+ *
+ * <p>One balance update out of {@code samplingInterval} is sampled,
+ * so actual times are about {@code samplingInterval} times the sampled ones.</p>
+ */
+@Value
+public class LockContentionReport {
+
+    @JsonSerialize(using = ToStringSerializer.class)
+    Instant since;
+
+    int samplingInterval;
+
+    long samples;
+
+    long waitNanos;
+
+    long maxWaitNanos;
+
+    long holdNanos;
+
+    long maxHoldNanos;
+
+    /**
+     * Samples lost because they were recorded faster than they were aggregated.
+     */
+    long droppedSamples;
+
+    List<AccountLockContention> accounts;
+}
@@ -0,0 +1,49 @@
+package com.db.awmd.challenge.domain;
+
+import com.db.awmd.challenge.utils.BigDecimalJsonSerializer;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * A transfer to be executed at {@code executionTime},
+ * and then every {@code intervalSeconds} seconds if {@code intervalSeconds} is positive.
+ */
+@Value
+public class ScheduledTransfer {
+
+    String id;
+
+    String sourceAccountId;
+
+    String destinationAccountId;
+
+    @JsonSerialize(using = BigDecimalJsonSerializer.class)
+    BigDecimal amount;
+
+    @JsonSerialize(using = ToStringSerializer.class)
+    Instant executionTime;
+
+    long intervalSeconds;
+
+    public boolean isRecurring() {
+        return this.intervalSeconds > 0;
+    }
+
+    /**
+     * @return the next occurrence of this recurring transfer
+     */
+    public ScheduledTransfer next() {
+        return new ScheduledTransfer(
+                this.id,
+                this.sourceAccountId,
+                this.destinationAccountId,
+                this.amount,
+                this.executionTime.plusSeconds(this.intervalSeconds),
+                this.intervalSeconds
+        );
+    }
+}
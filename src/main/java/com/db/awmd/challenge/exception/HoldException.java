@@ -0,0 +1,12 @@
+package com.db.awmd.challenge.exception;
+
+/**
+ * Exception to be thrown when funds cannot be held, or a hold cannot be captured.
+ * <p>This is intentionally a checked exception.</p>
+ */
+public final class HoldException extends Exception {
+
+    public HoldException(final String messageFormat, final Object[] args, final Throwable cause) {
+        super(String.format(messageFormat, args), cause);
+    }
+}
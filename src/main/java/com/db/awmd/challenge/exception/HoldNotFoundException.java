@@ -0,0 +1,8 @@
+package com.db.awmd.challenge.exception;
+
+public class HoldNotFoundException extends Exception {
+
+    public HoldNotFoundException(final String holdId) {
+        super(String.format("Hold '%s' was not found.", holdId));
+    }
+}
@@ -0,0 +1,89 @@
+package com.db.awmd.challenge.repository;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountListener;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Dispatches the changes of the accounts held by the repository to the registered listeners.
+ * <p>A failing listener neither prevents the change nor the notification of the other listeners.</p>
+ */
+@Component
+@Slf4j
+public class AccountListeners implements AccountListener {
+
+  private final List<AccountListener> listeners = new CopyOnWriteArrayList<>();
+
+  public void add(final AccountListener listener) {
+    this.listeners.add(listener);
+  }
+
+  public void remove(final AccountListener listener) {
+    this.listeners.remove(listener);
+  }
+
+  @Override
+  public void accountAdded(final Account account) {
+
+    for (final AccountListener listener : this.listeners) {
+      try {
+        listener.accountAdded(account);
+      } catch (final RuntimeException e) {
+        log.error("Listener {} failed on addition of account {}", listener, account.getAccountId(), e);
+      }
+    }
+  }
+
+  @Override
+  public void accountRemoved(final Account account) {
+
+    for (final AccountListener listener : this.listeners) {
+      try {
+        listener.accountRemoved(account);
+      } catch (final RuntimeException e) {
+        log.error("Listener {} failed on removal of account {}", listener, account.getAccountId(), e);
+      }
+    }
+  }
+
+  @Override
+  public void balanceChanged(final Account account, final BigDecimal oldBalance, final BigDecimal newBalance) {
+
+    for (final AccountListener listener : this.listeners) {
+      try {
+        listener.balanceChanged(account, oldBalance, newBalance);
+      } catch (final RuntimeException e) {
+        log.error("Listener {} failed on balance change of account {}", listener, account.getAccountId(), e);
+      }
+    }
+  }
+
+  @Override
+  public void heldBalanceChanged(final Account account, final BigDecimal oldHeldBalance, final BigDecimal newHeldBalance) {
+
+    for (final AccountListener listener : this.listeners) {
+      try {
+        listener.heldBalanceChanged(account, oldHeldBalance, newHeldBalance);
+      } catch (final RuntimeException e) {
+        log.error("Listener {} failed on held balance change of account {}", listener, account.getAccountId(), e);
+      }
+    }
+  }
+
+  @Override
+  public void lockSampled(final Account account, final long waitNanos, final long holdNanos) {
+
+    for (final AccountListener listener : this.listeners) {
+      try {
+        listener.lockSampled(account, waitNanos, holdNanos);
+      } catch (final RuntimeException e) {
+        log.error("Listener {} failed on lock sample of account {}", listener, account.getAccountId(), e);
+      }
+    }
+  }
+}
@@ -0,0 +1,285 @@
+package com.db.awmd.challenge.repository;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.utils.IdDictionary;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.zip.CRC32;
+
+/**
+ * File holding the state of the accounts evicted from memory.
+ *
+ * <p>Every account has a slot of the file, found through an {@link IdDictionary} of the evicted ids and an array
+ * of file offsets indexed by handle. A slot is a power of two of at least {@value #MIN_SLOT_SIZE} bytes, and every
+ * eviction of the account rewrites it in place; only a record outgrowing its slot moves to a new slot, twice as large,
+ * at the end of the file. So the file holds at most about four times the size of the records of the accounts evicted,
+ * however often they are evicted, until it is cleared.</p>
+ *
+ * <p>Records are written by one thread at a time, and read concurrently with positional reads. Every record carries
+ * a checksum, so that a read overlapping the rewrite of its slot is detected, and retried.</p>
+ */
+final class AccountSpillFile implements Closeable {
+
+  private static final int PAGE_BITS = 16;
+  private static final int PAGE_SIZE = 1 << PAGE_BITS;
+  private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+  private static final int MIN_SLOT_SIZE = 64;
+
+  /**
+   * Size of the length and the checksum preceding every record.
+   */
+  private static final int HEADER_SIZE = 8;
+
+  /**
+   * Greatest record, made of five strings of at most 65535 bytes, so that a torn length is detected.
+   */
+  private static final int MAX_RECORD_SIZE = 5 * (2 + 0xFFFF);
+
+  private static final int MAX_READ_ATTEMPTS = 100;
+
+  /**
+   * Slot of every evicted account. Replaced as a whole when the file is cleared.
+   */
+  private static final class Index {
+
+    final IdDictionary ids;
+
+    volatile AtomicLongArray[] offsets = new AtomicLongArray[1];
+
+    /**
+     * Size of the slot of every account, only read and written by the thread writing records.
+     */
+    int[] slotSizes = new int[MIN_SLOT_SIZE];
+
+    Index(final int expectedSize) {
+      this.ids = new IdDictionary(expectedSize);
+    }
+
+    long offsetOf(final int handle) {
+      return this.offsets[handle >>> PAGE_BITS].get(handle & PAGE_MASK);
+    }
+
+    void setOffset(final int handle, final long offset) {
+
+      final int page = handle >>> PAGE_BITS;
+
+      AtomicLongArray[] offsets = this.offsets;
+      if (page == offsets.length) {
+        offsets = Arrays.copyOf(offsets, offsets.length * 2);
+      }
+      if (offsets[page] == null) {
+        offsets[page] = new AtomicLongArray(PAGE_SIZE);
+      }
+      this.offsets = offsets;
+
+      offsets[page].set(handle & PAGE_MASK, offset);
+    }
+
+    int slotSizeOf(final int handle) {
+      return this.slotSizes[handle];
+    }
+
+    void setSlotSize(final int handle, final int slotSize) {
+
+      if (handle == this.slotSizes.length) {
+        this.slotSizes = Arrays.copyOf(this.slotSizes, this.slotSizes.length * 2);
+      }
+      this.slotSizes[handle] = slotSize;
+    }
+  }
+
+  private final FileChannel channel;
+
+  private final int expectedSize;
+
+  private volatile Index index;
+
+  private long end;
+
+  AccountSpillFile(final Path directory, final int expectedSize) throws IOException {
+
+    Files.createDirectories(directory);
+
+    this.channel =
+            FileChannel.open(
+                    Files.createTempFile(directory, "accounts-", ".spill"),
+                    StandardOpenOption.READ,
+                    StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE
+            );
+    this.expectedSize = expectedSize;
+
+    reset();
+  }
+
+  /**
+   * Saves the state of {@code account}, which must not change meanwhile.
+   */
+  synchronized void write(final Account account) throws IOException {
+
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(MIN_SLOT_SIZE);
+    try (final DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeInt(0);
+      out.writeInt(0);
+      out.writeUTF(account.getAccountId());
+      out.writeUTF(account.getCurrency());
+      out.writeUTF(account.getBalance().toString());
+      out.writeUTF(account.getHeldBalance().toString());
+      out.writeUTF(account.getAccrualRunId() == null ? "" : account.getAccrualRunId());
+    }
+
+    final ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+    record.putInt(0, record.remaining() - HEADER_SIZE);
+    record.putInt(4, checksum(record.array(), HEADER_SIZE, record.remaining() - HEADER_SIZE));
+
+    final Index index = this.index;
+    final int handle = index.ids.handleOf(account.getAccountId());
+
+    if (handle >= 0 && record.remaining() <= index.slotSizeOf(handle)) {
+      writeFully(record, index.offsetOf(handle));
+      return;
+    }
+
+    final int slotSize = Math.max(MIN_SLOT_SIZE, Integer.highestOneBit(record.remaining() - 1) << 1);
+    final long offset = this.end;
+    writeFully(record, offset);
+    this.end += slotSize;
+
+    // The offset of a new id is stored before the id is published by the dictionary.
+    if (handle >= 0) {
+      index.setSlotSize(handle, slotSize);
+      index.setOffset(handle, offset);
+    } else {
+      index.setSlotSize(index.ids.size(), slotSize);
+      index.setOffset(index.ids.size(), offset);
+      index.ids.add(account.getAccountId());
+    }
+  }
+
+  boolean contains(final String accountId) {
+    return this.index.ids.handleOf(accountId) >= 0;
+  }
+
+  /**
+   * @return the account as it was last written, without listener, or {@code null} if it was never written
+   */
+  Account read(final String accountId) throws IOException {
+
+    final Index index = this.index;
+    final int handle = index.ids.handleOf(accountId);
+
+    return handle < 0 ? null : read(index, handle);
+  }
+
+  int size() {
+    return this.index.ids.size();
+  }
+
+  /**
+   * @return the size of the file, in bytes
+   */
+  synchronized long length() {
+    return this.end;
+  }
+
+  /**
+   * @return the {@code n}th account written, as it was last written
+   */
+  Account readAt(final int n) throws IOException {
+    return read(this.index, n);
+  }
+
+  synchronized void reset() throws IOException {
+
+    this.index = new Index(this.expectedSize);
+    this.channel.truncate(0);
+    this.end = 0;
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.channel.close();
+  }
+
+  /**
+   * Reads the record of {@code handle} again as long as it is being rewritten.
+   */
+  private Account read(final Index index, final int handle) throws IOException {
+
+    for (int attempt = 1; ; attempt++) {
+
+      final long offset = index.offsetOf(handle);
+
+      final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      readFully(header, offset);
+
+      final int length = header.getInt(0);
+      if (length >= 0 && length <= MAX_RECORD_SIZE) {
+
+        final ByteBuffer record = ByteBuffer.allocate(length);
+        readFully(record, offset + HEADER_SIZE);
+
+        if (checksum(record.array(), 0, length) == header.getInt(4)) {
+          return decode(record.array());
+        }
+      }
+
+      if (attempt == MAX_READ_ATTEMPTS) {
+        throw new IOException("Corrupt record in the spill file at offset " + offset);
+      }
+      Thread.yield();
+    }
+  }
+
+  private static Account decode(final byte[] record) throws IOException {
+
+    try (final DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+      final Account account = new Account(in.readUTF(), in.readUTF(), new BigDecimal(in.readUTF()), new BigDecimal(in.readUTF()));
+
+      final String accrualRunId = in.readUTF();
+      if (!accrualRunId.isEmpty()) {
+        account.markAccrued(accrualRunId);
+      }
+
+      return account;
+    }
+  }
+
+  private void writeFully(final ByteBuffer buffer, final long offset) throws IOException {
+
+    while (buffer.hasRemaining()) {
+      this.channel.write(buffer, offset + buffer.position());
+    }
+  }
+
+  private static int checksum(final byte[] bytes, final int offset, final int length) {
+
+    final CRC32 crc = new CRC32();
+    crc.update(bytes, offset, length);
+
+    return (int) crc.getValue();
+  }
+
+  private void readFully(final ByteBuffer buffer, final long offset) throws IOException {
+
+    while (buffer.hasRemaining()) {
+      if (this.channel.read(buffer, offset + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of the spill file at offset " + offset);
+      }
+    }
+  }
+}
@@ -3,11 +3,27 @@ package com.db.awmd.challenge.repository;
 import com.db.awmd.challenge.domain.Account;
 import com.db.awmd.challenge.exception.DuplicateAccountIdException;
 
+import java.util.Collection;
+import java.util.stream.Stream;
+
 public interface AccountsRepository {
 
   void createAccount(Account account) throws DuplicateAccountIdException;
 
   Account getAccount(String accountId);
 
+  /**
+   * Looks the accounts up lazily, as the stream is consumed.
+   *
+   * @return the accounts which exist, in the order of {@code accountIds}, without duplicates
+   */
+  Stream<Account> getAccounts(Collection<String> accountIds);
+
+  /**
+   * Iterates over all accounts, without locking the repository. Accounts created or removed meanwhile
+   * may or may not be included; every other account is included exactly once.
+   */
+  Stream<Account> getAllAccounts();
+
   void clearAccounts();
 }
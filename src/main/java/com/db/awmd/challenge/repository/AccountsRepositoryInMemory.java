@@ -2,15 +2,28 @@ package com.db.awmd.challenge.repository;
 
 import com.db.awmd.challenge.domain.Account;
 import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+import java.util.Collection;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 
 @Repository
+@ConditionalOnProperty(name = "accounts.repository", havingValue = "in-memory", matchIfMissing = true)
 public class AccountsRepositoryInMemory implements AccountsRepository {
 
   private final Map<String, Account> accounts = new ConcurrentHashMap<>();
 
+  private final AccountListeners listeners;
+
+  @Autowired
+  public AccountsRepositoryInMemory(AccountListeners listeners) {
+    this.listeners = listeners;
+  }
+
   @Override
   public void createAccount(Account account) throws DuplicateAccountIdException {
     Account previousAccount = accounts.putIfAbsent(account.getAccountId(), account);
@@ -18,6 +31,7 @@ public class AccountsRepositoryInMemory implements AccountsRepository {
       throw new DuplicateAccountIdException(
         "Account id " + account.getAccountId() + " already exists!");
     }
+    account.attach(listeners);
   }
 
   @Override
@@ -25,9 +39,23 @@ public class AccountsRepositoryInMemory implements AccountsRepository {
     return accounts.get(accountId);
   }
 
+  @Override
+  public Stream<Account> getAccounts(Collection<String> accountIds) {
+    return accountIds.stream().distinct().map(accounts::get).filter(Objects::nonNull);
+  }
+
+  @Override
+  public Stream<Account> getAllAccounts() {
+    return accounts.values().stream();
+  }
+
   @Override
   public void clearAccounts() {
-    accounts.clear();
+    for (Account account : accounts.values()) {
+      if (accounts.remove(account.getAccountId(), account)) {
+        account.detach();
+      }
+    }
   }
 
 }
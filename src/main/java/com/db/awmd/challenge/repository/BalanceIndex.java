@@ -0,0 +1,203 @@
+package com.db.awmd.challenge.repository;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountBalance;
+import com.db.awmd.challenge.domain.AccountBalancePage;
+import com.db.awmd.challenge.domain.AccountListener;
+import lombok.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Accounts ordered by balance, for range and ranking queries.
+ *
+ * <p>Enabled with {@code accounts.balance-index.enabled=true}. Balances in different currencies are not comparable,
+ * so the index holds a concurrent skip list of (balance, account id) entries per currency, and every query is for
+ * a single currency. The entries are updated on every balance change while the account is locked,
+ * so that the entries of an account are never reordered concurrently. A change adds the new entry of the account
+ * before removing the old one.</p>
+ *
+ * <p>Queries do not lock anything, so they are weakly consistent: an account whose balance changes while a page
+ * is read may be missed, if its new entry is before the position read and its old one after. Every entry is listed
+ * with its balance at some point during the query, and a page lists an account at most once, the first of its
+ * entries. Accounts whose balance does not change are listed exactly once.</p>
+ *
+ * <p>Pages are delimited by an opaque cursor encoding the last entry returned, so that paging resumes where it stopped
+ * while balances change; an account which moved across the cursor meanwhile may be listed on two pages, or none.</p>
+ */
+@Component
+@ConditionalOnProperty(name = "accounts.balance-index.enabled", havingValue = "true")
+public class BalanceIndex implements AccountListener {
+
+  private final AccountListeners accountListeners;
+
+  private final Map<String, NavigableSet<Entry>> entriesByCurrency = new ConcurrentHashMap<>();
+
+  @Autowired
+  public BalanceIndex(final AccountListeners accountListeners) {
+    this.accountListeners = accountListeners;
+  }
+
+  @PostConstruct
+  void start() {
+    this.accountListeners.add(this);
+  }
+
+  @PreDestroy
+  void stop() {
+    this.accountListeners.remove(this);
+  }
+
+  @Override
+  public void accountAdded(final Account account) {
+    entries(account).add(new Entry(account.getBalance(), account.getAccountId()));
+  }
+
+  @Override
+  public void accountRemoved(final Account account) {
+    entries(account).remove(new Entry(account.getBalance(), account.getAccountId()));
+  }
+
+  @Override
+  public void balanceChanged(final Account account, final BigDecimal oldBalance, final BigDecimal newBalance) {
+
+    final NavigableSet<Entry> entries = entries(account);
+    final Entry oldEntry = new Entry(oldBalance, account.getAccountId());
+    final Entry newEntry = new Entry(newBalance, account.getAccountId());
+
+    // Entries of equal balances are equal, whatever their scale.
+    if (newEntry.compareTo(oldEntry) == 0) {
+      entries.remove(oldEntry);
+      entries.add(newEntry);
+
+    } else {
+      entries.add(newEntry);
+      entries.remove(oldEntry);
+    }
+  }
+
+  /**
+   * @return the accounts in {@code currency} whose balance is strictly less than {@code threshold}, by increasing balance
+   */
+  public AccountBalancePage findBalancesBelow(final String currency, final BigDecimal threshold, final int limit, final String cursor) {
+
+    final NavigableSet<Entry> below = entries(currency).headSet(new Entry(threshold, ""), false);
+
+    return page(cursor == null ? below : below.tailSet(decode(cursor), false), limit);
+  }
+
+  /**
+   * @return the accounts in {@code currency} by decreasing balance
+   */
+  public AccountBalancePage findTopBalances(final String currency, final int limit, final String cursor) {
+
+    final NavigableSet<Entry> descending = entries(currency).descendingSet();
+
+    return page(cursor == null ? descending : descending.tailSet(decode(cursor), false), limit);
+  }
+
+  public int size() {
+    return this.entriesByCurrency.values().stream().mapToInt(Set::size).sum();
+  }
+
+  private NavigableSet<Entry> entries(final Account account) {
+    return this.entriesByCurrency.computeIfAbsent(account.getCurrency(), currency -> new ConcurrentSkipListSet<>());
+  }
+
+  private NavigableSet<Entry> entries(final String currency) {
+    return this.entriesByCurrency.getOrDefault(currency, Collections.emptyNavigableSet());
+  }
+
+  private static AccountBalancePage page(final NavigableSet<Entry> entries, final int limit) {
+
+    final List<AccountBalance> accounts = new ArrayList<>(Math.min(limit, 1024));
+    final Set<String> accountIds = new HashSet<>();
+    final Iterator<Entry> iterator = entries.iterator();
+
+    Entry last = null;
+    while (accounts.size() < limit && iterator.hasNext()) {
+      last = iterator.next();
+      if (accountIds.add(last.getAccountId())) {
+        accounts.add(new AccountBalance(last.getAccountId(), last.getBalance()));
+      }
+    }
+
+    return new AccountBalancePage(accounts, last != null && iterator.hasNext() ? encode(last) : null);
+  }
+
+  private static String encode(final Entry entry) {
+
+    final String plain = entry.getBalance().toPlainString() + ':' + entry.getAccountId();
+
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(plain.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static Entry decode(final String cursor) {
+
+    final String plain;
+    try {
+      plain = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    } catch (final IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid cursor '" + cursor + "'.", e);
+    }
+
+    final int separator = plain.indexOf(':');
+    if (separator < 0) {
+      throw new IllegalArgumentException("Invalid cursor '" + cursor + "'.");
+    }
+
+    try {
+      return new Entry(new BigDecimal(plain.substring(0, separator)), plain.substring(separator + 1));
+    } catch (final NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid cursor '" + cursor + "'.", e);
+    }
+  }
+
+  /**
+   * Entries are ordered by balance, then by account id. Rounding a balance to a {@code double} preserves the order,
+   * so balances are compared as {@code double}s first, which saves most {@code BigDecimal} comparisons.
+   */
+  @Value
+  private static class Entry implements Comparable<Entry> {
+
+    BigDecimal balance;
+
+    String accountId;
+
+    double approximateBalance;
+
+    Entry(final BigDecimal balance, final String accountId) {
+      this.balance = balance;
+      this.accountId = accountId;
+      this.approximateBalance = balance.doubleValue();
+    }
+
+    @Override
+    public int compareTo(final Entry other) {
+
+      int result = Double.compare(this.approximateBalance, other.approximateBalance);
+      if (result == 0) {
+        result = this.balance.compareTo(other.balance);
+      }
+
+      return result != 0 ? result : this.accountId.compareTo(other.accountId);
+    }
+  }
+}
@@ -0,0 +1,147 @@
+package com.db.awmd.challenge.repository;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+import com.db.awmd.challenge.utils.IdDictionary;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Repository for very large numbers of accounts, enabled with {@code accounts.repository=compact}.
+ *
+ * <p>Account ids are interned in an {@link IdDictionary}, which maps them to dense {@code int} handles,
+ * and accounts are stored in pages of arrays indexed by handle. Compared with {@link AccountsRepositoryInMemory},
+ * an account no longer costs a map entry and a {@link String}, which saves about half of the memory of an account
+ * besides its balance. In return, reading the id of an account decodes it from the dictionary.</p>
+ *
+ * <p>Accounts are created one at a time, and looked up without locking.</p>
+ */
+@Repository
+@ConditionalOnProperty(name = "accounts.repository", havingValue = "compact")
+public class CompactAccountsRepository implements AccountsRepository {
+
+  private static final int PAGE_BITS = 16;
+  private static final int PAGE_SIZE = 1 << PAGE_BITS;
+  private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+  /**
+   * Accounts by handle. Replaced as a whole when accounts are cleared,
+   * so that the accounts which are still referenced keep reading their ids from their own dictionary.
+   *
+   * <p>The array of pages is volatile, as it is replaced when it grows while lookups read it without locking.
+   * Pages and accounts are published by the dictionary, which adds an id once its account is stored.</p>
+   */
+  private static final class Store {
+
+    final IdDictionary ids;
+
+    volatile Account[][] accounts = new Account[1][];
+
+    Store(final int expectedSize) {
+      this.ids = new IdDictionary(expectedSize);
+    }
+
+    Account get(final int handle) {
+      return this.accounts[handle >>> PAGE_BITS][handle & PAGE_MASK];
+    }
+
+    void set(final int handle, final Account account) {
+
+      final int page = handle >>> PAGE_BITS;
+      Account[][] accounts = this.accounts;
+      if (page == accounts.length) {
+        accounts = Arrays.copyOf(accounts, accounts.length * 2);
+        this.accounts = accounts;
+      }
+      if (accounts[page] == null) {
+        accounts[page] = new Account[PAGE_SIZE];
+      }
+      accounts[page][handle & PAGE_MASK] = account;
+    }
+  }
+
+  private final AccountListeners listeners;
+
+  private final int expectedSize;
+
+  private volatile Store store;
+
+  @Autowired
+  public CompactAccountsRepository(
+    AccountListeners listeners,
+    @Value("${accounts.repository.expected-size:65536}") int expectedSize) {
+
+    this.listeners = listeners;
+    this.expectedSize = expectedSize;
+    this.store = new Store(expectedSize);
+  }
+
+  @Override
+  public void createAccount(Account account) throws DuplicateAccountIdException {
+
+    final String accountId = account.getAccountId();
+    final Store store;
+    final int handle;
+
+    synchronized (this) {
+      store = this.store;
+
+      // The account is stored before its id is published by the dictionary, so that lookups always find it.
+      final int nextHandle = store.ids.size();
+      store.set(nextHandle, account);
+
+      handle = store.ids.add(accountId);
+      if (handle < 0) {
+        store.set(nextHandle, null);
+        throw new DuplicateAccountIdException("Account id " + accountId + " already exists!");
+      }
+    }
+
+    account.internId(store.ids, handle);
+    account.attach(listeners);
+  }
+
+  @Override
+  public Account getAccount(String accountId) {
+
+    final Store store = this.store;
+    final int handle = store.ids.handleOf(accountId);
+
+    return handle < 0 ? null : store.get(handle);
+  }
+
+  @Override
+  public Stream<Account> getAccounts(Collection<String> accountIds) {
+    return accountIds.stream().distinct().map(this::getAccount).filter(Objects::nonNull);
+  }
+
+  @Override
+  public Stream<Account> getAllAccounts() {
+
+    final Store store = this.store;
+    return IntStream.range(0, store.ids.size()).mapToObj(store::get);
+  }
+
+  @Override
+  public void clearAccounts() {
+
+    final Store cleared;
+
+    synchronized (this) {
+      cleared = this.store;
+      this.store = new Store(this.expectedSize);
+    }
+
+    for (int handle = 0; handle < cleared.ids.size(); handle++) {
+      cleared.get(handle).detach();
+    }
+  }
+}
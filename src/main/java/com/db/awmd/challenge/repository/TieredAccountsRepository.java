@@ -0,0 +1,538 @@
+package com.db.awmd.challenge.repository;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountListener;
+import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+import com.db.awmd.challenge.utils.FrequencySketch;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.math.BigDecimal;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Repository keeping only the recently active accounts in memory, enabled with {@code accounts.repository=tiered}.
+ *
+ * <p>When more than {@code accounts.repository.tiered.max-resident} accounts are in memory, the evictor thread
+ * saves the least valuable ones to an {@link AccountSpillFile} and drops them. Accounts are ranked by their
+ * recent access frequency, estimated by a TinyLFU {@link FrequencySketch}, then by their last access.
+ * As in W-TinyLFU, lookups do not update the sketch: they record the account id in a buffer of their thread's stripe,
+ * without locking, and the buffers are drained into the sketch by whichever thread fills one, if no other is draining,
+ * and before every eviction. Accesses recorded while a buffer is full are dropped.</p>
+ *
+ * <p>Looking up an evicted account faults it in on the calling thread, which waits for the read of the spill file.
+ * Concurrent lookups of the same account wait for the same read, and lookups of resident accounts never wait for I/O.</p>
+ *
+ * <p>An evicted account may still be referenced, by a transfer in progress for instance. Its identity is kept
+ * with a weak reference until it is garbage collected, so that it is faulted in as the same object,
+ * and it is made resident again as soon as it changes, so that its change is never lost.</p>
+ */
+@Repository
+@ConditionalOnProperty(name = "accounts.repository", havingValue = "tiered")
+@Slf4j
+public class TieredAccountsRepository implements AccountsRepository, AccountListener {
+
+  private static final class Resident {
+
+    final Account account;
+
+    volatile long lastAccess;
+
+    Resident(final Account account, final long lastAccess) {
+      this.account = account;
+      this.lastAccess = lastAccess;
+    }
+  }
+
+  private static final class EvictedReference extends WeakReference<Account> {
+
+    final String accountId;
+
+    EvictedReference(final Account account, final String accountId, final ReferenceQueue<Account> queue) {
+      super(account, queue);
+      this.accountId = accountId;
+    }
+  }
+
+  private final AccountListeners listeners;
+
+  private final int maxResident;
+
+  private final long evictionIntervalMillis;
+
+  private final AccountSpillFile spillFile;
+
+  private static final int STRIPES = Integer.highestOneBit(4 * Runtime.getRuntime().availableProcessors() - 1) << 1;
+
+  private static final int ACCESS_BUFFER_SIZE = 256;
+
+  /**
+   * Updated and read while {@link #frequenciesLock} is held.
+   */
+  private final FrequencySketch frequencies;
+
+  private final Lock frequenciesLock = new ReentrantLock();
+
+  private final AccessBuffer[] accessBuffers = new AccessBuffer[STRIPES];
+
+  private final Map<String, Resident> residents = new ConcurrentHashMap<>();
+
+  private final Map<String, EvictedReference> evicted = new ConcurrentHashMap<>();
+
+  private final ReferenceQueue<Account> collected = new ReferenceQueue<>();
+
+  private final Map<String, CompletableFuture<Account>> faults = new ConcurrentHashMap<>();
+
+  private final ScheduledExecutorService evictor =
+          Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("accounts-evictor-"));
+
+  private final Object creationLock = new Object();
+
+  private final Object evictionLock = new Object();
+
+  private volatile long clock;
+
+  @Autowired
+  public TieredAccountsRepository(
+    AccountListeners listeners,
+    @Value("${accounts.repository.tiered.max-resident:100000}") int maxResident,
+    @Value("${accounts.repository.tiered.eviction-interval-millis:1000}") long evictionIntervalMillis,
+    @Value("${accounts.repository.tiered.directory:${java.io.tmpdir}}") String directory) throws IOException {
+
+    this.listeners = listeners;
+    this.maxResident = maxResident;
+    this.evictionIntervalMillis = evictionIntervalMillis;
+    this.spillFile = new AccountSpillFile(Paths.get(directory), maxResident);
+    this.frequencies = new FrequencySketch(maxResident);
+    for (int i = 0; i < STRIPES; i++) {
+      this.accessBuffers[i] = new AccessBuffer();
+    }
+  }
+
+  @PostConstruct
+  void start() {
+    this.listeners.add(this);
+    this.evictor.scheduleWithFixedDelay(this::evictSafely, this.evictionIntervalMillis, this.evictionIntervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  void stop() throws IOException {
+    this.listeners.remove(this);
+    this.evictor.shutdownNow();
+    this.spillFile.close();
+  }
+
+  @Override
+  public void createAccount(Account account) throws DuplicateAccountIdException {
+
+    final String accountId = account.getAccountId();
+
+    synchronized (this.creationLock) {
+      if (this.spillFile.contains(accountId) || this.residents.putIfAbsent(accountId, new Resident(account, this.clock)) != null) {
+        throw new DuplicateAccountIdException("Account id " + accountId + " already exists!");
+      }
+    }
+
+    recordAccess(accountId);
+    account.attach(this.listeners);
+  }
+
+  @Override
+  public Account getAccount(String accountId) {
+
+    final Resident resident = this.residents.get(accountId);
+
+    if (resident != null) {
+      resident.lastAccess = this.clock;
+      recordAccess(accountId);
+      return resident.account;
+    }
+
+    if (!this.spillFile.contains(accountId)) {
+      return null;
+    }
+
+    return fault(accountId);
+  }
+
+  @Override
+  public Stream<Account> getAccounts(Collection<String> accountIds) {
+    return accountIds.stream().distinct().map(this::getAccount).filter(Objects::nonNull);
+  }
+
+  /**
+   * Accounts which are not in memory are read from the spill file without being loaded,
+   * as copies which are not part of the repository.
+   */
+  @Override
+  public Stream<Account> getAllAccounts() {
+
+    final Set<String> residentIds = new HashSet<>(this.residents.keySet());
+
+    final Stream<Account> spilled =
+            IntStream
+                    .range(0, this.spillFile.size())
+                    .mapToObj(this::readAt)
+                    .filter(saved -> !residentIds.contains(saved.getAccountId()))
+                    .map(saved -> Optional.ofNullable(peek(saved.getAccountId())).orElse(saved));
+
+    return Stream.concat(residentIds.stream().map(this::peekOrRead), spilled).filter(Objects::nonNull);
+  }
+
+  @Override
+  public void clearAccounts() {
+
+    synchronized (this.creationLock) {
+      synchronized (this.evictionLock) {
+
+        // Accounts are detached first, so that their changes no longer make them resident again.
+        final Set<String> removed = new HashSet<>();
+        for (final Resident resident : this.residents.values()) {
+          resident.account.detach();
+          this.residents.remove(resident.account.getAccountId(), resident);
+          removed.add(resident.account.getAccountId());
+        }
+
+        // Evicted accounts which are no longer in memory are removed on behalf of their saved state.
+        for (int i = 0; i < this.spillFile.size(); i++) {
+          final Account saved = readAt(i);
+          final EvictedReference reference = this.evicted.get(saved.getAccountId());
+          final Account account = reference == null ? null : reference.get();
+
+          if (account != null) {
+            account.detach();
+          } else if (!removed.contains(saved.getAccountId())) {
+            this.listeners.accountRemoved(saved);
+          }
+        }
+
+        this.evicted.clear();
+        reset();
+      }
+    }
+  }
+
+  /**
+   * Makes an evicted account resident again as soon as it changes, since its saved state is then out of date.
+   */
+  @Override
+  public void balanceChanged(final Account account, final BigDecimal oldBalance, final BigDecimal newBalance) {
+    readmit(account);
+  }
+
+  @Override
+  public void heldBalanceChanged(final Account account, final BigDecimal oldHeldBalance, final BigDecimal newHeldBalance) {
+    readmit(account);
+  }
+
+  int residentCount() {
+    return this.residents.size();
+  }
+
+  boolean isResident(final String accountId) {
+    return this.residents.containsKey(accountId);
+  }
+
+  /**
+   * Evicts the least valuable accounts until at most 90% of {@code max-resident} accounts are resident.
+   */
+  void evict() {
+    synchronized (this.evictionLock) {
+      evictExcess();
+    }
+  }
+
+  private void evictExcess() {
+
+    this.clock++;
+    purgeCollected();
+
+    final int excess = this.residents.size() - this.maxResident;
+    if (excess <= 0) {
+      return;
+    }
+
+    final PriorityQueue<Resident> victims;
+    this.frequenciesLock.lock();
+    try {
+      drainAccessBuffers();
+      victims = leastValuable(excess + this.maxResident / 10);
+    } finally {
+      this.frequenciesLock.unlock();
+    }
+
+    for (final Resident victim : victims) {
+      evict(victim);
+    }
+
+    log.debug("Evicted {} accounts, {} remain resident", victims.size(), this.residents.size());
+  }
+
+  private PriorityQueue<Resident> leastValuable(final int count) {
+
+    final Comparator<Resident> value =
+            Comparator
+                    .<Resident>comparingInt(resident -> this.frequencies.frequency(resident.account.getAccountId()))
+                    .thenComparingLong(resident -> resident.lastAccess);
+
+    final PriorityQueue<Resident> victims = new PriorityQueue<>(count + 1, value.reversed());
+    for (final Resident resident : this.residents.values()) {
+      victims.add(resident);
+      if (victims.size() > count) {
+        victims.poll();
+      }
+    }
+
+    return victims;
+  }
+
+  private void evict(final Resident resident) {
+
+    final Account account = resident.account;
+    final String accountId = account.getAccountId();
+
+    account.getLock().lock();
+    try {
+
+      if (this.residents.get(accountId) != resident) {
+        return;
+      }
+
+      try {
+        this.spillFile.write(account);
+      } catch (final IOException e) {
+        log.error("Failed to evict account {}", accountId, e);
+        return;
+      }
+
+      this.evicted.put(accountId, new EvictedReference(account, accountId, this.collected));
+      this.residents.remove(accountId, resident);
+
+    } finally {
+      account.getLock().unlock();
+    }
+  }
+
+  private void evictSafely() {
+
+    try {
+      evict();
+    } catch (final RuntimeException e) {
+      log.error("Failed to evict accounts", e);
+    }
+  }
+
+  /**
+   * Reads the account on the calling thread, unless another thread is already reading it, whose read it then waits for.
+   */
+  private Account fault(final String accountId) {
+
+    final CompletableFuture<Account> started = new CompletableFuture<>();
+    final CompletableFuture<Account> fault = this.faults.putIfAbsent(accountId, started);
+
+    if (fault == null) {
+      try {
+        final Account account = load(accountId);
+        started.complete(account);
+        return account;
+
+      } catch (final RuntimeException e) {
+        started.completeExceptionally(e);
+        throw e;
+
+      } finally {
+        this.faults.remove(accountId, started);
+      }
+    }
+
+    try {
+      return fault.join();
+
+    } catch (final CompletionException e) {
+      throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+    }
+  }
+
+  private Account load(final String accountId) {
+
+    final Resident resident = this.residents.get(accountId);
+    if (resident != null) {
+      return resident.account;
+    }
+
+    final EvictedReference reference = this.evicted.get(accountId);
+    final Account referenced = reference == null ? null : reference.get();
+    final Account account = referenced != null ? referenced : read(accountId);
+
+    if (account == null) {
+      return null;
+    }
+
+    recordAccess(accountId);
+    return this.residents.computeIfAbsent(accountId, id -> new Resident(account, this.clock)).account;
+  }
+
+  /**
+   * @return the account as it was evicted, notifying the listeners again, or {@code null} if it was cleared meanwhile
+   */
+  private Account read(final String accountId) {
+
+    final Account account;
+    try {
+      account = this.spillFile.read(accountId);
+    } catch (final IOException e) {
+      throw new UncheckedIOException("Failed to load account " + accountId, e);
+    }
+
+    if (account != null) {
+      account.resume(this.listeners);
+    }
+
+    return account;
+  }
+
+  /**
+   * @return the account in memory, or {@code null} if it is only in the spill file or was cleared
+   */
+  private Account peek(final String accountId) {
+
+    final Resident resident = this.residents.get(accountId);
+    if (resident != null) {
+      return resident.account;
+    }
+
+    final EvictedReference reference = this.evicted.get(accountId);
+    return reference == null ? null : reference.get();
+  }
+
+  /**
+   * @return the account in memory, or as it was last evicted, or {@code null} if it was cleared
+   */
+  private Account peekOrRead(final String accountId) {
+
+    final Account account = peek(accountId);
+    if (account != null) {
+      return account;
+    }
+
+    try {
+      return this.spillFile.read(accountId);
+    } catch (final IOException e) {
+      throw new UncheckedIOException("Failed to read account " + accountId, e);
+    }
+  }
+
+  private void readmit(final Account account) {
+
+    final String accountId = account.getAccountId();
+
+    if (!this.residents.containsKey(accountId)) {
+      this.residents.putIfAbsent(accountId, new Resident(account, this.clock));
+    }
+  }
+
+  private void recordAccess(final String accountId) {
+
+    // Threads are spread over the buffers, so that they seldom write to the same one.
+    final long id = Thread.currentThread().getId();
+    final AccessBuffer buffer = this.accessBuffers[(int) (id ^ id >>> 16) * 0x9E3779B9 >>> 16 & STRIPES - 1];
+
+    if (!buffer.add(accountId) && this.frequenciesLock.tryLock()) {
+      try {
+        drainAccessBuffers();
+      } finally {
+        this.frequenciesLock.unlock();
+      }
+    }
+  }
+
+  private void drainAccessBuffers() {
+    for (final AccessBuffer buffer : this.accessBuffers) {
+      buffer.drainTo(this.frequencies::increment);
+    }
+  }
+
+  private void purgeCollected() {
+
+    EvictedReference reference;
+    while ((reference = (EvictedReference) this.collected.poll()) != null) {
+      this.evicted.remove(reference.accountId, reference);
+    }
+  }
+
+  private Account readAt(final int index) {
+
+    try {
+      return this.spillFile.readAt(index);
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void reset() {
+
+    try {
+      this.spillFile.reset();
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Ring of account ids which lookups fill without locking, and which is drained by swapping every slot with {@code null}.
+   */
+  private static final class AccessBuffer {
+
+    private final AtomicReferenceArray<String> slots = new AtomicReferenceArray<>(ACCESS_BUFFER_SIZE);
+
+    private final AtomicLong writes = new AtomicLong();
+
+    /**
+     * @return {@code false} if the buffer is full, in which case the access is dropped
+     */
+    boolean add(final String accountId) {
+      return this.slots.compareAndSet((int) this.writes.getAndIncrement() & ACCESS_BUFFER_SIZE - 1, null, accountId);
+    }
+
+    void drainTo(final Consumer<String> consumer) {
+
+      for (int i = 0; i < ACCESS_BUFFER_SIZE; i++) {
+        final String accountId = this.slots.getAndSet(i, null);
+        if (accountId != null) {
+          consumer.accept(accountId);
+        }
+      }
+    }
+  }
+}
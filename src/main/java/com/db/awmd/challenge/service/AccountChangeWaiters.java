@@ -0,0 +1,152 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountListener;
+import com.db.awmd.challenge.repository.AccountListeners;
+import com.db.awmd.challenge.utils.VirtualThreads;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Holds long-polling requests for an account until its version changes, without holding a thread while they wait.
+ *
+ * <p>Listeners are notified before a change becomes visible, so waiters are not completed from the thread changing
+ * the account, but by a pool of {@code accounts.long-poll.notifiers} threads, once they acquired the lock of the account
+ * and the change is visible. Requests which saw no change after {@code accounts.long-poll.max-wait-seconds} at most
+ * are answered with {@code 304 Not Modified}.</p>
+ */
+@Service
+@Slf4j
+public class AccountChangeWaiters implements AccountListener {
+
+  private final AccountListeners accountListeners;
+
+  private final ExecutorService notifiers;
+
+  private final long maxWaitSeconds;
+
+  private final Map<String, Set<DeferredResult<ResponseEntity<Account>>>> waitersByAccountId = new ConcurrentHashMap<>();
+
+  @Autowired
+  public AccountChangeWaiters(
+          final AccountListeners accountListeners,
+          @Value("${accounts.long-poll.notifiers:2}") final int notifiers,
+          @Value("${accounts.long-poll.max-wait-seconds:60}") final long maxWaitSeconds,
+          @Value("${spring.threads.virtual.enabled:false}") final boolean virtualThreads) {
+
+    this.accountListeners = accountListeners;
+    this.notifiers = Executors.newFixedThreadPool(notifiers, VirtualThreads.threadFactory("account-long-poll-notifier-", virtualThreads));
+    this.maxWaitSeconds = maxWaitSeconds;
+  }
+
+  @PostConstruct
+  void start() {
+    this.accountListeners.add(this);
+  }
+
+  @PreDestroy
+  void stop() {
+    this.accountListeners.remove(this);
+    this.notifiers.shutdownNow();
+  }
+
+  /**
+   * @return the response to a request for {@code account} with {@code If-None-Match: entityTag}, sent once its entity tag
+   * differs, or with {@code 304 Not Modified} after {@code waitSeconds}, or {@code accounts.long-poll.max-wait-seconds}
+   * if less
+   */
+  public DeferredResult<ResponseEntity<Account>> awaitChange(final Account account, final String entityTag, final long waitSeconds) {
+
+    final String accountId = account.getAccountId();
+    final long timeoutMillis = TimeUnit.SECONDS.toMillis(Math.max(0L, Math.min(waitSeconds, this.maxWaitSeconds)));
+
+    final DeferredResult<ResponseEntity<Account>> waiter =
+            new DeferredResult<>(timeoutMillis, ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(entityTag).build());
+
+    waiter.onCompletion(() -> this.waitersByAccountId.computeIfPresent(accountId, (id, waiters) -> {
+      waiters.remove(waiter);
+      return waiters.isEmpty() ? null : waiters;
+    }));
+
+    this.waitersByAccountId.compute(accountId, (id, waiters) -> {
+      final Set<DeferredResult<ResponseEntity<Account>>> accountWaiters = waiters == null ? ConcurrentHashMap.newKeySet() : waiters;
+      accountWaiters.add(waiter);
+      return accountWaiters;
+    });
+
+    // The account may have changed before the waiter was registered, or be changing: listeners are notified before
+    // the change is visible, so the tag is only compared once the thread making it released the lock.
+    final Lock lock = account.getLock();
+    lock.lock();
+    lock.unlock();
+
+    if (!account.getEntityTag().equals(entityTag)) {
+      changed(account, false);
+    }
+
+    return waiter;
+  }
+
+  @Override
+  public void accountRemoved(final Account account) {
+    changed(account, true);
+  }
+
+  @Override
+  public void balanceChanged(final Account account, final BigDecimal oldBalance, final BigDecimal newBalance) {
+    changed(account, false);
+  }
+
+  @Override
+  public void heldBalanceChanged(final Account account, final BigDecimal oldHeldBalance, final BigDecimal newHeldBalance) {
+    changed(account, false);
+  }
+
+  private void changed(final Account account, final boolean removed) {
+
+    final Set<DeferredResult<ResponseEntity<Account>>> waiters = this.waitersByAccountId.remove(account.getAccountId());
+
+    if (waiters != null) {
+      try {
+        this.notifiers.execute(() -> complete(account, removed, waiters));
+      } catch (final RejectedExecutionException e) {
+        log.debug("Failed to notify {} waiters of a change to account {}: {}", waiters.size(), account.getAccountId(), e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Answers {@code waiters} with the account, or with an empty body, as for an account which does not exist, if it was removed.
+   */
+  private static void complete(final Account account, final boolean removed, final Set<DeferredResult<ResponseEntity<Account>>> waiters) {
+
+    // The change is visible once the thread making it released the lock.
+    final Lock lock = account.getLock();
+    lock.lock();
+    lock.unlock();
+
+    final ResponseEntity<Account> response =
+            removed ? ResponseEntity.ok().build() : ResponseEntity.ok().eTag(account.getEntityTag()).body(account);
+
+    for (final DeferredResult<ResponseEntity<Account>> waiter : waiters) {
+      waiter.setResult(response);
+    }
+  }
+}
@@ -7,31 +7,60 @@ import com.db.awmd.challenge.exception.MoneyTransferException;
 import com.db.awmd.challenge.exception.OperationException;
 import com.db.awmd.challenge.repository.AccountsRepository;
 import lombok.Getter;
-import lombok.extern.slf4j.Slf4j;
-import org.hibernate.validator.constraints.NotBlank;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.validation.annotation.Validated;
 
-import javax.validation.constraints.DecimalMin;
-import javax.validation.constraints.NotNull;
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Service
-@Slf4j
-@Validated
 public class AccountsService {
 
+  private final Logger log;
+
   @Getter
   private final AccountsRepository accountsRepository;
 
   private final NotificationService notificationService;
 
+  private final BalanceSnapshots balanceSnapshots;
+
+  private final VelocityLimits velocityLimits;
+
+  private final FxRates fxRates;
+
   @Autowired
-  public AccountsService(AccountsRepository accountsRepository, NotificationService notificationService) {
+  public AccountsService(
+    AccountsRepository accountsRepository,
+    NotificationService notificationService,
+    BalanceSnapshots balanceSnapshots,
+    VelocityLimits velocityLimits,
+    FxRates fxRates) {
+
+    this(accountsRepository, notificationService, balanceSnapshots, velocityLimits, fxRates, LoggerFactory.getLogger(AccountsService.class));
+  }
+
+  /**
+   * Creates a service logging to {@code log}, such as the scratch service of the start-up warm-up.
+   */
+  AccountsService(
+    AccountsRepository accountsRepository,
+    NotificationService notificationService,
+    BalanceSnapshots balanceSnapshots,
+    VelocityLimits velocityLimits,
+    FxRates fxRates,
+    Logger log) {
+
+    this.log = log;
     this.accountsRepository = accountsRepository;
     this.notificationService = notificationService;
+    this.balanceSnapshots = balanceSnapshots;
+    this.velocityLimits = velocityLimits;
+    this.fxRates = fxRates;
   }
 
   public void createAccount(Account account) {
@@ -42,6 +71,15 @@ public class AccountsService {
     return this.accountsRepository.getAccount(accountId);
   }
 
+  /**
+   * @return the accounts which exist, looked up as the stream is consumed
+   *
+   * @see AccountsRepository#getAccounts(Collection)
+   */
+  public Stream<Account> getAccounts(Collection<String> accountIds) {
+    return this.accountsRepository.getAccounts(accountIds);
+  }
+
   /**
    * Transfers {@code amount} from {@code sourceAccountId} to {@code destinationAccountId}.
    *
@@ -56,17 +94,29 @@ public class AccountsService {
    *
    * @return summary of outcome of the transfer
    *
-   * @throws MoneyTransferException if an error occurs due to wrong input
+   * @throws MoneyTransferException if an error occurs due to wrong input, including blank account ids and an amount
+   *         which is not positive, as checked by {@link TransferValidation}
    */
   public MoneyTransferResult transferMoney(
-          @NotBlank final String sourceAccountId,
-          @NotBlank final String destinationAccountId,
-          @NotNull @DecimalMin(value = "0", inclusive = false) final BigDecimal amount)
+          final String sourceAccountId,
+          final String destinationAccountId,
+          final BigDecimal amount)
           throws MoneyTransferException {
 
+    final String violation = TransferValidation.violation(sourceAccountId, destinationAccountId, amount);
+    if (violation != null) {
+
+      throw new MoneyTransferException(
+              "Failed to transfer amount '%s' from account '%s' to account '%s'.",
+              new Object[]{amount, sourceAccountId, destinationAccountId},
+              new OperationException(violation)
+      );
+    }
+
     log.info("Transferring amount {} from account {} to account {}", amount, sourceAccountId, destinationAccountId);
 
     final MoneyTransferResult result;
+    final long epoch = this.balanceSnapshots.beginOperation();
 
     try {
       result = transferMoney0(sourceAccountId, destinationAccountId, amount);
@@ -76,11 +126,14 @@ public class AccountsService {
       log.error("The following error occurred while transferring amount {} from account {} to account {}: {}", amount, sourceAccountId, destinationAccountId, t.getMessage());
       log.debug(t.getMessage(), t);
       throw t;
+
+    } finally {
+      this.balanceSnapshots.endOperation(epoch);
     }
 
     log.info("Transferred amount {} from account {} to account {}", amount, sourceAccountId, destinationAccountId);
 
-    notify(sourceAccountId, destinationAccountId, amount);
+    notify(result);
 
     return result;
   }
@@ -91,23 +144,38 @@ public class AccountsService {
           final BigDecimal amount)
           throws MoneyTransferException {
 
+    final Account srcAccount;
+    final Account destAccount;
+    final BigDecimal destAmount;
     final BigDecimal srcBalanceNew;
     final BigDecimal destBalanceNew;
 
 
     try {
 
-      final Account srcAccount = fetchAccount(sourceAccountId);
-      final Account destAccount = fetchAccount(destinationAccountId);
+      srcAccount = fetchAccount(sourceAccountId);
+      destAccount = fetchAccount(destinationAccountId);
 
-      srcBalanceNew = srcAccount.debit(amount);
+      // The amount is in the currency of the source account, and credited in that of the destination account.
+      destAmount = this.fxRates.convert(amount, srcAccount.getCurrency(), destAccount.getCurrency());
+
+      final VelocityLimits.Permit permit = this.velocityLimits.acquire(sourceAccountId, amount, srcAccount.getCurrency());
 
       try {
-        destBalanceNew = creditToDestinationAccount(destAccount, amount);
+        srcBalanceNew = srcAccount.debit(amount);
+
+        try {
+          destBalanceNew = creditToDestinationAccount(destAccount, destAmount);
+
+        } catch (final Throwable t) {
+
+          srcAccount.credit(amount);
+          throw t;
+        }
 
       } catch (final Throwable t) {
 
-        srcAccount.credit(amount);
+        permit.release();
         throw t;
       }
 
@@ -120,7 +188,16 @@ public class AccountsService {
       );
     }
 
-    return new MoneyTransferResult(sourceAccountId, destinationAccountId, amount, srcBalanceNew, destBalanceNew);
+    return new MoneyTransferResult(
+            sourceAccountId,
+            destinationAccountId,
+            amount,
+            srcAccount.getCurrency(),
+            destAmount,
+            destAccount.getCurrency(),
+            srcBalanceNew,
+            destBalanceNew
+    );
   }
 
   /**
@@ -138,12 +215,27 @@ public class AccountsService {
                     .orElseThrow(() -> new AccountNotFoundException(sourceAccountId));
   }
 
-  private void notify(final String srcAccountId, final String destAccountId, final BigDecimal amount) {
-
-    final Account srcAccount = getAccount(srcAccountId);
-    final Account destAccount = getAccount(destAccountId);
-
-    this.notificationService.notifyAboutTransfer(srcAccount, String.format("Amount %s was transferred from your account to account %s.", amount, destAccount.getAccountId()));
-    this.notificationService.notifyAboutTransfer(destAccount, String.format("Amount %s was transferred from account %s to your account.", amount, srcAccount.getAccountId()));
+  /**
+   * Tells each account holder the amount of the transfer in the currency of their account.
+   */
+  private void notify(final MoneyTransferResult result) {
+
+    final Account srcAccount = getAccount(result.getSourceAccountId());
+    final Account destAccount = getAccount(result.getDestinationAccountId());
+
+    this.notificationService.notifyAboutTransfer(
+            srcAccount,
+            String.format(
+                    "Amount %s %s was transferred from your account to account %s.",
+                    result.getAmount(), result.getCurrency(), destAccount.getAccountId()
+            )
+    );
+    this.notificationService.notifyAboutTransfer(
+            destAccount,
+            String.format(
+                    "Amount %s %s was transferred from account %s to your account.",
+                    result.getDestinationAmount(), result.getDestinationCurrency(), srcAccount.getAccountId()
+            )
+    );
   }
 }
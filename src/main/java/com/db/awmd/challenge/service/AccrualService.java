@@ -0,0 +1,446 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccrualReport;
+import com.db.awmd.challenge.exception.OperationException;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Applies interest and fees to all accounts at once, such as at the end of every month.
+ *
+ * <p>A run credits every account with its balance times the interest rate, rounded half-even to the minor unit of its
+ * currency, less the fee, converted to its currency. A negative result is debited, and fails if the available balance
+ * of the account is not enough: like transfers, accruals run concurrently with the other operations and follow the same
+ * balance rules.</p>
+ *
+ * <p>Accounts are split by the hash of their ids into {@code accounts.accrual.partitions} partitions,
+ * which are accrued in parallel by a fork/join pool: every task scans the repository once for a range of partitions,
+ * so that no list of account ids is built. Every partition completed is recorded in a checkpoint file of
+ * {@code accounts.accrual.checkpoint-directory}, named after the run, so that a failed or interrupted run resumes with
+ * the partitions left when started again with the same id. Every account also records the last run applied to it,
+ * so that a run is never applied twice to the same account, even in the partition in progress when the run stopped.</p>
+ *
+ * <p>A single marker per account is enough because runs never interleave: only one run is in progress at a time,
+ * and no other run starts while the checkpoint of a run is incomplete, until that run is resumed to the end or its
+ * checkpoint removed.</p>
+ */
+@Service
+@Slf4j
+public class AccrualService {
+
+  private static final Pattern RUN_ID = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+  private static final Pattern CURRENCY = Pattern.compile("[A-Z]{3}");
+
+  private static final Pattern PARTITIONS = Pattern.compile("partitions=(\\d+)");
+
+  private static final String CHECKPOINT_PREFIX = "accrual-";
+
+  private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+
+  /**
+   * Partitions completed by a run, saved to a file. The first line holds the parameters of the run,
+   * and every following line the index of a completed partition.
+   */
+  private static final class Checkpoint implements Closeable {
+
+    private final FileChannel channel;
+
+    private final BitSet completed = new BitSet();
+
+    private Checkpoint(final Path file, final String parameters) throws IOException {
+
+      final boolean resumed = Files.exists(file);
+
+      if (resumed) {
+        final List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+
+        if (lines.isEmpty() || !lines.get(0).equals(parameters)) {
+          throw new IllegalArgumentException(String.format("Accrual run was started with other parameters: %s.", lines.isEmpty() ? "none" : lines.get(0)));
+        }
+
+        this.completed.or(completedPartitions(file, lines));
+      }
+
+      this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+      if (!resumed) {
+        append(parameters);
+      }
+    }
+
+    boolean isCompleted(final int partition) {
+      return this.completed.get(partition);
+    }
+
+    int getCompletedCount() {
+      return this.completed.cardinality();
+    }
+
+    /**
+     * Tells whether the run of the checkpoint {@code file} stopped before all its partitions were completed.
+     */
+    static boolean isIncomplete(final Path file) throws IOException {
+
+      final List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+      if (lines.isEmpty()) {
+        return true;
+      }
+
+      final Matcher partitions = PARTITIONS.matcher(lines.get(0));
+      return !partitions.find() || completedPartitions(file, lines).cardinality() < Integer.parseInt(partitions.group(1));
+    }
+
+    private static BitSet completedPartitions(final Path file, final List<String> lines) {
+
+      final BitSet completed = new BitSet();
+
+      // A partition whose line was partly written when the run stopped is accrued again.
+      for (final String line : lines.subList(1, lines.size())) {
+        try {
+          completed.set(Integer.parseInt(line));
+        } catch (final NumberFormatException e) {
+          log.warn("Ignored line '{}' of accrual checkpoint {}", line, file);
+        }
+      }
+
+      return completed;
+    }
+
+    synchronized void complete(final int partition) throws IOException {
+      append(Integer.toString(partition));
+    }
+
+    private void append(final String line) throws IOException {
+
+      final ByteBuffer bytes = StandardCharsets.UTF_8.encode(line + '\n');
+      while (bytes.hasRemaining()) {
+        this.channel.write(bytes);
+      }
+      this.channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+      this.channel.close();
+    }
+  }
+
+  /**
+   * State of a run in progress, shared by the tasks accruing its partitions.
+   */
+  private final class Run {
+
+    final String id;
+
+    final BigDecimal interestRate;
+
+    final BigDecimal fee;
+
+    final String feeCurrency;
+
+    final Checkpoint checkpoint;
+
+    /**
+     * Most partitions accrued by a single scan of the repository, so that there are about as many scans as threads.
+     */
+    final int partitionsPerScan;
+
+    final LongAdder accrued = new LongAdder();
+
+    final LongAdder skipped = new LongAdder();
+
+    final LongAdder failed = new LongAdder();
+
+    Run(final String id, final BigDecimal interestRate, final BigDecimal fee, final String feeCurrency, final Checkpoint checkpoint) {
+
+      this.id = id;
+      this.interestRate = interestRate;
+      this.fee = fee;
+      this.feeCurrency = feeCurrency;
+      this.checkpoint = checkpoint;
+
+      final int parallelism = AccrualService.this.pool.getParallelism();
+      this.partitionsPerScan = Math.max(1, (AccrualService.this.partitionCount + parallelism - 1) / parallelism);
+    }
+
+    /**
+     * Accrues the accounts of the partitions {@code [from, to)} not completed yet, in a single scan of the repository.
+     * Accounts created meanwhile may or may not be accrued.
+     */
+    void accruePartitions(final int from, final int to) {
+
+      final BitSet pending = new BitSet();
+      for (int p = from; p < to; p++) {
+        if (!this.checkpoint.isCompleted(p)) {
+          pending.set(p);
+        }
+      }
+
+      if (pending.isEmpty()) {
+        return;
+      }
+
+      final AccountsRepository accountsRepository = AccrualService.this.accountsRepository;
+
+      accountsRepository.getAllAccounts().forEach(listed -> {
+        final String accountId = listed.getAccountId();
+        if (pending.get(partitionOf(accountId))) {
+          // Listed accounts may be copies, such as the accounts spilled to disk by the tiered repository.
+          final Account account = accountsRepository.getAccount(accountId);
+          if (account != null) {
+            accrue(account);
+          }
+        }
+      });
+
+      try {
+        for (int p = pending.nextSetBit(0); p >= 0; p = pending.nextSetBit(p + 1)) {
+          this.checkpoint.complete(p);
+        }
+      } catch (final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+
+      log.debug("Accrual run {} completed partitions {} to {}", this.id, from, to - 1);
+    }
+
+    private void accrue(final Account account) {
+
+      final String currency = account.getCurrency();
+
+      final BigDecimal fee;
+      try {
+        fee = this.fee.signum() == 0 ? BigDecimal.ZERO : AccrualService.this.fxRates.convert(this.fee, this.feeCurrency, currency);
+
+      } catch (final OperationException e) {
+        log.debug("Accrual run {} skipped account {}: {}", this.id, account.getAccountId(), e.getMessage());
+        this.failed.increment();
+        return;
+      }
+
+      final int scale = FxRates.minorUnitDigits(currency);
+
+      try {
+        if (!account.accrue(this.id, balance -> balance.multiply(this.interestRate).setScale(scale, RoundingMode.HALF_EVEN).subtract(fee))) {
+          this.skipped.increment();
+          return;
+        }
+        this.accrued.increment();
+
+      } catch (final OperationException e) {
+        log.debug("Accrual run {} failed to debit account {}: {}", this.id, account.getAccountId(), e.getMessage());
+        this.failed.increment();
+      }
+    }
+  }
+
+  /**
+   * Accrues the partitions {@code [from, to)}, splitting them in halves down to the partitions of a single scan.
+   */
+  private static final class PartitionsTask extends RecursiveAction {
+
+    private final Run run;
+
+    private final int from;
+
+    private final int to;
+
+    PartitionsTask(final Run run, final int from, final int to) {
+      this.run = run;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+
+      if (this.to - this.from <= this.run.partitionsPerScan) {
+        this.run.accruePartitions(this.from, this.to);
+        return;
+      }
+
+      final int middle = (this.from + this.to) >>> 1;
+      invokeAll(new PartitionsTask(this.run, this.from, middle), new PartitionsTask(this.run, middle, this.to));
+    }
+  }
+
+  private final AccountsRepository accountsRepository;
+
+  private final FxRates fxRates;
+
+  private final int partitionCount;
+
+  private final Path checkpointDirectory;
+
+  private final ForkJoinPool pool;
+
+  private final Lock runLock = new ReentrantLock();
+
+  @Autowired
+  public AccrualService(
+          final AccountsRepository accountsRepository,
+          final FxRates fxRates,
+          @Value("${accounts.accrual.partitions:64}") final int partitionCount,
+          @Value("${accounts.accrual.parallelism:0}") final int parallelism,
+          @Value("${accounts.accrual.checkpoint-directory:${java.io.tmpdir}}") final String checkpointDirectory) {
+
+    if (partitionCount < 1) {
+      throw new IllegalArgumentException("accounts.accrual.partitions must be positive, not " + partitionCount);
+    }
+
+    this.accountsRepository = accountsRepository;
+    this.fxRates = fxRates;
+    this.partitionCount = partitionCount;
+    this.checkpointDirectory = Paths.get(checkpointDirectory);
+    this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+  }
+
+  @PreDestroy
+  void stop() throws InterruptedException {
+
+    this.pool.shutdownNow();
+    this.pool.awaitTermination(1, TimeUnit.MINUTES);
+  }
+
+  /**
+   * Applies the run {@code runId} to all accounts, or to the accounts left by a previous attempt of the run,
+   * which must have had the same parameters.
+   *
+   * @param interestRate rate of the balance credited, such as {@code 0.001} for 0.1%
+   * @param fee          amount debited, in {@code feeCurrency}
+   *
+   * @throws IllegalArgumentException if a parameter is invalid, or differs from a previous attempt
+   * @throws IllegalStateException    if a run is already in progress, or another run has not completed
+   */
+  public AccrualReport accrue(final String runId, final BigDecimal interestRate, final BigDecimal fee, final String feeCurrency) throws IOException {
+
+    if (runId == null || !RUN_ID.matcher(runId).matches()) {
+      throw new IllegalArgumentException("Run id must be made of 1 to 64 letters, digits, dots, dashes and underscores.");
+    }
+
+    if (interestRate.signum() < 0 || fee.signum() < 0) {
+      throw new IllegalArgumentException("Interest rate and fee must not be negative.");
+    }
+
+    if (feeCurrency == null || !CURRENCY.matcher(feeCurrency).matches()) {
+      throw new IllegalArgumentException("Fee currency must be a three-letter ISO 4217 code.");
+    }
+
+    if (!this.runLock.tryLock()) {
+      throw new IllegalStateException("An accrual run is already in progress.");
+    }
+
+    try {
+      Files.createDirectories(this.checkpointDirectory);
+
+      final Path file = this.checkpointDirectory.resolve(CHECKPOINT_PREFIX + runId + CHECKPOINT_SUFFIX);
+
+      try (final DirectoryStream<Path> checkpoints = Files.newDirectoryStream(this.checkpointDirectory, CHECKPOINT_PREFIX + '*' + CHECKPOINT_SUFFIX)) {
+        for (final Path other : checkpoints) {
+          if (!other.equals(file) && Checkpoint.isIncomplete(other)) {
+            final String name = other.getFileName().toString();
+            throw new IllegalStateException(String.format(
+                    "Accrual run %s has not completed: resume it, or remove its checkpoint, before starting another run.",
+                    name.substring(CHECKPOINT_PREFIX.length(), name.length() - CHECKPOINT_SUFFIX.length())
+            ));
+          }
+        }
+      }
+
+      final String parameters = String.format(
+              "interestRate=%s fee=%s feeCurrency=%s partitions=%d",
+              interestRate.toPlainString(),
+              fee.toPlainString(),
+              feeCurrency,
+              this.partitionCount
+      );
+
+      try (final Checkpoint checkpoint = new Checkpoint(file, parameters)) {
+        return accrue(new Run(runId, interestRate, fee, feeCurrency, checkpoint));
+      }
+
+    } finally {
+      this.runLock.unlock();
+    }
+  }
+
+  private AccrualReport accrue(final Run run) throws IOException {
+
+    final int resumed = run.checkpoint.getCompletedCount();
+
+    log.info("Accrual run {} started, {} of {} partitions already completed", run.id, resumed, this.partitionCount);
+
+    final long started = System.nanoTime();
+    try {
+      this.pool.invoke(new PartitionsTask(run, 0, this.partitionCount));
+
+    } catch (final UncheckedIOException e) {
+      throw e.getCause();
+    }
+    final long elapsedNanos = System.nanoTime() - started;
+
+    final long processed = run.accrued.sum() + run.skipped.sum() + run.failed.sum();
+    final double accountsPerSecond = elapsedNanos == 0 ? 0.0 : processed * 1e9 / elapsedNanos;
+
+    final AccrualReport report =
+            new AccrualReport(
+                    run.id,
+                    run.interestRate,
+                    run.fee,
+                    run.feeCurrency,
+                    this.partitionCount,
+                    resumed,
+                    run.accrued.sum(),
+                    run.skipped.sum(),
+                    run.failed.sum(),
+                    TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                    accountsPerSecond
+            );
+
+    log.info(
+            "Accrual run {} applied to {} accounts in {} ms, {} accounts per second, {} already accrued, {} failed",
+            run.id,
+            report.getAccountsAccrued(),
+            report.getElapsedMillis(),
+            Math.round(accountsPerSecond),
+            report.getAccountsSkipped(),
+            report.getAccountsFailed()
+    );
+
+    return report;
+  }
+
+  private int partitionOf(final String accountId) {
+    return Math.floorMod(accountId.hashCode(), this.partitionCount);
+  }
+}
@@ -0,0 +1,44 @@
+package com.db.awmd.challenge.service;
+
+import lombok.Getter;
+
+import java.util.Locale;
+
+/**
+ * Formats of balance exports.
+ */
+@Getter
+public enum BalanceExportFormat {
+
+  /**
+   * One JSON object per line, with the balances as strings in plain notation.
+   */
+  NDJSON("application/x-ndjson", "ndjson"),
+
+  /**
+   * Comma-separated values with a header line, as specified by RFC 4180.
+   */
+  CSV("text/csv", "csv");
+
+  private final String mediaType;
+
+  private final String extension;
+
+  BalanceExportFormat(final String mediaType, final String extension) {
+    this.mediaType = mediaType;
+    this.extension = extension;
+  }
+
+  /**
+   * @throws IllegalArgumentException if {@code name} is not the name of a format, in any case
+   */
+  public static BalanceExportFormat parse(final String name) {
+
+    try {
+      return valueOf(name.toUpperCase(Locale.ROOT));
+
+    } catch (final IllegalArgumentException e) {
+      throw new IllegalArgumentException(String.format("Export format '%s' is not one of 'ndjson' and 'csv'.", name), e);
+    }
+  }
+}
@@ -0,0 +1,186 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.BalanceExport;
+import com.db.awmd.challenge.domain.ExportedBalance;
+import com.db.awmd.challenge.utils.BigDecimalJsonSerializer;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+
+/**
+ * Exports point-in-time snapshots of all balances, taken by {@link BalanceSnapshots}, as NDJSON or CSV.
+ *
+ * <p>Balances are written as they are read from the snapshot, so that exports are never buffered as a whole.</p>
+ */
+@Service
+@Slf4j
+public class BalanceExportService {
+
+  private static final DateTimeFormatter FILE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+  private final BalanceSnapshots balanceSnapshots;
+
+  private final JsonFactory jsonFactory;
+
+  private final Path directory;
+
+  @Autowired
+  public BalanceExportService(
+          final BalanceSnapshots balanceSnapshots,
+          final ObjectMapper objectMapper,
+          @Value("${accounts.export.directory:${java.io.tmpdir}}") final String directory) {
+
+    this.balanceSnapshots = balanceSnapshots;
+    this.jsonFactory = objectMapper.getFactory();
+    this.directory = Paths.get(directory);
+  }
+
+  /**
+   * Writes a snapshot of all balances to {@code out}, which is flushed but not closed.
+   *
+   * @return the number of accounts written
+   */
+  public long export(final BalanceExportFormat format, final OutputStream out) throws IOException {
+
+    try (final BalanceSnapshots.Snapshot snapshot = this.balanceSnapshots.open()) {
+
+      log.info("Exporting balances of epoch {} as {}", snapshot.getEpoch(), format);
+
+      final long accounts = write(snapshot, format, out);
+
+      log.info("Exported {} balances of epoch {}, {} accounts changed meanwhile", accounts, snapshot.getEpoch(), snapshot.getChangedAccounts());
+
+      return accounts;
+    }
+  }
+
+  /**
+   * Writes a snapshot of all balances to a new file of the {@code accounts.export.directory} directory.
+   * The file only appears once complete.
+   */
+  public BalanceExport exportToFile(final BalanceExportFormat format) throws IOException {
+
+    Files.createDirectories(this.directory);
+
+    try (final BalanceSnapshots.Snapshot snapshot = this.balanceSnapshots.open()) {
+
+      final String name = String.format("balances-%s-%s.%s", FILE_TIME_FORMAT.format(snapshot.getTime()), snapshot.getEpoch(), format.getExtension());
+      final Path file = this.directory.resolve(name);
+      final Path partial = Files.createTempFile(this.directory, name, ".part");
+
+      final long accounts;
+      try {
+        try (final OutputStream out = new BufferedOutputStream(Files.newOutputStream(partial))) {
+          accounts = write(snapshot, format, out);
+        }
+        Files.move(partial, file, StandardCopyOption.ATOMIC_MOVE);
+
+      } catch (final IOException | RuntimeException e) {
+        Files.deleteIfExists(partial);
+        throw e;
+      }
+
+      log.info("Exported {} balances of epoch {} to {}, {} accounts changed meanwhile", accounts, snapshot.getEpoch(), file, snapshot.getChangedAccounts());
+
+      return new BalanceExport(file.toString(), format.getExtension(), snapshot.getEpoch(), snapshot.getTime(), accounts);
+    }
+  }
+
+  private long write(final BalanceSnapshots.Snapshot snapshot, final BalanceExportFormat format, final OutputStream out) throws IOException {
+
+    final Iterator<ExportedBalance> balances = snapshot.getBalances().iterator();
+
+    switch (format) {
+      case NDJSON:
+        return writeNdjson(balances, out);
+      case CSV:
+        return writeCsv(balances, out);
+      default:
+        throw new IllegalArgumentException("Unsupported export format " + format);
+    }
+  }
+
+  private long writeNdjson(final Iterator<ExportedBalance> balances, final OutputStream out) throws IOException {
+
+    long accounts = 0;
+
+    try (final JsonGenerator generator = this.jsonFactory.createGenerator(out)) {
+
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      generator.setRootValueSeparator(null);
+
+      while (balances.hasNext()) {
+        final ExportedBalance balance = balances.next();
+
+        generator.writeStartObject();
+        generator.writeStringField("accountId", balance.getAccountId());
+        generator.writeFieldName("balance");
+        BigDecimalJsonSerializer.writePlainString(balance.getBalance(), generator);
+        generator.writeFieldName("heldBalance");
+        BigDecimalJsonSerializer.writePlainString(balance.getHeldBalance(), generator);
+        generator.writeStringField("currency", balance.getCurrency());
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+
+        accounts++;
+      }
+    }
+
+    return accounts;
+  }
+
+  private static long writeCsv(final Iterator<ExportedBalance> balances, final OutputStream out) throws IOException {
+
+    long accounts = 0;
+
+    final Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    writer.write("accountId,balance,heldBalance,currency\r\n");
+
+    while (balances.hasNext()) {
+      final ExportedBalance balance = balances.next();
+
+      writer.write(csvField(balance.getAccountId()));
+      writer.write(',');
+      writer.write(BigDecimalJsonSerializer.toPlainString(balance.getBalance()));
+      writer.write(',');
+      writer.write(BigDecimalJsonSerializer.toPlainString(balance.getHeldBalance()));
+      writer.write(',');
+      writer.write(balance.getCurrency());
+      writer.write("\r\n");
+
+      accounts++;
+    }
+
+    writer.flush();
+
+    return accounts;
+  }
+
+  private static String csvField(final String value) {
+
+    if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\r') < 0 && value.indexOf('\n') < 0) {
+      return value;
+    }
+
+    return '"' + value.replace("\"", "\"\"") + '"';
+  }
+}
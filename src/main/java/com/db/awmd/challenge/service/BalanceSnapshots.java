@@ -0,0 +1,271 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountListener;
+import com.db.awmd.challenge.domain.ExportedBalance;
+import com.db.awmd.challenge.repository.AccountListeners;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.Closeable;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Takes consistent point-in-time snapshots of all balances, without ever blocking balance updates.
+ *
+ * <p>Operations spanning several accounts, such as transfers, run between {@link #beginOperation()} and
+ * {@link #endOperation(long)}, and are labelled with the current epoch. Opening a snapshot starts a new epoch
+ * and waits for the operations of the previous epoch to complete: the snapshot includes every operation of
+ * the previous epochs and none of the later ones.</p>
+ *
+ * <p>While a snapshot is open, the first change of an account by a later operation saves the balances of the account
+ * before the change, and the snapshot reads these saved balances instead of the current ones. Memory overhead is
+ * therefore proportional to the number of accounts changed while the snapshot is open.</p>
+ */
+@Service
+public class BalanceSnapshots implements AccountListener {
+
+  /**
+   * Balances of an account when the snapshot was taken, or {@code null} if the account was created later.
+   * Changed under the lock of the account.
+   */
+  private static final class Image {
+
+    volatile BigDecimal balance;
+
+    volatile BigDecimal heldBalance;
+
+    Image(final BigDecimal balance, final BigDecimal heldBalance) {
+      this.balance = balance;
+      this.heldBalance = heldBalance;
+    }
+  }
+
+  /**
+   * Epoch of the operation running on the current thread, if any.
+   */
+  private static final ThreadLocal<Long> OPERATION_EPOCH = new ThreadLocal<>();
+
+  /**
+   * Snapshot of all balances. Must be closed once read.
+   */
+  public final class Snapshot implements Closeable {
+
+    @Getter
+    private final long epoch;
+
+    @Getter
+    private final Instant time = Instant.now();
+
+    private final Map<String, Image> images = new ConcurrentHashMap<>();
+
+    private Snapshot(final long epoch) {
+      this.epoch = epoch;
+    }
+
+    /**
+     * @return the balances of all accounts in the snapshot, read as the stream is consumed
+     */
+    public Stream<ExportedBalance> getBalances() {
+      return BalanceSnapshots.this.accountsRepository.getAllAccounts().map(this::balanceOf).filter(Objects::nonNull);
+    }
+
+    /**
+     * @return the number of accounts changed since the snapshot was taken
+     */
+    public int getChangedAccounts() {
+      return this.images.size();
+    }
+
+    @Override
+    public void close() {
+      BalanceSnapshots.this.snapshots.remove(this);
+    }
+
+    /**
+     * Reads the current balances first: if they changed since the snapshot was taken,
+     * the balances before the change were saved before the change became visible.
+     */
+    private ExportedBalance balanceOf(final Account account) {
+
+      final String accountId = account.getAccountId();
+      final BigDecimal balance = account.getBalance();
+      final BigDecimal heldBalance = account.getHeldBalance();
+
+      final Image image = this.images.get(accountId);
+      if (image == null) {
+        return new ExportedBalance(accountId, balance, heldBalance, account.getCurrency());
+      }
+
+      final BigDecimal savedBalance = image.balance;
+      return savedBalance == null ? null : new ExportedBalance(accountId, savedBalance, image.heldBalance, account.getCurrency());
+    }
+
+    private void balanceChanging(final Account account, final long operationEpoch, final BigDecimal balanceDelta, final BigDecimal heldBalanceDelta) {
+
+      final String accountId = account.getAccountId();
+
+      if (operationEpoch >= this.epoch) {
+        // The account still has its balances before the change.
+        this.images.computeIfAbsent(accountId, id -> new Image(account.getBalance(), account.getHeldBalance()));
+        return;
+      }
+
+      // An operation of a previous epoch completes after a later one changed the account: it belongs to the snapshot.
+      final Image image = this.images.get(accountId);
+      if (image != null && image.balance != null) {
+        image.balance = image.balance.add(balanceDelta);
+        image.heldBalance = image.heldBalance.add(heldBalanceDelta);
+      }
+    }
+  }
+
+  private final AccountsRepository accountsRepository;
+
+  private final AccountListeners accountListeners;
+
+  private final AtomicLong epoch = new AtomicLong();
+
+  private final LongAdder[] operations = {new LongAdder(), new LongAdder()};
+
+  private final List<Snapshot> snapshots = new CopyOnWriteArrayList<>();
+
+  /**
+   * Serializes the opening of snapshots. Not a monitor, which would pin the carrier of a virtual thread while it waits.
+   */
+  private final Lock openLock = new ReentrantLock();
+
+  @Autowired
+  public BalanceSnapshots(final AccountsRepository accountsRepository, final AccountListeners accountListeners) {
+    this.accountsRepository = accountsRepository;
+    this.accountListeners = accountListeners;
+  }
+
+  @PostConstruct
+  void start() {
+    this.accountListeners.add(this);
+  }
+
+  @PreDestroy
+  void stop() {
+    this.accountListeners.remove(this);
+  }
+
+  /**
+   * Labels the operation about to run on the current thread with the current epoch.
+   * Operations nested in another one belong to the outer operation.
+   *
+   * @return the epoch of the operation, to be passed to {@link #endOperation(long)}, or {@code -1} if nested
+   */
+  public long beginOperation() {
+
+    if (OPERATION_EPOCH.get() != null) {
+      return -1;
+    }
+
+    while (true) {
+      final long current = this.epoch.get();
+      this.operations[(int) (current & 1)].increment();
+
+      if (this.epoch.get() == current) {
+        OPERATION_EPOCH.set(current);
+        return current;
+      }
+
+      this.operations[(int) (current & 1)].decrement();
+    }
+  }
+
+  public void endOperation(final long operationEpoch) {
+
+    if (operationEpoch >= 0) {
+      OPERATION_EPOCH.remove();
+      this.operations[(int) (operationEpoch & 1)].decrement();
+    }
+  }
+
+  /**
+   * Takes a snapshot of all balances, waiting for the operations in progress to complete.
+   */
+  public Snapshot open() {
+
+    this.openLock.lock();
+    try {
+      final Snapshot snapshot = new Snapshot(this.epoch.get() + 1);
+      this.snapshots.add(snapshot);
+
+      final long previous = this.epoch.getAndIncrement();
+      final LongAdder pending = this.operations[(int) (previous & 1)];
+      while (pending.sum() > 0) {
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+      }
+
+      return snapshot;
+
+    } finally {
+      this.openLock.unlock();
+    }
+  }
+
+  long currentEpoch() {
+    return this.epoch.get();
+  }
+
+  @Override
+  public void accountAdded(final Account account) {
+
+    for (final Snapshot snapshot : this.snapshots) {
+      if (this.epoch.get() >= snapshot.epoch) {
+        snapshot.images.putIfAbsent(account.getAccountId(), new Image(null, null));
+      }
+    }
+  }
+
+  @Override
+  public void balanceChanged(final Account account, final BigDecimal oldBalance, final BigDecimal newBalance) {
+
+    if (!this.snapshots.isEmpty()) {
+      final long operationEpoch = operationEpoch();
+      for (final Snapshot snapshot : this.snapshots) {
+        snapshot.balanceChanging(account, operationEpoch, newBalance.subtract(oldBalance), BigDecimal.ZERO);
+      }
+    }
+  }
+
+  @Override
+  public void heldBalanceChanged(final Account account, final BigDecimal oldHeldBalance, final BigDecimal newHeldBalance) {
+
+    if (!this.snapshots.isEmpty()) {
+      final long operationEpoch = operationEpoch();
+      for (final Snapshot snapshot : this.snapshots) {
+        snapshot.balanceChanging(account, operationEpoch, BigDecimal.ZERO, newHeldBalance.subtract(oldHeldBalance));
+      }
+    }
+  }
+
+  /**
+   * Changes outside of an operation change a single account, and belong to the current epoch.
+   */
+  private long operationEpoch() {
+
+    final Long operationEpoch = OPERATION_EPOCH.get();
+    return operationEpoch == null ? this.epoch.get() : operationEpoch;
+  }
+}
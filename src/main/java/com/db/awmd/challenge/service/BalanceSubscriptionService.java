@@ -0,0 +1,185 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountListener;
+import com.db.awmd.challenge.domain.AccountBalance;
+import com.db.awmd.challenge.repository.AccountListeners;
+import com.db.awmd.challenge.utils.VirtualThreads;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Pushes balance changes to clients subscribed to a set of accounts, as Server-Sent Events.
+ *
+ * <p>Changes are never sent from the thread changing the balance. They are queued per subscription,
+ * keeping only the latest change of every account, and sent by a pool of {@code balances.subscriptions.senders} threads.
+ * A client which cannot keep up therefore receives fewer, more recent changes, and never slows transfers down.</p>
+ */
+@Service
+@Slf4j
+public class BalanceSubscriptionService implements AccountListener {
+
+  private final AccountListeners accountListeners;
+
+  private final ExecutorService senders;
+
+  private final Supplier<SseEmitter> emitters;
+
+  private final Map<String, Set<Subscription>> subscriptionsByAccountId = new ConcurrentHashMap<>();
+
+  @Autowired
+  public BalanceSubscriptionService(
+          final AccountListeners accountListeners,
+          @Value("${balances.subscriptions.senders:4}") final int senders,
+          @Value("${balances.subscriptions.timeout-millis:1800000}") final long timeoutMillis,
+          @Value("${spring.threads.virtual.enabled:false}") final boolean virtualThreads) {
+
+    this(accountListeners, senders, () -> new SseEmitter(timeoutMillis), virtualThreads);
+  }
+
+  BalanceSubscriptionService(
+          final AccountListeners accountListeners,
+          final int senders,
+          final Supplier<SseEmitter> emitters,
+          final boolean virtualThreads) {
+
+    this.accountListeners = accountListeners;
+    this.senders = Executors.newFixedThreadPool(senders, VirtualThreads.threadFactory("balance-subscription-sender-", virtualThreads));
+    this.emitters = emitters;
+  }
+
+  @PostConstruct
+  void start() {
+    this.accountListeners.add(this);
+  }
+
+  @PreDestroy
+  void stop() {
+    this.accountListeners.remove(this);
+    this.senders.shutdownNow();
+  }
+
+  /**
+   * Subscribes to the balance changes of accounts {@code accountIds}.
+   * The subscription ends when the client disconnects, or after {@code balances.subscriptions.timeout-millis}.
+   */
+  public SseEmitter subscribe(final Collection<String> accountIds) {
+
+    final Subscription subscription = new Subscription(accountIds);
+
+    subscription.emitter.onCompletion(() -> unsubscribe(subscription));
+    subscription.emitter.onTimeout(() -> unsubscribe(subscription));
+
+    for (final String accountId : subscription.accountIds) {
+      this.subscriptionsByAccountId.computeIfAbsent(accountId, id -> ConcurrentHashMap.newKeySet()).add(subscription);
+    }
+
+    log.info("Subscribed to balance changes of accounts {}", subscription.accountIds);
+
+    return subscription.emitter;
+  }
+
+  @Override
+  public void balanceChanged(final Account account, final BigDecimal oldBalance, final BigDecimal newBalance) {
+
+    final Set<Subscription> subscriptions = this.subscriptionsByAccountId.get(account.getAccountId());
+
+    if (subscriptions != null) {
+
+      final AccountBalance change = new AccountBalance(account.getAccountId(), newBalance);
+
+      for (final Subscription subscription : subscriptions) {
+        subscription.offer(change);
+      }
+    }
+  }
+
+  int subscribedAccounts() {
+    return this.subscriptionsByAccountId.size();
+  }
+
+  private void unsubscribe(final Subscription subscription) {
+
+    for (final String accountId : subscription.accountIds) {
+      this.subscriptionsByAccountId.computeIfPresent(accountId, (id, subscriptions) -> {
+        subscriptions.remove(subscription);
+        return subscriptions.isEmpty() ? null : subscriptions;
+      });
+    }
+  }
+
+  private final class Subscription {
+
+    private final Set<String> accountIds;
+
+    private final SseEmitter emitter = BalanceSubscriptionService.this.emitters.get();
+
+    /**
+     * Latest change of every account which has not been sent yet.
+     */
+    private final Map<String, AccountBalance> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Whether {@link #send()} is scheduled or running.
+     */
+    private final AtomicBoolean sending = new AtomicBoolean();
+
+    Subscription(final Collection<String> accountIds) {
+      this.accountIds = ConcurrentHashMap.newKeySet();
+      this.accountIds.addAll(accountIds);
+    }
+
+    void offer(final AccountBalance change) {
+
+      this.pending.put(change.getAccountId(), change);
+
+      if (this.sending.compareAndSet(false, true)) {
+        BalanceSubscriptionService.this.senders.execute(this::send);
+      }
+    }
+
+    private void send() {
+
+      do {
+        try {
+          for (final String accountId : this.pending.keySet()) {
+
+            final AccountBalance change = this.pending.remove(accountId);
+
+            if (change != null) {
+              this.emitter.send(SseEmitter.event().name("balance").data(change, MediaType.APPLICATION_JSON));
+            }
+          }
+
+        } catch (final IOException | RuntimeException e) {
+          log.debug("Failed to send balance change to subscriber of accounts {}: {}", this.accountIds, e.getMessage());
+          this.pending.clear();
+          unsubscribe(this);
+          this.emitter.completeWithError(e);
+          return;
+
+        } finally {
+          this.sending.set(false);
+        }
+
+      } while (!this.pending.isEmpty() && this.sending.compareAndSet(false, true));
+    }
+  }
+}
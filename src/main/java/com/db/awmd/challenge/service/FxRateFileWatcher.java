@@ -0,0 +1,136 @@
+package com.db.awmd.challenge.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Publishes the exchange rates of the properties file {@code fx.rates.file} to {@link FxRates}, at start-up
+ * and every time the file changes.
+ *
+ * <p>The file holds the base currency as {@code base}, and the amount of every other currency worth one unit of it:</p>
+ * <pre>
+ * base=EUR
+ * USD=1.0843
+ * GBP=0.8571
+ * </pre>
+ *
+ * <p>A file which cannot be read or parsed fails the start-up, but later only logs a warning: the previous rates are kept.
+ * Files should be replaced by moving a complete file over them, so that a partly written file is never read.</p>
+ */
+@Component
+@ConditionalOnProperty(name = "fx.rates.file")
+@Slf4j
+public class FxRateFileWatcher {
+
+  private final FxRates fxRates;
+
+  private final Path file;
+
+  private WatchService watchService;
+
+  private Thread watcher;
+
+  @Autowired
+  public FxRateFileWatcher(final FxRates fxRates, @Value("${fx.rates.file}") final String file) {
+    this.fxRates = fxRates;
+    this.file = Paths.get(file).toAbsolutePath();
+  }
+
+  @PostConstruct
+  void start() throws IOException {
+
+    load();
+
+    this.watchService = FileSystems.getDefault().newWatchService();
+    this.file.getParent().register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+    this.watcher = new CustomizableThreadFactory("fx-rates-watcher-").newThread(this::watch);
+    this.watcher.setDaemon(true);
+    this.watcher.start();
+
+    log.info("Watching exchange rates file {}", this.file);
+  }
+
+  @PreDestroy
+  void stop() throws IOException, InterruptedException {
+
+    this.watchService.close();
+    this.watcher.join();
+  }
+
+  private void watch() {
+
+    try {
+      for (; ; ) {
+
+        final WatchKey key = this.watchService.take();
+
+        boolean changed = false;
+        for (final WatchEvent<?> event : key.pollEvents()) {
+          changed |= event.kind() == StandardWatchEventKinds.OVERFLOW || this.file.getFileName().equals(event.context());
+        }
+
+        if (changed) {
+          try {
+            load();
+          } catch (final IOException | RuntimeException e) {
+            log.warn("Kept the previous exchange rates, failed to load {}", this.file, e);
+          }
+        }
+
+        if (!key.reset()) {
+          log.warn("Stopped watching exchange rates file {}, its directory is no longer accessible", this.file);
+          return;
+        }
+      }
+
+    } catch (final ClosedWatchServiceException | InterruptedException e) {
+      // Stopped.
+    }
+  }
+
+  void load() throws IOException {
+
+    final Properties properties = new Properties();
+    try (final Reader reader = Files.newBufferedReader(this.file, StandardCharsets.UTF_8)) {
+      properties.load(reader);
+    }
+
+    final String base = properties.getProperty("base");
+    if (base == null) {
+      throw new IllegalArgumentException(String.format("Exchange rates file %s has no base currency.", this.file));
+    }
+
+    final Map<String, BigDecimal> rates = new HashMap<>();
+    for (final String currency : properties.stringPropertyNames()) {
+      if (!currency.equals("base")) {
+        rates.put(currency, new BigDecimal(properties.getProperty(currency).trim()));
+      }
+    }
+
+    this.fxRates.publish(base.trim(), rates, Files.getLastModifiedTime(this.file).toInstant());
+  }
+}
@@ -0,0 +1,202 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.exception.OperationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Exchange rates between the currencies of the accounts.
+ *
+ * <p>Rates are published as a whole, by a source such as {@link FxRateFileWatcher}, as the amounts of every currency
+ * worth one unit of a base currency. Every publication builds an immutable {@link Snapshot} holding the cross rates
+ * of every pair of currencies, computed once, and replaces the current snapshot with a single volatile write.
+ * Looking up a rate therefore never locks nor allocates, and the rates of a conversion are always from the same
+ * publication.</p>
+ */
+@Service
+@Slf4j
+public class FxRates {
+
+  /**
+   * Precision of the cross rates, that of {@code decimal64}.
+   */
+  private static final MathContext RATE_PRECISION = MathContext.DECIMAL64;
+
+  /**
+   * Minor units of the currencies unknown to {@link Currency}.
+   */
+  private static final int DEFAULT_FRACTION_DIGITS = 2;
+
+  /**
+   * Rates published at once, immutable.
+   */
+  public static final class Snapshot {
+
+    private static final Snapshot EMPTY = new Snapshot(null, null, Collections.emptyMap());
+
+    private final String base;
+
+    private final Instant asOf;
+
+    private final Map<String, Integer> indexes;
+
+    /**
+     * {@code rates[from][to]} is the amount of {@code to} worth one unit of {@code from}.
+     */
+    private final BigDecimal[][] rates;
+
+    private final int[] fractionDigits;
+
+    private Snapshot(final String base, final Instant asOf, final Map<String, BigDecimal> ratesAgainstBase) {
+
+      this.base = base;
+      this.asOf = asOf;
+
+      final int size = ratesAgainstBase.size();
+      final Map<String, Integer> indexes = new HashMap<>(size * 2);
+      final BigDecimal[] against = new BigDecimal[size];
+      this.fractionDigits = new int[size];
+
+      for (final Map.Entry<String, BigDecimal> rate : ratesAgainstBase.entrySet()) {
+        final int index = indexes.size();
+        indexes.put(rate.getKey(), index);
+        against[index] = rate.getValue();
+        this.fractionDigits[index] = minorUnitDigits(rate.getKey());
+      }
+
+      this.rates = new BigDecimal[size][size];
+      for (int from = 0; from < size; from++) {
+        for (int to = 0; to < size; to++) {
+          this.rates[from][to] = from == to ? BigDecimal.ONE : against[to].divide(against[from], RATE_PRECISION);
+        }
+      }
+
+      this.indexes = Collections.unmodifiableMap(indexes);
+    }
+
+    /**
+     * @return the base currency of the published rates, {@code null} if no rates were published yet
+     */
+    public String getBase() {
+      return this.base;
+    }
+
+    /**
+     * @return the time the rates were published at, {@code null} if no rates were published yet
+     */
+    public Instant getAsOf() {
+      return this.asOf;
+    }
+
+    public Set<String> getCurrencies() {
+      return this.indexes.keySet();
+    }
+
+    /**
+     * @return the amount of {@code to} worth one unit of {@code from}, or {@code null} if either currency has no rate
+     */
+    public BigDecimal rate(final String from, final String to) {
+
+      final Integer fromIndex = this.indexes.get(from);
+      final Integer toIndex = this.indexes.get(to);
+
+      return fromIndex == null || toIndex == null ? null : this.rates[fromIndex][toIndex];
+    }
+
+    /**
+     * @return the number of minor units of {@code currency}, such as 2 for cents
+     */
+    int fractionDigits(final String currency) {
+
+      final Integer index = this.indexes.get(currency);
+      return index == null ? DEFAULT_FRACTION_DIGITS : this.fractionDigits[index];
+    }
+  }
+
+  private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+  /**
+   * @return the number of minor units of {@code currency}, such as 2 for cents, or 2 if the currency is unknown
+   */
+  static int minorUnitDigits(final String currency) {
+
+    try {
+      final int digits = Currency.getInstance(currency).getDefaultFractionDigits();
+      return digits < 0 ? DEFAULT_FRACTION_DIGITS : digits;
+
+    } catch (final IllegalArgumentException e) {
+      return DEFAULT_FRACTION_DIGITS;
+    }
+  }
+
+  /**
+   * @return the rates last published
+   */
+  public Snapshot getSnapshot() {
+    return this.snapshot;
+  }
+
+  /**
+   * Replaces all the rates. Conversions in progress complete with the previous rates.
+   *
+   * @param base             currency every rate is quoted against
+   * @param ratesAgainstBase amount of every currency worth one unit of {@code base}, which is added if missing
+   * @param asOf             time the rates are valid from
+   *
+   * @throws IllegalArgumentException if a rate is not positive
+   */
+  public void publish(final String base, final Map<String, BigDecimal> ratesAgainstBase, final Instant asOf) {
+
+    final Map<String, BigDecimal> rates = new HashMap<>(ratesAgainstBase);
+    rates.putIfAbsent(base, BigDecimal.ONE);
+
+    rates.forEach((currency, rate) -> {
+      if (rate == null || rate.signum() <= 0) {
+        throw new IllegalArgumentException(String.format("Exchange rate of %s against %s must be positive, not %s.", currency, base, rate));
+      }
+    });
+
+    this.snapshot = new Snapshot(base, asOf, rates);
+
+    log.info("Published exchange rates of {} currencies against {} as of {}", rates.size(), base, asOf);
+  }
+
+  /**
+   * Converts an amount, rounded half-even to the minor unit of the target currency.
+   *
+   * @return {@code amount} itself if the currencies are the same
+   *
+   * @throws OperationException if there is no rate between the currencies, or if the amount converted rounds to zero
+   */
+  public BigDecimal convert(final BigDecimal amount, final String from, final String to) throws OperationException {
+
+    if (from.equals(to)) {
+      return amount;
+    }
+
+    final Snapshot snapshot = this.snapshot;
+    final BigDecimal rate = snapshot.rate(from, to);
+
+    if (rate == null) {
+      throw new OperationException("No exchange rate from %s to %s.", from, to);
+    }
+
+    final BigDecimal converted = amount.multiply(rate).setScale(snapshot.fractionDigits(to), RoundingMode.HALF_EVEN);
+
+    if (converted.signum() <= 0) {
+      throw new OperationException("Amount %s %s is worth less than the minor unit of %s.", amount, from, to);
+    }
+
+    return converted;
+  }
+}
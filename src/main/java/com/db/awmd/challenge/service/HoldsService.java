@@ -0,0 +1,369 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.Hold;
+import com.db.awmd.challenge.domain.MoneyTransferResult;
+import com.db.awmd.challenge.exception.AccountNotFoundException;
+import com.db.awmd.challenge.exception.HoldException;
+import com.db.awmd.challenge.exception.HoldNotFoundException;
+import com.db.awmd.challenge.exception.OperationException;
+import com.db.awmd.challenge.utils.TimingWheel;
+import com.db.awmd.challenge.utils.WheelTimer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reserves funds on accounts, to be captured or released later.
+ *
+ * <p>Pending holds are kept in a {@link TimingWheel} by expiration time,
+ * so that expired holds are released in bulk without scanning the accounts.</p>
+ */
+@Service
+@Slf4j
+public class HoldsService {
+
+  private final AccountsService accountsService;
+
+  private final BalanceSnapshots balanceSnapshots;
+
+  private final VelocityLimits velocityLimits;
+
+  private final FxRates fxRates;
+
+  private final WheelTimer<Hold> expiryTimer;
+
+  private final long defaultTtlSeconds;
+
+  private final Map<String, TimingWheel.Timeout<Hold>> holds = new ConcurrentHashMap<>();
+
+  @Autowired
+  public HoldsService(
+          final AccountsService accountsService,
+          final BalanceSnapshots balanceSnapshots,
+          final VelocityLimits velocityLimits,
+          final FxRates fxRates,
+          @Value("${holds.expiry.tick-millis:1000}") final long tickMillis,
+          @Value("${holds.default-ttl-seconds:604800}") final long defaultTtlSeconds) {
+
+    this.accountsService = accountsService;
+    this.balanceSnapshots = balanceSnapshots;
+    this.velocityLimits = velocityLimits;
+    this.fxRates = fxRates;
+    this.expiryTimer = new WheelTimer<>("holds-expiry-ticker-", tickMillis, this::expire);
+    this.defaultTtlSeconds = defaultTtlSeconds;
+  }
+
+  @PostConstruct
+  void start() {
+    this.expiryTimer.start();
+  }
+
+  @PreDestroy
+  void stop() throws InterruptedException {
+    this.expiryTimer.stop();
+  }
+
+  /**
+   * Holds {@code amount} on account {@code accountId} for {@code ttlSeconds} seconds,
+   * or for {@code holds.default-ttl-seconds} seconds if {@code ttlSeconds} is {@code null}.
+   *
+   * @return the hold, identified by a newly generated id
+   *
+   * @throws HoldException if {@code accountId} is blank, {@code amount} is not positive, {@code ttlSeconds} is less than 1,
+   * the account does not exist or its available balance is less than {@code amount}
+   */
+  public Hold placeHold(final String accountId, final BigDecimal amount, final Long ttlSeconds) throws HoldException {
+
+    final String violation = holdViolation(accountId, amount, ttlSeconds);
+    if (violation != null) {
+      throw holdFailed(accountId, amount, new OperationException(violation));
+    }
+
+    try {
+      fetchAccount(accountId).hold(amount);
+
+    } catch (final OperationException | AccountNotFoundException ex) {
+      throw holdFailed(accountId, amount, ex);
+    }
+
+    final Hold hold =
+            new Hold(
+                    UUID.randomUUID().toString(),
+                    accountId,
+                    amount,
+                    Instant.now().plusSeconds(ttlSeconds == null ? this.defaultTtlSeconds : ttlSeconds)
+            );
+
+    this.holds.put(hold.getId(), this.expiryTimer.schedule(hold, hold.getExpirationTime().toEpochMilli()));
+
+    log.info("Placed hold {}", hold);
+
+    return hold;
+  }
+
+  /**
+   * @return the hold, or {@code null} if it does not exist or was already captured, released or expired
+   */
+  public Hold getHold(final String holdId) {
+
+    final TimingWheel.Timeout<Hold> timeout = this.holds.get(holdId);
+    return timeout == null ? null : timeout.getPayload();
+  }
+
+  /**
+   * Makes the held funds available again.
+   */
+  public Hold releaseHold(final String holdId) throws HoldNotFoundException {
+
+    final Hold hold = claim(holdId);
+
+    release(hold);
+
+    log.info("Released hold {}", holdId);
+
+    return hold;
+  }
+
+  /**
+   * Transfers {@code amount} of the held funds to {@code destinationAccountId} and releases the rest.
+   *
+   * @param amount
+   *        amount to be captured, or {@code null} to capture the whole hold
+   *
+   * @throws HoldException if the destination account id is blank or the account does not exist, {@code amount}
+   * is not positive or greater than the hold, or the capture would exceed a velocity limit; the hold then stays pending
+   */
+  public MoneyTransferResult captureHold(final String holdId, final String destinationAccountId, final BigDecimal amount)
+          throws HoldNotFoundException, HoldException {
+
+    final String violation = captureViolation(destinationAccountId, amount);
+    if (violation != null) {
+      throw captureFailed(holdId, amount, destinationAccountId, new OperationException(violation));
+    }
+
+    final Hold pending = Optional.ofNullable(getHold(holdId)).orElseThrow(() -> new HoldNotFoundException(holdId));
+    final BigDecimal captured = amount == null ? pending.getAmount() : amount;
+
+    final Account srcAccount;
+    final Account destAccount;
+    final BigDecimal destAmount;
+    try {
+      srcAccount = fetchAccount(pending.getAccountId());
+      destAccount = fetchAccount(destinationAccountId);
+
+      if (captured.compareTo(pending.getAmount()) > 0) {
+        throw new OperationException("Amount to be captured is greater than the held amount %s.", pending.getAmount());
+      }
+
+      destAmount = this.fxRates.convert(captured, srcAccount.getCurrency(), destAccount.getCurrency());
+
+    } catch (final OperationException | AccountNotFoundException ex) {
+      throw captureFailed(holdId, captured, destinationAccountId, ex);
+    }
+
+    // The hold stays pending, and can be captured again, if the capture exceeds a velocity limit.
+    final VelocityLimits.Permit permit;
+    try {
+      permit = this.velocityLimits.acquire(pending.getAccountId(), captured, srcAccount.getCurrency());
+
+    } catch (final OperationException ex) {
+      throw captureFailed(holdId, captured, destinationAccountId, ex);
+    }
+
+    final Hold hold;
+    try {
+      hold = claim(holdId);
+
+    } catch (final HoldNotFoundException ex) {
+      permit.release();
+      throw ex;
+    }
+
+    // Capturing and crediting form a single operation for balance snapshots.
+    final long epoch = this.balanceSnapshots.beginOperation();
+    try {
+      return capture(hold, captured, destAmount, srcAccount, destAccount, destinationAccountId, permit);
+    } finally {
+      this.balanceSnapshots.endOperation(epoch);
+    }
+  }
+
+  private MoneyTransferResult capture(
+          final Hold hold,
+          final BigDecimal captured,
+          final BigDecimal destAmount,
+          final Account srcAccount,
+          final Account destAccount,
+          final String destinationAccountId,
+          final VelocityLimits.Permit permit)
+          throws HoldException {
+
+    final String holdId = hold.getId();
+
+    final BigDecimal srcBalanceNew;
+    final BigDecimal destBalanceNew;
+
+    try {
+      srcBalanceNew = srcAccount.capture(captured);
+
+    } catch (final OperationException ex) {
+      permit.release();
+      restore(hold);
+      throw captureFailed(holdId, captured, destinationAccountId, ex);
+    }
+
+    final BigDecimal remainder = hold.getAmount().subtract(captured);
+    if (remainder.signum() > 0) {
+      try {
+        srcAccount.release(remainder);
+      } catch (final OperationException ex) {
+        log.error("Failed to release the remainder of hold {}: {}", holdId, ex.getMessage());
+      }
+    }
+
+    try {
+      destBalanceNew = destAccount.credit(destAmount);
+
+    } catch (final OperationException ex) {
+
+      try {
+        srcAccount.credit(captured);
+      } catch (final OperationException refundEx) {
+        ex.addSuppressed(refundEx);
+      }
+      permit.release();
+
+      throw captureFailed(holdId, captured, destinationAccountId, ex);
+    }
+
+    log.info("Captured amount {} of hold {} to account {}", captured, holdId, destinationAccountId);
+
+    return new MoneyTransferResult(
+            hold.getAccountId(),
+            destinationAccountId,
+            captured,
+            srcAccount.getCurrency(),
+            destAmount,
+            destAccount.getCurrency(),
+            srcBalanceNew,
+            destBalanceNew
+    );
+  }
+
+  private Hold claim(final String holdId) throws HoldNotFoundException {
+
+    final TimingWheel.Timeout<Hold> timeout = this.holds.remove(holdId);
+
+    if (timeout == null) {
+      throw new HoldNotFoundException(holdId);
+    }
+
+    timeout.cancel();
+
+    return timeout.getPayload();
+  }
+
+  /**
+   * Makes a claimed hold pending again, the funds being still held; it expires at once if it expired meanwhile.
+   */
+  private void restore(final Hold hold) {
+    this.holds.put(hold.getId(), this.expiryTimer.schedule(hold, hold.getExpirationTime().toEpochMilli()));
+  }
+
+  private void expire(final List<Hold> expired) {
+
+    for (final Hold hold : expired) {
+      if (this.holds.remove(hold.getId()) != null) {
+        release(hold);
+        log.info("Hold {} expired", hold.getId());
+      }
+    }
+  }
+
+  private void release(final Hold hold) {
+
+    final Account account = this.accountsService.getAccount(hold.getAccountId());
+
+    if (account == null) {
+      log.warn("Account {} of hold {} no longer exists", hold.getAccountId(), hold.getId());
+      return;
+    }
+
+    try {
+      account.release(hold.getAmount());
+    } catch (final OperationException ex) {
+      log.error("Failed to release hold {}: {}", hold.getId(), ex.getMessage());
+    }
+  }
+
+  private Account fetchAccount(final String accountId) throws AccountNotFoundException {
+
+    return
+            Optional
+                    .ofNullable(this.accountsService.getAccount(accountId))
+                    .orElseThrow(() -> new AccountNotFoundException(accountId));
+  }
+
+  /**
+   * @return the first constraint violated by the inputs of a hold, as checked by {@link TransferValidation},
+   * or {@code null} if they are valid
+   */
+  private static String holdViolation(final String accountId, final BigDecimal amount, final Long ttlSeconds) {
+
+    if (TransferValidation.isBlank(accountId)) {
+      return "Account id must not be blank.";
+    }
+
+    if (ttlSeconds != null && ttlSeconds < 1) {
+      return "Time to live must be at least 1 second.";
+    }
+
+    return TransferValidation.amountViolation(amount);
+  }
+
+  /**
+   * @return the first constraint violated by the inputs of a capture, or {@code null} if they are valid
+   */
+  private static String captureViolation(final String destinationAccountId, final BigDecimal amount) {
+
+    if (TransferValidation.isBlank(destinationAccountId)) {
+      return "Destination account id must not be blank.";
+    }
+
+    return amount == null ? null : TransferValidation.amountViolation(amount);
+  }
+
+  private static HoldException holdFailed(final String accountId, final BigDecimal amount, final Throwable cause) {
+
+    return new HoldException(
+            "Failed to hold amount '%s' on account '%s'.",
+            new Object[]{amount, accountId},
+            cause
+    );
+  }
+
+  private static HoldException captureFailed(
+          final String holdId,
+          final BigDecimal amount,
+          final String destinationAccountId,
+          final Throwable cause) {
+
+    return new HoldException(
+            "Failed to capture amount '%s' of hold '%s' to account '%s'.",
+            new Object[]{amount, holdId, destinationAccountId},
+            cause
+    );
+  }
+}
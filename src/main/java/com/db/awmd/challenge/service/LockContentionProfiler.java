@@ -0,0 +1,244 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountListener;
+import com.db.awmd.challenge.domain.AccountLockContention;
+import com.db.awmd.challenge.domain.LockContentionReport;
+import com.db.awmd.challenge.repository.AccountListeners;
+import com.db.awmd.challenge.utils.SpaceSaving;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Aggregates the lock waits and holds sampled by {@link Account}s, and tracks the most contended accounts.
+ *
+ * <p>Accounts are ranked by total lock wait with a {@link SpaceSaving} sketch of
+ * {@code accounts.lock-profiler.top-accounts} counters, so memory stays bounded whatever the number of accounts.
+ * Samples and hold times of an account are counted from the time it entered the sketch.</p>
+ *
+ * <p>Only one balance update out of {@link Account#LOCK_SAMPLING_INTERVAL} is sampled, and recording a sample
+ * neither locks nor blocks: it is written to one of several ring buffers, chosen by thread, and the buffers are drained
+ * into the sketch every {@code accounts.lock-profiler.drain-millis}, and before a report. A sample written to a slot
+ * which was not drained yet replaces the one there, which is counted as dropped. So the profiler is enabled by
+ * default.</p>
+ */
+@Service
+@ConditionalOnProperty(name = "accounts.lock-profiler.enabled", havingValue = "true", matchIfMissing = true)
+public class LockContentionProfiler implements AccountListener {
+
+  /**
+   * Number of samples every buffer holds, a power of two.
+   */
+  private static final int BUFFER_SIZE = 1024;
+
+  private static final int STRIPES = Integer.highestOneBit(4 * Runtime.getRuntime().availableProcessors() - 1) << 1;
+
+  private final AccountListeners accountListeners;
+
+  private final long drainMillis;
+
+  private final SampleBuffer[] buffers = new SampleBuffer[STRIPES];
+
+  private final ScheduledExecutorService drainer =
+          Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("lock-profiler-drainer-"));
+
+  private final SpaceSaving<String> waits;
+
+  private final Map<String, Stats> statsByAccountId = new HashMap<>();
+
+  private final Stats total = new Stats();
+
+  private long droppedSamples;
+
+  private Instant since = Instant.now();
+
+  @Autowired
+  public LockContentionProfiler(
+          final AccountListeners accountListeners,
+          @Value("${accounts.lock-profiler.top-accounts:32}") final int topAccounts,
+          @Value("${accounts.lock-profiler.drain-millis:1000}") final long drainMillis) {
+
+    this.accountListeners = accountListeners;
+    this.drainMillis = drainMillis;
+    this.waits = new SpaceSaving<>(topAccounts);
+
+    for (int i = 0; i < STRIPES; i++) {
+      this.buffers[i] = new SampleBuffer();
+    }
+  }
+
+  @PostConstruct
+  void start() {
+    this.accountListeners.add(this);
+    this.drainer.scheduleWithFixedDelay(this::drain, this.drainMillis, this.drainMillis, TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  void stop() {
+    this.accountListeners.remove(this);
+    this.drainer.shutdownNow();
+  }
+
+  @Override
+  public void lockSampled(final Account account, final long waitNanos, final long holdNanos) {
+
+    // Threads are spread over the buffers, so that they seldom write to the same one.
+    final long id = Thread.currentThread().getId();
+    final SampleBuffer buffer = this.buffers[(int) (id ^ id >>> 16) * 0x9E3779B9 >>> 16 & STRIPES - 1];
+
+    buffer.add(new Sample(account.getAccountId(), waitNanos, holdNanos));
+  }
+
+  public synchronized LockContentionReport getReport() {
+
+    drain();
+
+    final List<AccountLockContention> accounts = new ArrayList<>();
+
+    for (final SpaceSaving.Counter<String> counter : this.waits.top()) {
+
+      final Stats stats = this.statsByAccountId.get(counter.getKey());
+
+      accounts.add(
+              new AccountLockContention(
+                      counter.getKey(),
+                      stats.samples,
+                      counter.getWeight(),
+                      counter.getError(),
+                      stats.maxWaitNanos,
+                      stats.holdNanos,
+                      stats.maxHoldNanos
+              )
+      );
+    }
+
+    return
+            new LockContentionReport(
+                    this.since,
+                    Account.LOCK_SAMPLING_INTERVAL,
+                    this.total.samples,
+                    this.total.waitNanos,
+                    this.total.maxWaitNanos,
+                    this.total.holdNanos,
+                    this.total.maxHoldNanos,
+                    this.droppedSamples,
+                    accounts
+            );
+  }
+
+  public synchronized void reset() {
+
+    drain();
+
+    this.waits.clear();
+    this.statsByAccountId.clear();
+    this.total.clear();
+    this.droppedSamples = 0L;
+    this.since = Instant.now();
+  }
+
+  synchronized void drain() {
+
+    for (final SampleBuffer buffer : this.buffers) {
+      this.droppedSamples += buffer.drainTo(this::aggregate);
+    }
+  }
+
+  private void aggregate(final Sample sample) {
+
+    final String evicted = this.waits.add(sample.accountId, sample.waitNanos);
+    if (evicted != null) {
+      this.statsByAccountId.remove(evicted);
+    }
+
+    this.statsByAccountId.computeIfAbsent(sample.accountId, id -> new Stats()).add(sample.waitNanos, sample.holdNanos);
+    this.total.add(sample.waitNanos, sample.holdNanos);
+  }
+
+  private static final class Sample {
+
+    private final String accountId;
+    private final long waitNanos;
+    private final long holdNanos;
+
+    Sample(final String accountId, final long waitNanos, final long holdNanos) {
+      this.accountId = accountId;
+      this.waitNanos = waitNanos;
+      this.holdNanos = holdNanos;
+    }
+  }
+
+  /**
+   * Ring of samples which writers fill without locking, and which is drained by swapping every slot with {@code null}.
+   */
+  private static final class SampleBuffer {
+
+    private final AtomicReferenceArray<Sample> slots = new AtomicReferenceArray<>(BUFFER_SIZE);
+
+    private final AtomicLong writes = new AtomicLong();
+
+    private final LongAdder dropped = new LongAdder();
+
+    void add(final Sample sample) {
+
+      if (this.slots.getAndSet((int) this.writes.getAndIncrement() & BUFFER_SIZE - 1, sample) != null) {
+        this.dropped.increment();
+      }
+    }
+
+    /**
+     * @return the number of samples dropped since the previous drain
+     */
+    long drainTo(final Consumer<Sample> consumer) {
+
+      for (int i = 0; i < BUFFER_SIZE; i++) {
+        final Sample sample = this.slots.getAndSet(i, null);
+        if (sample != null) {
+          consumer.accept(sample);
+        }
+      }
+
+      return this.dropped.sumThenReset();
+    }
+  }
+
+  private static final class Stats {
+
+    private long samples;
+    private long waitNanos;
+    private long maxWaitNanos;
+    private long holdNanos;
+    private long maxHoldNanos;
+
+    void add(final long waitNanos, final long holdNanos) {
+
+      this.samples++;
+      this.waitNanos += waitNanos;
+      this.maxWaitNanos = Math.max(this.maxWaitNanos, waitNanos);
+      this.holdNanos += holdNanos;
+      this.maxHoldNanos = Math.max(this.maxHoldNanos, holdNanos);
+    }
+
+    void clear() {
+      this.samples = this.waitNanos = this.maxWaitNanos = this.holdNanos = this.maxHoldNanos = 0L;
+    }
+  }
+}
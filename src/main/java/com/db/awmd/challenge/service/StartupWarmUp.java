@@ -0,0 +1,135 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.exception.MoneyTransferException;
+import com.db.awmd.challenge.repository.AccountListeners;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggerConfiguration;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tells whether the application is ready to take traffic, once it started and, with {@code startup.warm-up.enabled},
+ * once the transfer path was warmed up, so that the JIT compiled it before the first transfers come in.
+ *
+ * <p>The warm-up sends {@code startup.warm-up.transfers} transfers through an {@link AccountsService} of its own,
+ * over scratch accounts and without velocity limits, so that neither the accounts nor the listeners of the application
+ * see them. Their results, and the accounts, are serialized as responses are. The service logs to a logger of its own,
+ * {@code com.db.awmd.challenge.service.StartupWarmUp.transfers}, which only logs warnings and errors unless configured
+ * otherwise, so that the transfers the application takes meanwhile are logged as usual.</p>
+ *
+ * <p>With {@code startup.warm-up.exit}, the application exits once warmed up, which records the classes loaded by
+ * a whole start-up for a class-data sharing archive.</p>
+ */
+@Service
+@Slf4j
+public class StartupWarmUp implements ApplicationListener<ApplicationReadyEvent> {
+
+  private static final String LOGGER = "com.db.awmd.challenge.service.StartupWarmUp.transfers";
+
+  private static final int ACCOUNTS = 16;
+
+  private static final BigDecimal BALANCE = new BigDecimal("1000");
+
+  private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+  private final ObjectMapper objectMapper;
+
+  private final FxRates fxRates;
+
+  private final boolean enabled;
+
+  private final int transfers;
+
+  private final boolean exit;
+
+  private volatile boolean ready;
+
+  @Autowired
+  public StartupWarmUp(
+          final ObjectMapper objectMapper,
+          final FxRates fxRates,
+          @Value("${startup.warm-up.enabled:false}") final boolean enabled,
+          @Value("${startup.warm-up.transfers:50000}") final int transfers,
+          @Value("${startup.warm-up.exit:false}") final boolean exit) {
+
+    this.objectMapper = objectMapper;
+    this.fxRates = fxRates;
+    this.enabled = enabled;
+    this.transfers = transfers;
+    this.exit = exit;
+  }
+
+  @Override
+  public void onApplicationEvent(final ApplicationReadyEvent event) {
+
+    if (this.enabled) {
+      final long started = System.nanoTime();
+      try {
+        warmUp();
+        log.info("Warmed up with {} transfers in {} ms", this.transfers, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+      } catch (final JsonProcessingException | MoneyTransferException | RuntimeException e) {
+        log.warn("Failed to warm up, the application is ready anyway", e);
+      }
+    }
+
+    this.ready = true;
+
+    if (this.exit) {
+      log.info("Exiting after start-up");
+      System.exit(SpringApplication.exit(event.getApplicationContext()));
+    }
+  }
+
+  /**
+   * @return whether the application started, and warmed up if enabled
+   */
+  public boolean isReady() {
+    return this.ready;
+  }
+
+  private void warmUp() throws JsonProcessingException, MoneyTransferException {
+
+    final LoggingSystem loggingSystem = LoggingSystem.get(getClass().getClassLoader());
+    final LoggerConfiguration logger = loggingSystem.getLoggerConfiguration(LOGGER);
+    if (logger == null || logger.getConfiguredLevel() == null) {
+      loggingSystem.setLogLevel(LOGGER, LogLevel.WARN);
+    }
+
+    sendTransfers();
+  }
+
+  private void sendTransfers() throws JsonProcessingException, MoneyTransferException {
+
+    final AccountListeners listeners = new AccountListeners();
+    final AccountsRepositoryInMemory repository = new AccountsRepositoryInMemory(listeners);
+    final AccountsService accountsService =
+            new AccountsService(repository, (account, description) -> { }, new BalanceSnapshots(repository, listeners), new VelocityLimits("", Account.DEFAULT_CURRENCY, this.fxRates), this.fxRates, LoggerFactory.getLogger(LOGGER));
+
+    for (int i = 0; i < ACCOUNTS; i++) {
+      accountsService.createAccount(new Account("warm-up-" + i, BALANCE));
+    }
+
+    for (int i = 0; i < this.transfers; i++) {
+
+      final String sourceAccountId = "warm-up-" + i % ACCOUNTS;
+      final String destinationAccountId = "warm-up-" + (i + 1 + i / ACCOUNTS % (ACCOUNTS - 1)) % ACCOUNTS;
+
+      this.objectMapper.writeValueAsBytes(accountsService.transferMoney(sourceAccountId, destinationAccountId, AMOUNT));
+      this.objectMapper.writeValueAsBytes(accountsService.getAccount(sourceAccountId));
+    }
+  }
+}
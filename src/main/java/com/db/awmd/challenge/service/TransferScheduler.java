@@ -0,0 +1,188 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.ScheduledTransfer;
+import com.db.awmd.challenge.utils.TimingWheel;
+import com.db.awmd.challenge.utils.VirtualThreads;
+import com.db.awmd.challenge.utils.WheelTimer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes future-dated and recurring transfers.
+ *
+ * <p>Pending transfers are kept in a {@link TimingWheel}, turned by a {@link WheelTimer},
+ * which hands the due transfers, in batches of {@code transfers.scheduler.batch-size},
+ * to a pool of {@code transfers.scheduler.concurrency} threads which execute them
+ * through {@link AccountsService#transferMoney(String, String, BigDecimal)}.</p>
+ */
+@Service
+@Slf4j
+public class TransferScheduler {
+
+  private final AccountsService accountsService;
+
+  private final WheelTimer<ScheduledTransfer> timer;
+
+  private final Map<String, TimingWheel.Timeout<ScheduledTransfer>> timeouts = new ConcurrentHashMap<>();
+
+  private final ExecutorService executor;
+
+  private final int batchSize;
+
+  @Autowired
+  public TransferScheduler(
+          final AccountsService accountsService,
+          @Value("${transfers.scheduler.tick-millis:100}") final long tickMillis,
+          @Value("${transfers.scheduler.concurrency:4}") final int concurrency,
+          @Value("${transfers.scheduler.batch-size:256}") final int batchSize,
+          @Value("${spring.threads.virtual.enabled:false}") final boolean virtualThreads) {
+
+    this.accountsService = accountsService;
+    this.timer = new WheelTimer<>("transfer-scheduler-ticker-", tickMillis, this::dispatch);
+    this.executor = Executors.newFixedThreadPool(concurrency, VirtualThreads.threadFactory("transfer-scheduler-worker-", virtualThreads));
+    this.batchSize = batchSize;
+  }
+
+  @PostConstruct
+  void start() {
+    this.timer.start();
+  }
+
+  @PreDestroy
+  void stop() throws InterruptedException {
+    this.timer.stop();
+    this.executor.shutdown();
+    this.executor.awaitTermination(30, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Schedules a transfer of {@code amount} from {@code sourceAccountId} to {@code destinationAccountId}
+   * at {@code executionTime}, repeated every {@code intervalSeconds} seconds if {@code intervalSeconds} is positive.
+   *
+   * @return the scheduled transfer, identified by a newly generated id
+   *
+   * @throws IllegalArgumentException if an account id is blank, {@code amount} is not positive,
+   * {@code executionTime} is {@code null} or {@code intervalSeconds} is negative, as checked by {@link TransferValidation}
+   */
+  public ScheduledTransfer schedule(
+          final String sourceAccountId,
+          final String destinationAccountId,
+          final BigDecimal amount,
+          final Instant executionTime,
+          final long intervalSeconds) {
+
+    final String violation = TransferValidation.violation(sourceAccountId, destinationAccountId, amount);
+    if (violation != null) {
+      throw new IllegalArgumentException(violation);
+    }
+    if (executionTime == null) {
+      throw new IllegalArgumentException("Execution time must not be null.");
+    }
+    if (intervalSeconds < 0) {
+      throw new IllegalArgumentException("Interval must not be negative.");
+    }
+
+    final ScheduledTransfer transfer =
+            new ScheduledTransfer(
+                    UUID.randomUUID().toString(),
+                    sourceAccountId,
+                    destinationAccountId,
+                    amount,
+                    executionTime,
+                    intervalSeconds
+            );
+
+    // A transfer already due may be executed as soon as it is scheduled: registering it within compute() makes
+    // its execution, which removes or replaces it, wait until it is registered.
+    this.timeouts.compute(transfer.getId(), (id, previous) -> this.timer.schedule(transfer, executionTime.toEpochMilli()));
+
+    log.info("Scheduled transfer {}", transfer);
+
+    return transfer;
+  }
+
+  /**
+   * @return the next pending occurrence of the scheduled transfer, or {@code null} if there is none
+   */
+  public ScheduledTransfer getScheduledTransfer(final String id) {
+
+    final TimingWheel.Timeout<ScheduledTransfer> timeout = this.timeouts.get(id);
+    return timeout == null ? null : timeout.getPayload();
+  }
+
+  /**
+   * Cancels all the pending occurrences of the scheduled transfer.
+   *
+   * @return {@code false} if there was no pending occurrence
+   */
+  public boolean cancel(final String id) {
+
+    final TimingWheel.Timeout<ScheduledTransfer> timeout = this.timeouts.remove(id);
+
+    if (timeout == null) {
+      return false;
+    }
+
+    timeout.cancel();
+
+    log.info("Cancelled scheduled transfer {}", id);
+
+    return true;
+  }
+
+  private void dispatch(final List<ScheduledTransfer> due) {
+
+    for (int from = 0; from < due.size(); from += this.batchSize) {
+      submit(due.subList(from, Math.min(due.size(), from + this.batchSize)));
+    }
+  }
+
+  private void submit(final List<ScheduledTransfer> batch) {
+    this.executor.execute(() -> batch.forEach(this::execute));
+  }
+
+  private void execute(final ScheduledTransfer transfer) {
+
+    try {
+      this.accountsService.transferMoney(transfer.getSourceAccountId(), transfer.getDestinationAccountId(), transfer.getAmount());
+
+    } catch (final Exception e) {
+      log.warn("Scheduled transfer {} failed: {}", transfer.getId(), e.getMessage());
+    }
+
+    if (transfer.isRecurring()) {
+      reschedule(transfer);
+    } else {
+      this.timeouts.remove(transfer.getId());
+    }
+  }
+
+  private void reschedule(final ScheduledTransfer transfer) {
+
+    // Not rescheduled if cancelled while executing. The next occurrence is registered as it is scheduled,
+    // since it is executed at once if already due.
+    this.timeouts.computeIfPresent(transfer.getId(), (id, current) -> {
+
+      if (current.getPayload() != transfer) {
+        return current;
+      }
+
+      final ScheduledTransfer next = transfer.next();
+      return this.timer.schedule(next, next.getExecutionTime().toEpochMilli());
+    });
+  }
+}
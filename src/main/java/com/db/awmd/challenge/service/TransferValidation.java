@@ -0,0 +1,64 @@
+package com.db.awmd.challenge.service;
+
+import java.math.BigDecimal;
+
+/**
+ * Checks the inputs of a transfer, as {@code @NotBlank} account ids and a {@code @NotNull @DecimalMin(value = "0", inclusive = false)}
+ * amount would, without going through Bean Validation: no proxy, no reflection, no allocation and no exception.
+ * Scheduled transfers and holds are checked the same way.
+ */
+public final class TransferValidation {
+
+  private TransferValidation() {
+  }
+
+  /**
+   * @return the first constraint violated by the inputs of a transfer, or {@code null} if they are valid
+   */
+  public static String violation(final String sourceAccountId, final String destinationAccountId, final BigDecimal amount) {
+
+    if (isBlank(sourceAccountId)) {
+      return "Source account id must not be blank.";
+    }
+
+    if (isBlank(destinationAccountId)) {
+      return "Destination account id must not be blank.";
+    }
+
+    return amountViolation(amount);
+  }
+
+  /**
+   * @return the constraint violated by an amount which must be positive, or {@code null} if it is valid
+   */
+  public static String amountViolation(final BigDecimal amount) {
+
+    if (amount == null) {
+      return "Amount must not be null.";
+    }
+
+    if (amount.signum() <= 0) {
+      return "Amount must be positive.";
+    }
+
+    return null;
+  }
+
+  /**
+   * Same as {@code @NotBlank}, which trims the characters up to the space.
+   */
+  public static boolean isBlank(final String value) {
+
+    if (value == null) {
+      return true;
+    }
+
+    for (int i = 0; i < value.length(); i++) {
+      if (value.charAt(i) > ' ') {
+        return false;
+      }
+    }
+
+    return true;
+  }
+}
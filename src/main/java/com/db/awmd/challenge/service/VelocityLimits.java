@@ -0,0 +1,371 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.exception.OperationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Limits the number and the total amount of the outgoing transfers of every account over sliding windows,
+ * according to the rules of {@code accounts.velocity-limits.rules}.
+ *
+ * <p>A rule is written {@code <window>:<max count>:<max amount>}, with the window as an ISO-8601 duration
+ * and an empty maximum meaning no limit, and rules are separated by commas:
+ * {@code PT1M:10:5000,PT24H::100000} allows 10 transfers per minute and 100000 per day, in total.</p>
+ *
+ * <p>Amounts are counted in {@code accounts.velocity-limits.currency}: the amounts of transfers from accounts in other
+ * currencies are converted with the exchange rates current at the time of the transfer. While a rule limits amounts,
+ * a transfer from a currency without an exchange rate to that currency is refused.</p>
+ *
+ * <p>Every rule of an account counts transfers in the current and the previous fixed windows, and estimates the
+ * sliding window by weighting the previous window with its share still in the sliding window. The counters are
+ * immutable and replaced by compare-and-set, so that checking a transfer never locks, and concurrent transfers
+ * can never exceed a limit together.</p>
+ */
+@Service
+@Slf4j
+public class VelocityLimits {
+
+  /**
+   * Amounts are counted in units of 10<sup>-{@value}</sup>, rounded up.
+   */
+  private static final int AMOUNT_SCALE = 4;
+
+  private static final long UNLIMITED = Long.MAX_VALUE;
+
+  /**
+   * Greatest amount counted, so that sums of counted amounts never overflow.
+   */
+  private static final long MAX_AMOUNT_UNITS = Long.MAX_VALUE / 4;
+
+  /**
+   * Transfers which are admitted and may be cancelled.
+   */
+  public interface Permit {
+
+    /**
+     * Stops counting the transfers of the permit, which did not happen after all.
+     */
+    void release();
+  }
+
+  private static final Permit NO_LIMIT = () -> { };
+
+  static final class Rule {
+
+    final String text;
+
+    final long windowMillis;
+
+    final long maxCount;
+
+    final long maxAmount;
+
+    private Rule(final String text, final long windowMillis, final long maxCount, final long maxAmount) {
+      this.text = text;
+      this.windowMillis = windowMillis;
+      this.maxCount = maxCount;
+      this.maxAmount = maxAmount;
+    }
+
+    static Rule parse(final String text) {
+
+      final String[] fields = text.trim().split(":", -1);
+      if (fields.length != 3) {
+        throw new IllegalArgumentException(String.format("Velocity limit '%s' is not of the form <window>:<max count>:<max amount>.", text));
+      }
+
+      final long windowMillis = Duration.parse(fields[0].trim()).toMillis();
+      if (windowMillis <= 0) {
+        throw new IllegalArgumentException(String.format("Window of velocity limit '%s' is not positive.", text));
+      }
+
+      final long maxCount = fields[1].trim().isEmpty() ? UNLIMITED : Long.parseLong(fields[1].trim());
+      final long maxAmount = fields[2].trim().isEmpty() ? UNLIMITED : toUnits(new BigDecimal(fields[2].trim()));
+
+      return new Rule(text.trim(), windowMillis, maxCount, maxAmount);
+    }
+
+    @Override
+    public String toString() {
+      return this.text;
+    }
+  }
+
+  /**
+   * Counts of a rule for an account, in the current fixed window and in the previous one.
+   */
+  private static final class Counters {
+
+    static final Counters EMPTY = new Counters(Long.MIN_VALUE, 0, 0, 0, 0);
+
+    final long window;
+
+    final long previousCount;
+
+    final long previousAmount;
+
+    final long count;
+
+    final long amount;
+
+    Counters(final long window, final long previousCount, final long previousAmount, final long count, final long amount) {
+      this.window = window;
+      this.previousCount = previousCount;
+      this.previousAmount = previousAmount;
+      this.count = count;
+      this.amount = amount;
+    }
+
+    Counters rotate(final long currentWindow) {
+
+      // A thread which read the clock just before another one moved to the next window counts in the next window too.
+      if (this.window >= currentWindow) {
+        return this;
+      }
+
+      if (this.window == currentWindow - 1) {
+        return new Counters(currentWindow, this.count, this.amount, 0, 0);
+      }
+
+      return new Counters(currentWindow, 0, 0, 0, 0);
+    }
+  }
+
+  private final Rule[] rules;
+
+  private final String currency;
+
+  private final FxRates fxRates;
+
+  /**
+   * Whether a rule limits amounts, which are only converted then.
+   */
+  private final boolean limitsAmounts;
+
+  private final LongSupplier clock;
+
+  private final long longestWindowMillis;
+
+  private final Map<String, AtomicReferenceArray<Counters>> countersByAccountId = new ConcurrentHashMap<>();
+
+  private final ScheduledExecutorService cleaner =
+          Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("velocity-limits-cleaner-"));
+
+  @Autowired
+  public VelocityLimits(
+          @Value("${accounts.velocity-limits.rules:}") final String rules,
+          @Value("${accounts.velocity-limits.currency:" + Account.DEFAULT_CURRENCY + "}") final String currency,
+          final FxRates fxRates) {
+
+    this(rules, currency, fxRates, System::currentTimeMillis);
+  }
+
+  VelocityLimits(final String rules, final String currency, final FxRates fxRates, final LongSupplier clock) {
+
+    final List<Rule> parsed = new ArrayList<>();
+    for (final String rule : rules.split(",")) {
+      if (!rule.trim().isEmpty()) {
+        parsed.add(Rule.parse(rule));
+      }
+    }
+
+    this.rules = parsed.toArray(new Rule[0]);
+    this.currency = currency;
+    this.fxRates = fxRates;
+    this.limitsAmounts = parsed.stream().anyMatch(rule -> rule.maxAmount != UNLIMITED);
+    this.clock = clock;
+    this.longestWindowMillis = parsed.stream().mapToLong(rule -> rule.windowMillis).max().orElse(0);
+  }
+
+  @PostConstruct
+  void start() {
+
+    if (this.rules.length > 0) {
+      log.info("Limiting outgoing transfers of every account to {}", Arrays.toString(this.rules));
+      this.cleaner.scheduleWithFixedDelay(this::removeIdleAccounts, this.longestWindowMillis, this.longestWindowMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @PreDestroy
+  void stop() {
+    this.cleaner.shutdownNow();
+  }
+
+  /**
+   * Counts an outgoing transfer of {@code amount}, in {@code currency}, from account {@code accountId},
+   * if no limit is exceeded.
+   *
+   * @return the permit of the transfer, to be released if the transfer fails
+   *
+   * @throws OperationException if the transfer would exceed a limit, or if its amount cannot be converted to the
+   * currency of the limits; it is then not counted
+   */
+  public Permit acquire(final String accountId, final BigDecimal amount, final String currency) throws OperationException {
+
+    if (this.rules.length == 0) {
+      return NO_LIMIT;
+    }
+
+    final long units = this.limitsAmounts ? toUnits(convert(amount, currency)) : 0;
+    final long now = this.clock.getAsLong();
+
+    while (true) {
+
+      final AtomicReferenceArray<Counters> counters =
+              this.countersByAccountId.computeIfAbsent(accountId, id -> new AtomicReferenceArray<>(this.rules.length));
+
+      for (int r = 0; r < this.rules.length; r++) {
+        if (!tryAcquire(counters, r, now, units)) {
+
+          for (int acquired = 0; acquired < r; acquired++) {
+            release(counters, acquired, now, units);
+          }
+
+          throw new OperationException("Transfer of amount %s from account %s exceeds the velocity limit %s.", amount, accountId, this.rules[r]);
+        }
+      }
+
+      // Idle counters may have been removed meanwhile, in which case the transfer is counted again.
+      if (this.countersByAccountId.get(accountId) == counters) {
+        return () -> {
+          for (int r = 0; r < this.rules.length; r++) {
+            release(counters, r, now, units);
+          }
+        };
+      }
+    }
+  }
+
+  /**
+   * @return {@code amount} in the currency of the limits, unrounded, since counted amounts are rounded up
+   */
+  private BigDecimal convert(final BigDecimal amount, final String currency) throws OperationException {
+
+    if (currency.equals(this.currency)) {
+      return amount;
+    }
+
+    final BigDecimal rate = this.fxRates.getSnapshot().rate(currency, this.currency);
+    if (rate == null) {
+      throw new OperationException("No exchange rate from %s to %s, the currency of the velocity limits.", currency, this.currency);
+    }
+
+    return amount.multiply(rate);
+  }
+
+  void removeIdleAccounts() {
+
+    final long now = this.clock.getAsLong();
+
+    this.countersByAccountId.forEach((accountId, counters) -> {
+      if (isIdle(counters, now)) {
+        this.countersByAccountId.remove(accountId, counters);
+      }
+    });
+  }
+
+  int trackedAccounts() {
+    return this.countersByAccountId.size();
+  }
+
+  private boolean tryAcquire(final AtomicReferenceArray<Counters> counters, final int r, final long now, final long units) {
+
+    final Rule rule = this.rules[r];
+    final long window = now / rule.windowMillis;
+    final double previousWeight = 1 - (double) (now % rule.windowMillis) / rule.windowMillis;
+
+    while (true) {
+
+      final Counters current = counters.get(r);
+      final Counters rotated = (current == null ? Counters.EMPTY : current).rotate(window);
+
+      final long count = (long) (rotated.previousCount * previousWeight) + rotated.count + 1;
+      final long amount = (long) (rotated.previousAmount * previousWeight) + rotated.amount + units;
+
+      if ((rule.maxCount != UNLIMITED && count > rule.maxCount) || (rule.maxAmount != UNLIMITED && amount > rule.maxAmount)) {
+        return false;
+      }
+
+      final Counters next =
+              new Counters(window, rotated.previousCount, rotated.previousAmount, rotated.count + 1, rotated.amount + units);
+
+      if (counters.compareAndSet(r, current, next)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Uncounts a transfer acquired at {@code acquiredAt}, unless its window is no longer counted.
+   */
+  private void release(final AtomicReferenceArray<Counters> counters, final int r, final long acquiredAt, final long units) {
+
+    final long window = acquiredAt / this.rules[r].windowMillis;
+
+    while (true) {
+
+      final Counters current = counters.get(r);
+      final Counters next;
+
+      if (current.window == window) {
+        next = new Counters(window, current.previousCount, current.previousAmount, Math.max(0, current.count - 1), Math.max(0, current.amount - units));
+      } else if (current.window == window + 1) {
+        next = new Counters(current.window, Math.max(0, current.previousCount - 1), Math.max(0, current.previousAmount - units), current.count, current.amount);
+      } else {
+        return;
+      }
+
+      if (counters.compareAndSet(r, current, next)) {
+        return;
+      }
+    }
+  }
+
+  private boolean isIdle(final AtomicReferenceArray<Counters> counters, final long now) {
+
+    for (int r = 0; r < this.rules.length; r++) {
+      final Counters current = counters.get(r);
+      if (current != null && current.window >= now / this.rules[r].windowMillis - 1) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private static long toUnits(final BigDecimal amount) {
+
+    if (amount.signum() <= 0) {
+      return 0;
+    }
+
+    // Common case: moving the point gives an integer, which needs no rounding and fits in a long.
+    if (amount.scale() <= AMOUNT_SCALE && amount.precision() <= 18 - AMOUNT_SCALE) {
+      return amount.movePointRight(AMOUNT_SCALE).longValue();
+    }
+
+    final BigDecimal units = amount.movePointRight(AMOUNT_SCALE).setScale(0, RoundingMode.CEILING);
+
+    return units.compareTo(BigDecimal.valueOf(MAX_AMOUNT_UNITS)) > 0 ? MAX_AMOUNT_UNITS : units.longValue();
+  }
+}
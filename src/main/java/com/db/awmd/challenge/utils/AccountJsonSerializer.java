@@ -0,0 +1,43 @@
+package com.db.awmd.challenge.utils;
+
+import com.db.awmd.challenge.domain.Account;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import java.io.IOException;
+
+/**
+ * Writes an {@link Account} without introspection, producing the same JSON as the default bean serializer.
+ * <p>Field names are encoded once and the balance is written as a number, as by the default bean serializer.</p>
+ */
+public final class AccountJsonSerializer extends JsonSerializer<Account> {
+
+    private static final SerializableString ACCOUNT_ID = new SerializedString("accountId");
+    private static final SerializableString BALANCE = new SerializedString("balance");
+    private static final SerializableString CURRENCY = new SerializedString("currency");
+
+    @Override
+    public void serialize(final Account value, final JsonGenerator gen, final SerializerProvider serializers) throws IOException {
+
+        gen.writeStartObject();
+
+        gen.writeFieldName(ACCOUNT_ID);
+        gen.writeString(value.getAccountId());
+
+        gen.writeFieldName(BALANCE);
+        gen.writeNumber(value.getBalance());
+
+        gen.writeFieldName(CURRENCY);
+        gen.writeString(value.getCurrency());
+
+        gen.writeEndObject();
+    }
+
+    @Override
+    public Class<Account> handledType() {
+        return Account.class;
+    }
+}
@@ -11,11 +11,32 @@ public final class BigDecimalJsonSerializer extends JsonSerializer<BigDecimal> {
 
     @Override
     public void serialize(final BigDecimal value, final JsonGenerator gen, final SerializerProvider serializers) throws IOException {
+        writePlainString(value, gen);
+    }
+
+    /**
+     * Writes {@code value} as a JSON string in plain notation.
+     */
+    public static void writePlainString(final BigDecimal value, final JsonGenerator gen) throws IOException {
 
         if (value == null) {
             gen.writeNull();
         } else {
-            gen.writeString(value.toPlainString());
+            gen.writeString(toPlainString(value));
         }
     }
+
+    /**
+     * Same as {@link BigDecimal#toPlainString()}.
+     * <p>
+     * Unlike {@link BigDecimal#toPlainString()}, {@link BigDecimal#toString()} caches its result in the {@link BigDecimal}.
+     * Therefore, {@link BigDecimal#toString()} is used whenever it does not use scientific notation,
+     * i.e. when the scale is not negative and the adjusted exponent is not less than -6,
+     * so that a value written more than once, such as the balance of an account, is converted only once.
+     * </p>
+     */
+    public static String toPlainString(final BigDecimal value) {
+
+        return value.scale() >= 0 && value.precision() - value.scale() >= -5 ? value.toString() : value.toPlainString();
+    }
 }
@@ -0,0 +1,83 @@
+package com.db.awmd.challenge.utils;
+
+/**
+ * Count-min sketch estimating how often keys were seen recently, as used by TinyLFU.
+ *
+ * <p>Counters saturate at {@value #MAX_COUNT} and are all halved once the number of increments
+ * reaches ten times the width of the sketch, so that old popularity fades away.</p>
+ *
+ * <p>The sketch is not thread-safe: callers serialize its updates and reads.</p>
+ */
+public final class FrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final int[] SEEDS = {0x97CB3127, 0xB7D4A5F3, 0x5E3B6A2D, 0x2C1B3C6D};
+
+    private final byte[][] counters;
+
+    private final int mask;
+
+    private final int sampleSize;
+
+    private int increments;
+
+    public FrequencySketch(final int expectedKeys) {
+
+        final int width = Integer.highestOneBit(Math.max(64, expectedKeys - 1)) << 1;
+
+        this.counters = new byte[DEPTH][width];
+        this.mask = width - 1;
+        this.sampleSize = width * 10;
+    }
+
+    public void increment(final Object key) {
+
+        final int hash = key.hashCode();
+
+        for (int row = 0; row < DEPTH; row++) {
+            final int index = index(hash, row);
+            if (this.counters[row][index] < MAX_COUNT) {
+                this.counters[row][index]++;
+            }
+        }
+
+        if (++this.increments >= this.sampleSize) {
+            age();
+        }
+    }
+
+    /**
+     * @return estimated number of recent occurrences of {@code key}, between 0 and {@value #MAX_COUNT}
+     */
+    public int frequency(final Object key) {
+
+        final int hash = key.hashCode();
+
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < DEPTH; row++) {
+            frequency = Math.min(frequency, this.counters[row][index(hash, row)]);
+        }
+
+        return frequency;
+    }
+
+    private void age() {
+
+        this.increments = 0;
+
+        for (final byte[] row : this.counters) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] >>= 1;
+            }
+        }
+    }
+
+    private int index(final int hash, final int row) {
+
+        int h = (hash ^ SEEDS[row]) * SEEDS[(row + 1) % DEPTH];
+        h ^= h >>> 16;
+
+        return h & this.mask;
+    }
+}
@@ -0,0 +1,117 @@
+package com.db.awmd.challenge.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits the number of requests in progress to a limit adapted to their latency, as the gradient algorithm of
+ * Netflix's concurrency-limits does.
+ *
+ * <p>Two exponential moving averages of the latency are kept: a short-term one, over about {@value #SHORT_WINDOW}
+ * requests, and a long-term one, over about {@value #LONG_WINDOW} requests, which stands for the latency without
+ * queueing. Their ratio, the gradient, shrinks the limit when requests start queueing, and a margin of the square root
+ * of the limit lets it grow again while they do not. The limit only grows while at least half of it is used.</p>
+ *
+ * <p>Acquiring a permit is lock-free; updating the limit once a request completes takes the lock of the limiter.</p>
+ */
+public final class GradientLimiter {
+
+    private static final int SHORT_WINDOW = 10;
+
+    private static final int LONG_WINDOW = 600;
+
+    /**
+     * Short-term latency tolerated above the long-term one before the limit shrinks.
+     */
+    private static final double TOLERANCE = 1.5;
+
+    /**
+     * Weight of every new limit computed in the limit.
+     */
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile int limit;
+
+    private double estimatedLimit;
+
+    private double shortLatency;
+
+    private double longLatency;
+
+    public GradientLimiter(final int initialLimit, final int minLimit, final int maxLimit) {
+
+        if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException(String.format("Limits must be 1 <= min %d <= initial %d <= max %d.", minLimit, initialLimit, maxLimit));
+        }
+
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = initialLimit;
+        this.estimatedLimit = initialLimit;
+    }
+
+    /**
+     * @return {@code true} if the request may proceed, in which case {@link #release(long)} must be called once it completes
+     */
+    public boolean tryAcquire() {
+
+        for (; ; ) {
+            final int current = this.inFlight.get();
+            if (current >= this.limit) {
+                return false;
+            }
+            if (this.inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases the permit of a request which completed, and adapts the limit to its latency.
+     */
+    public void release(final long latencyNanos) {
+
+        final int current = this.inFlight.getAndDecrement();
+        update(Math.max(1L, latencyNanos), current);
+    }
+
+    public int getLimit() {
+        return this.limit;
+    }
+
+    public int getInFlight() {
+        return this.inFlight.get();
+    }
+
+    private synchronized void update(final double latency, final int inFlight) {
+
+        if (this.longLatency == 0) {
+            this.shortLatency = latency;
+            this.longLatency = latency;
+        } else {
+            this.shortLatency += (latency - this.shortLatency) / SHORT_WINDOW;
+            this.longLatency += (latency - this.longLatency) / LONG_WINDOW;
+        }
+
+        // Once queues drained, the long-term latency converges faster to the latency without queueing.
+        if (this.longLatency > 2 * this.shortLatency) {
+            this.longLatency *= 0.95;
+        }
+
+        // Requests do not use the limit: their latency says nothing about it.
+        if (inFlight < this.estimatedLimit / 2) {
+            return;
+        }
+
+        final double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * this.longLatency / this.shortLatency));
+        final double newLimit = this.estimatedLimit * gradient + Math.sqrt(this.estimatedLimit);
+
+        this.estimatedLimit = Math.max(this.minLimit, Math.min(this.maxLimit, this.estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING));
+        this.limit = (int) this.estimatedLimit;
+    }
+}
@@ -0,0 +1,249 @@
+package com.db.awmd.challenge.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Append-only dictionary assigning dense {@code int} handles, from 0, to string ids.
+ *
+ * <p>Ids are stored UTF-8 encoded, prefixed with their length, in byte arenas of {@value #ARENA_PAGE_SIZE} bytes,
+ * and looked up through an open-addressing table of handles, probed linearly. An id therefore costs its encoded length,
+ * plus 10 bytes, plus about 16 bytes of table, instead of a {@link String} and a map entry.</p>
+ *
+ * <p>{@link #add(String)} must be called by one thread at a time. Lookups may be called from any thread without locking:
+ * every change is published by the volatile write of the size, which lookups read first. The arrays of pages, which
+ * are replaced when they grow, are volatile as well, so that a lookup never reads one which is not fully copied.</p>
+ */
+public final class IdDictionary {
+
+    private static final int ARENA_PAGE_BITS = 20;
+    private static final int ARENA_PAGE_SIZE = 1 << ARENA_PAGE_BITS;
+    private static final int LOCATION_PAGE_BITS = 16;
+    private static final int LOCATION_PAGE_SIZE = 1 << LOCATION_PAGE_BITS;
+    private static final int LOCATION_PAGE_MASK = LOCATION_PAGE_SIZE - 1;
+    private static final int MAX_ID_LENGTH = 0xFFFF;
+
+    /**
+     * Open-addressing table. A slot holds the handle of an id plus one, or 0 if it is free,
+     * and the hash of the id, so that most mismatches are detected without reading the arena.
+     */
+    private static final class Table {
+
+        final int[] slots;
+        final int[] hashes;
+        final int mask;
+
+        Table(final int capacity) {
+            this.slots = new int[capacity];
+            this.hashes = new int[capacity];
+            this.mask = capacity - 1;
+        }
+    }
+
+    private volatile byte[][] arena = new byte[1][];
+    private int arenaPage = -1;
+    private int arenaOffset = ARENA_PAGE_SIZE;
+
+    /**
+     * Location of every id, as its arena page in the high 32 bits and its offset in that page in the low 32 bits.
+     */
+    private volatile long[][] locations = new long[1][];
+
+    private volatile Table table;
+
+    private volatile int size;
+
+    public IdDictionary(final int expectedSize) {
+        this.table = new Table(Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1);
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @return the handle of {@code id}, or {@code -1} if {@code id} is not in the dictionary
+     */
+    public int handleOf(final String id) {
+
+        final int size = this.size;
+        final Table table = this.table;
+        final int hash = spread(id.hashCode());
+
+        for (int i = hash & table.mask; ; i = (i + 1) & table.mask) {
+
+            final int slot = table.slots[i];
+
+            if (slot == 0) {
+                return -1;
+            }
+
+            final int handle = slot - 1;
+            if (handle < size && table.hashes[i] == hash && matches(id, handle)) {
+                return handle;
+            }
+        }
+    }
+
+    /**
+     * @return the id of {@code handle}, decoded from the arena
+     *
+     * @throws IndexOutOfBoundsException if {@code handle} was not assigned
+     */
+    public String get(final int handle) {
+
+        if (handle < 0 || handle >= this.size) {
+            throw new IndexOutOfBoundsException("Unknown handle " + handle);
+        }
+
+        final long location = this.locations[handle >>> LOCATION_PAGE_BITS][handle & LOCATION_PAGE_MASK];
+        final byte[] page = this.arena[(int) (location >>> 32)];
+        final int offset = (int) location;
+
+        return new String(page, offset + 2, length(page, offset), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Adds {@code id} with the next handle, which is {@link #size()}. Must not be called concurrently.
+     *
+     * @return the handle of {@code id}, or {@code -1} if {@code id} is already in the dictionary
+     */
+    public int add(final String id) {
+
+        if (handleOf(id) >= 0) {
+            return -1;
+        }
+
+        final byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_ID_LENGTH) {
+            throw new IllegalArgumentException("Id is longer than " + MAX_ID_LENGTH + " bytes.");
+        }
+        if (!new String(bytes, StandardCharsets.UTF_8).equals(id)) {
+            throw new IllegalArgumentException("Id is not valid UTF-16.");
+        }
+
+        final int handle = this.size;
+
+        byte[][] arena = this.arena;
+        if (this.arenaOffset + 2 + bytes.length > ARENA_PAGE_SIZE) {
+            this.arenaPage++;
+            if (this.arenaPage == arena.length) {
+                arena = Arrays.copyOf(arena, arena.length * 2);
+                this.arena = arena;
+            }
+            arena[this.arenaPage] = new byte[ARENA_PAGE_SIZE];
+            this.arenaOffset = 0;
+        }
+
+        final byte[] page = arena[this.arenaPage];
+        page[this.arenaOffset] = (byte) (bytes.length >>> 8);
+        page[this.arenaOffset + 1] = (byte) bytes.length;
+        System.arraycopy(bytes, 0, page, this.arenaOffset + 2, bytes.length);
+
+        final int locationPage = handle >>> LOCATION_PAGE_BITS;
+        long[][] locations = this.locations;
+        if (locationPage == locations.length) {
+            locations = Arrays.copyOf(locations, locations.length * 2);
+            this.locations = locations;
+        }
+        if (locations[locationPage] == null) {
+            locations[locationPage] = new long[LOCATION_PAGE_SIZE];
+        }
+        locations[locationPage][handle & LOCATION_PAGE_MASK] = ((long) this.arenaPage << 32) | this.arenaOffset;
+
+        this.arenaOffset += 2 + bytes.length;
+
+        Table table = this.table;
+        if ((handle + 1) * 2 > table.slots.length) {
+            table = resize(table);
+        }
+        insert(table, handle, spread(id.hashCode()));
+        this.table = table;
+
+        this.size = handle + 1;
+
+        return handle;
+    }
+
+    private Table resize(final Table table) {
+
+        final Table resized = new Table(table.slots.length * 2);
+
+        for (int i = 0; i < table.slots.length; i++) {
+            if (table.slots[i] != 0) {
+                insert(resized, table.slots[i] - 1, table.hashes[i]);
+            }
+        }
+
+        return resized;
+    }
+
+    private static void insert(final Table table, final int handle, final int hash) {
+
+        int i = hash & table.mask;
+        while (table.slots[i] != 0) {
+            i = (i + 1) & table.mask;
+        }
+
+        table.hashes[i] = hash;
+        table.slots[i] = handle + 1;
+    }
+
+    /**
+     * Compares {@code id} with the UTF-8 bytes of {@code handle}, encoding {@code id} on the fly.
+     */
+    private boolean matches(final String id, final int handle) {
+
+        final long location = this.locations[handle >>> LOCATION_PAGE_BITS][handle & LOCATION_PAGE_MASK];
+        final byte[] page = this.arena[(int) (location >>> 32)];
+        final int start = (int) location + 2;
+        final int end = start + length(page, (int) location);
+
+        int position = start;
+        for (int i = 0; i < id.length(); i++) {
+
+            final char c = id.charAt(i);
+
+            if (c < 0x80) {
+                if (position >= end || page[position++] != c) {
+                    return false;
+                }
+                continue;
+            }
+
+            final byte[] encoded = encode(id, i);
+            if (position + encoded.length > end) {
+                return false;
+            }
+            for (final byte b : encoded) {
+                if (page[position++] != b) {
+                    return false;
+                }
+            }
+            if (Character.isHighSurrogate(c) && i + 1 < id.length() && Character.isLowSurrogate(id.charAt(i + 1))) {
+                i++;
+            }
+        }
+
+        return position == end;
+    }
+
+    private static byte[] encode(final String id, final int index) {
+
+        final char c = id.charAt(index);
+        final int end =
+                Character.isHighSurrogate(c) && index + 1 < id.length() && Character.isLowSurrogate(id.charAt(index + 1))
+                        ? index + 2
+                        : index + 1;
+
+        return id.substring(index, end).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(final byte[] page, final int offset) {
+        return ((page[offset] & 0xFF) << 8) | (page[offset + 1] & 0xFF);
+    }
+
+    private static int spread(final int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,63 @@
+package com.db.awmd.challenge.utils;
+
+import com.db.awmd.challenge.domain.MoneyTransferResult;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import java.io.IOException;
+
+/**
+ * Writes a {@link MoneyTransferResult} without introspection, producing the same JSON as the default bean serializer.
+ * <p>Field names are encoded once and amounts are written as strings, as by {@link BigDecimalJsonSerializer}.</p>
+ */
+public final class MoneyTransferResultJsonSerializer extends JsonSerializer<MoneyTransferResult> {
+
+    private static final SerializableString SOURCE_ACCOUNT_ID = new SerializedString("sourceAccountId");
+    private static final SerializableString DESTINATION_ACCOUNT_ID = new SerializedString("destinationAccountId");
+    private static final SerializableString AMOUNT = new SerializedString("amount");
+    private static final SerializableString CURRENCY = new SerializedString("currency");
+    private static final SerializableString DESTINATION_AMOUNT = new SerializedString("destinationAmount");
+    private static final SerializableString DESTINATION_CURRENCY = new SerializedString("destinationCurrency");
+    private static final SerializableString SOURCE_ACCOUNT_BALANCE_NEW = new SerializedString("sourceAccountBalanceNew");
+    private static final SerializableString DESTINATION_ACCOUNT_BALANCE_NEW = new SerializedString("destinationAccountBalanceNew");
+
+    @Override
+    public void serialize(final MoneyTransferResult value, final JsonGenerator gen, final SerializerProvider serializers) throws IOException {
+
+        gen.writeStartObject();
+
+        gen.writeFieldName(SOURCE_ACCOUNT_ID);
+        gen.writeString(value.getSourceAccountId());
+
+        gen.writeFieldName(DESTINATION_ACCOUNT_ID);
+        gen.writeString(value.getDestinationAccountId());
+
+        gen.writeFieldName(AMOUNT);
+        BigDecimalJsonSerializer.writePlainString(value.getAmount(), gen);
+
+        gen.writeFieldName(CURRENCY);
+        gen.writeString(value.getCurrency());
+
+        gen.writeFieldName(DESTINATION_AMOUNT);
+        BigDecimalJsonSerializer.writePlainString(value.getDestinationAmount(), gen);
+
+        gen.writeFieldName(DESTINATION_CURRENCY);
+        gen.writeString(value.getDestinationCurrency());
+
+        gen.writeFieldName(SOURCE_ACCOUNT_BALANCE_NEW);
+        BigDecimalJsonSerializer.writePlainString(value.getSourceAccountBalanceNew(), gen);
+
+        gen.writeFieldName(DESTINATION_ACCOUNT_BALANCE_NEW);
+        BigDecimalJsonSerializer.writePlainString(value.getDestinationAccountBalanceNew(), gen);
+
+        gen.writeEndObject();
+    }
+
+    @Override
+    public Class<MoneyTransferResult> handledType() {
+        return MoneyTransferResult.class;
+    }
+}
@@ -0,0 +1,116 @@
+package com.db.awmd.challenge.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving sketch tracking the heaviest keys of a weighted stream with a bounded number of counters.
+ *
+ * <p>A key which is not tracked when the sketch is full replaces the lightest key, and inherits its weight
+ * as an over-estimation error. Any key whose actual weight is greater than the total weight divided by
+ * the capacity is guaranteed to be tracked.</p>
+ *
+ * <p>Not thread-safe.</p>
+ *
+ * @param <K> type of the keys
+ */
+public final class SpaceSaving<K> {
+
+    private final int capacity;
+
+    private final Map<K, Counter<K>> counters;
+
+    public SpaceSaving(final int capacity) {
+
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive.");
+        }
+
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    /**
+     * Adds {@code weight} to {@code key}.
+     *
+     * @return the key evicted to track {@code key}, or {@code null} if no key was evicted
+     */
+    public K add(final K key, final long weight) {
+
+        final Counter<K> counter = this.counters.get(key);
+        if (counter != null) {
+            counter.weight += weight;
+            return null;
+        }
+
+        if (this.counters.size() < this.capacity) {
+            this.counters.put(key, new Counter<>(key, weight, 0L));
+            return null;
+        }
+
+        Counter<K> lightest = null;
+        for (final Counter<K> candidate : this.counters.values()) {
+            if (lightest == null || candidate.weight < lightest.weight) {
+                lightest = candidate;
+            }
+        }
+
+        this.counters.remove(lightest.key);
+        this.counters.put(key, new Counter<>(key, lightest.weight + weight, lightest.weight));
+
+        return lightest.key;
+    }
+
+    /**
+     * @return the tracked keys, heaviest first
+     */
+    public List<Counter<K>> top() {
+
+        final List<Counter<K>> top = new ArrayList<>(this.counters.size());
+        for (final Counter<K> counter : this.counters.values()) {
+            top.add(new Counter<>(counter.key, counter.weight, counter.error));
+        }
+
+        top.sort(Comparator.comparingLong(Counter<K>::getWeight).reversed());
+
+        return top;
+    }
+
+    public void clear() {
+        this.counters.clear();
+    }
+
+    public static final class Counter<K> {
+
+        private final K key;
+        private long weight;
+        private final long error;
+
+        private Counter(final K key, final long weight, final long error) {
+            this.key = key;
+            this.weight = weight;
+            this.error = error;
+        }
+
+        public K getKey() {
+            return this.key;
+        }
+
+        /**
+         * @return estimated weight of the key, never less than its actual weight
+         */
+        public long getWeight() {
+            return this.weight;
+        }
+
+        /**
+         * @return maximum over-estimation of the weight
+         */
+        public long getError() {
+            return this.error;
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.db.awmd.challenge.utils;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel holding timeouts which expire at a given wall-clock time.
+ *
+ * <p>The wheel has {@value #LEVELS} levels of {@value #SLOTS} slots each.
+ * A timeout is placed in the lowest level whose span covers its deadline and is cascaded
+ * to the lower levels as the wheel turns, so both insertion and cancellation are {@code O(1)}
+ * regardless of the number of pending timeouts.</p>
+ *
+ * <p>{@link #schedule(Object, long)} and {@link Timeout#cancel()} may be called from any thread.
+ * They only enqueue the change, which is applied by the next call of {@link #advanceTo(long, Consumer)}.
+ * {@link #advanceTo(long, Consumer)} must always be called from the same thread.</p>
+ *
+ * @param <T> type of the payload carried by the timeouts
+ */
+public final class TimingWheel<T> {
+
+    private static final int LEVELS = 4;
+    private static final int SLOT_BITS = 8;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final long MAX_DELTA = (1L << (LEVELS * SLOT_BITS)) - 1;
+
+    private final long startMillis;
+    private final long tickMillis;
+    private final Bucket<T>[][] wheels;
+
+    /**
+     * Number of timeouts placed in each level. Only accessed by the thread calling {@link #advanceTo(long, Consumer)}.
+     */
+    private final long[] sizes = new long[LEVELS];
+
+    private final Queue<Timeout<T>> additions = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout<T>> cancellations = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Next tick to be processed. Only accessed by the thread calling {@link #advanceTo(long, Consumer)}.
+     */
+    private long currentTick;
+
+    public TimingWheel(final long startMillis, final long tickMillis) {
+
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick duration must be positive.");
+        }
+
+        this.startMillis = startMillis;
+        this.tickMillis = tickMillis;
+        this.wheels = newWheels();
+
+        for (int level = 0; level < LEVELS; level++) {
+            for (int i = 0; i < SLOTS; i++) {
+                this.wheels[level][i] = new Bucket<>(this.sizes, level);
+            }
+        }
+    }
+
+    /**
+     * Generic arrays cannot be created, so the buckets are held in an array of wildcard buckets, which only ever holds
+     * buckets of {@code T}.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Bucket<T>[][] newWheels() {
+        return (Bucket<T>[][]) new Bucket<?>[LEVELS][SLOTS];
+    }
+
+    public long getTickMillis() {
+        return this.tickMillis;
+    }
+
+    /**
+     * Schedules {@code payload} to expire at {@code deadlineMillis}.
+     * A deadline in the past expires on the next call of {@link #advanceTo(long, Consumer)}.
+     */
+    public Timeout<T> schedule(final T payload, final long deadlineMillis) {
+
+        final long deadlineTick = Math.max(0, ceilDiv(deadlineMillis - this.startMillis, this.tickMillis));
+        final Timeout<T> timeout = new Timeout<>(this, payload, deadlineMillis, deadlineTick);
+        this.additions.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Applies pending additions and cancellations, then turns the wheel up to {@code nowMillis}
+     * and hands the payload of every expired timeout to {@code expired}.
+     */
+    public void advanceTo(final long nowMillis, final Consumer<? super T> expired) {
+
+        Timeout<T> timeout;
+
+        while ((timeout = this.additions.poll()) != null) {
+            if (timeout.deadlineTick < this.currentTick) {
+                expire(timeout, expired);
+            } else if (timeout.state == Timeout.PENDING) {
+                place(timeout);
+            }
+        }
+
+        while ((timeout = this.cancellations.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+
+        final long targetTick = Math.floorDiv(nowMillis - this.startMillis, this.tickMillis);
+
+        while (this.currentTick <= targetTick) {
+
+            final int index = (int) (this.currentTick & SLOT_MASK);
+
+            if (index == 0) {
+                cascade(1);
+            }
+
+            if (this.sizes[0] == 0) {
+                // Nothing can expire before the next cascade of the lowest non-empty level.
+                this.currentTick = Math.min(nextCascadeTick(), targetTick + 1);
+                continue;
+            }
+
+            expire(this.wheels[0][index], expired);
+            this.currentTick++;
+        }
+    }
+
+    private long nextCascadeTick() {
+
+        for (int level = 1; level < LEVELS; level++) {
+            if (this.sizes[level] > 0) {
+                final int shift = level * SLOT_BITS;
+                return ((this.currentTick >>> shift) + 1) << shift;
+            }
+        }
+
+        return Long.MAX_VALUE;
+    }
+
+    private void cascade(final int level) {
+
+        final int index = (int) ((this.currentTick >>> (level * SLOT_BITS)) & SLOT_MASK);
+
+        Timeout<T> timeout = this.wheels[level][index].clear();
+
+        while (timeout != null) {
+            final Timeout<T> next = timeout.next;
+            timeout.next = null;
+            timeout.prev = null;
+            timeout.bucket = null;
+            place(timeout);
+            timeout = next;
+        }
+
+        if (index == 0 && level + 1 < LEVELS) {
+            cascade(level + 1);
+        }
+    }
+
+    private void expire(final Bucket<T> bucket, final Consumer<? super T> expired) {
+
+        Timeout<T> timeout = bucket.clear();
+
+        while (timeout != null) {
+            final Timeout<T> next = timeout.next;
+            timeout.next = null;
+            timeout.prev = null;
+            timeout.bucket = null;
+            expire(timeout, expired);
+            timeout = next;
+        }
+    }
+
+    private void expire(final Timeout<T> timeout, final Consumer<? super T> expired) {
+
+        if (Timeout.STATE.compareAndSet(timeout, Timeout.PENDING, Timeout.EXPIRED)) {
+            expired.accept(timeout.payload);
+        }
+    }
+
+    private void place(final Timeout<T> timeout) {
+
+        long deadlineTick = timeout.deadlineTick;
+        long delta = deadlineTick - this.currentTick;
+
+        if (delta > MAX_DELTA) {
+            // Parked in the top level and placed again, by its real deadline, when that slot is cascaded.
+            deadlineTick = this.currentTick + MAX_DELTA;
+            delta = MAX_DELTA;
+        }
+
+        int level = 0;
+        while (delta >= 1L << ((level + 1) * SLOT_BITS)) {
+            level++;
+        }
+
+        final int index = (int) ((deadlineTick >>> (level * SLOT_BITS)) & SLOT_MASK);
+        this.wheels[level][index].add(timeout);
+    }
+
+    private static long ceilDiv(final long x, final long y) {
+        return -Math.floorDiv(-x, y);
+    }
+
+    /**
+     * Handle to a payload scheduled in a {@link TimingWheel}.
+     */
+    public static final class Timeout<T> {
+
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        @SuppressWarnings("rawtypes")
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+                AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private final TimingWheel<T> wheel;
+        private final T payload;
+        private final long deadlineMillis;
+        private final long deadlineTick;
+
+        private volatile int state = PENDING;
+
+        // Owned by the thread turning the wheel.
+        private Bucket<T> bucket;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+
+        private Timeout(final TimingWheel<T> wheel, final T payload, final long deadlineMillis, final long deadlineTick) {
+            this.wheel = wheel;
+            this.payload = payload;
+            this.deadlineMillis = deadlineMillis;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T getPayload() {
+            return this.payload;
+        }
+
+        public long getDeadlineMillis() {
+            return this.deadlineMillis;
+        }
+
+        public boolean isCancelled() {
+            return this.state == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return this.state == EXPIRED;
+        }
+
+        /**
+         * Cancels this timeout.
+         *
+         * @return {@code false} if the timeout already expired or was already cancelled
+         */
+        public boolean cancel() {
+
+            if (!STATE.compareAndSet(this, PENDING, CANCELLED)) {
+                return false;
+            }
+
+            this.wheel.cancellations.add(this);
+            return true;
+        }
+    }
+
+    private static final class Bucket<T> {
+
+        private final long[] sizes;
+        private final int level;
+
+        private Timeout<T> head;
+        private Timeout<T> tail;
+        private int size;
+
+        Bucket(final long[] sizes, final int level) {
+            this.sizes = sizes;
+            this.level = level;
+        }
+
+        void add(final Timeout<T> timeout) {
+
+            timeout.bucket = this;
+            this.size++;
+            this.sizes[this.level]++;
+
+            if (this.head == null) {
+                this.head = this.tail = timeout;
+            } else {
+                this.tail.next = timeout;
+                timeout.prev = this.tail;
+                this.tail = timeout;
+            }
+        }
+
+        void remove(final Timeout<T> timeout) {
+
+            if (timeout.prev == null) {
+                this.head = timeout.next;
+            } else {
+                timeout.prev.next = timeout.next;
+            }
+
+            if (timeout.next == null) {
+                this.tail = timeout.prev;
+            } else {
+                timeout.next.prev = timeout.prev;
+            }
+
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+            this.size--;
+            this.sizes[this.level]--;
+        }
+
+        Timeout<T> clear() {
+            final Timeout<T> first = this.head;
+            this.head = this.tail = null;
+            this.sizes[this.level] -= this.size;
+            this.size = 0;
+            return first;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.db.awmd.challenge.utils;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates virtual threads, on Java 21 and later, through reflection, as the application is compiled for Java 8.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return whether the running JVM supports virtual threads
+     */
+    public static boolean isSupported() {
+
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (final NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return a factory of virtual threads named {@code namePrefix} followed by a counter
+     *
+     * @throws IllegalStateException if the running JVM does not support virtual threads
+     */
+    public static ThreadFactory threadFactory(final String namePrefix) {
+
+        try {
+            final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+
+            builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 1L);
+
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+
+        } catch (final ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads require Java 21 or later, the running Java version is " + System.getProperty("java.version"), e);
+        }
+    }
+
+    /**
+     * @return a factory of virtual threads if {@code virtual}, of platform threads otherwise
+     */
+    public static ThreadFactory threadFactory(final String namePrefix, final boolean virtual) {
+        return virtual ? threadFactory(namePrefix) : new CustomizableThreadFactory(namePrefix);
+    }
+
+    /**
+     * @return an executor running every task on a new virtual thread
+     *
+     * @throws IllegalStateException if the running JVM does not support virtual threads
+     */
+    public static ExecutorService newThreadPerTaskExecutor(final String namePrefix) {
+
+        final ThreadFactory threadFactory = threadFactory(namePrefix);
+
+        try {
+            final Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newThreadPerTaskExecutor.invoke(null, threadFactory);
+
+        } catch (final ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads require Java 21 or later, the running Java version is " + System.getProperty("java.version"), e);
+        }
+    }
+}
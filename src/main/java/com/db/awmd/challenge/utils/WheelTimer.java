@@ -0,0 +1,78 @@
+package com.db.awmd.challenge.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Turns a {@link TimingWheel} on a dedicated daemon thread.
+ *
+ * <p>After every tick, the payloads which expired during the tick are handed,
+ * all together, to the consumer given at construction. The consumer runs on the ticker thread
+ * and should hand long-running work over to another thread.</p>
+ *
+ * @param <T> type of the payload carried by the timeouts
+ */
+@Slf4j
+public final class WheelTimer<T> {
+
+    private final TimingWheel<T> wheel;
+
+    private final Consumer<List<T>> expired;
+
+    private final Thread ticker;
+
+    private volatile boolean running;
+
+    public WheelTimer(final String threadNamePrefix, final long tickMillis, final Consumer<List<T>> expired) {
+
+        this.wheel = new TimingWheel<>(System.currentTimeMillis(), tickMillis);
+        this.expired = expired;
+
+        final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(threadNamePrefix);
+        threadFactory.setDaemon(true);
+        this.ticker = threadFactory.newThread(this::tick);
+    }
+
+    public TimingWheel.Timeout<T> schedule(final T payload, final long deadlineMillis) {
+        return this.wheel.schedule(payload, deadlineMillis);
+    }
+
+    public void start() {
+        this.running = true;
+        this.ticker.start();
+    }
+
+    public void stop() throws InterruptedException {
+        this.running = false;
+        this.ticker.interrupt();
+        this.ticker.join();
+    }
+
+    private void tick() {
+
+        while (this.running) {
+
+            final List<T> due = new ArrayList<>();
+            this.wheel.advanceTo(System.currentTimeMillis(), due::add);
+
+            if (!due.isEmpty()) {
+                try {
+                    this.expired.accept(due);
+                } catch (final RuntimeException e) {
+                    log.error("Failed to process {} expired timeouts.", due.size(), e);
+                }
+            }
+
+            try {
+                Thread.sleep(this.wheel.getTickMillis());
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
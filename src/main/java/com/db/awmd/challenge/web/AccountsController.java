@@ -4,17 +4,29 @@ import com.db.awmd.challenge.domain.Account;
 import com.db.awmd.challenge.domain.MoneyTransferResult;
 import com.db.awmd.challenge.exception.DuplicateAccountIdException;
 import com.db.awmd.challenge.exception.MoneyTransferException;
+import com.db.awmd.challenge.service.AccountChangeWaiters;
 import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.TransferValidation;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import javax.validation.ConstraintViolationException;
 import javax.validation.Valid;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
 
 @RestController
 @RequestMapping("/v1/accounts")
@@ -23,9 +35,23 @@ public class AccountsController {
 
   private final AccountsService accountsService;
 
+  private final AccountChangeWaiters accountChangeWaiters;
+
+  private final ObjectWriter accountWriter;
+
+  private final int maxBatchSize;
+
   @Autowired
-  public AccountsController(AccountsService accountsService) {
+  public AccountsController(
+    AccountsService accountsService,
+    AccountChangeWaiters accountChangeWaiters,
+    ObjectMapper objectMapper,
+    @Value("${accounts.batch-get.max-size:1000}") int maxBatchSize) {
+
     this.accountsService = accountsService;
+    this.accountChangeWaiters = accountChangeWaiters;
+    this.accountWriter = objectMapper.writerFor(Account.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    this.maxBatchSize = maxBatchSize;
   }
 
   @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
@@ -41,10 +67,109 @@ public class AccountsController {
     return new ResponseEntity<>(HttpStatus.CREATED);
   }
 
+  /**
+   * Returns the account with its entity tag, which is computed before the account is serialized, so that the body is never
+   * older than the tag. Requests whose {@code If-None-Match} header matches the tag are answered with {@code 304 Not Modified},
+   * without serializing the account.
+   */
   @GetMapping(path = "/{accountId}")
-  public Account getAccount(@PathVariable String accountId) {
-    log.info("Retrieving account for id {}", accountId);
-    return this.accountsService.getAccount(accountId);
+  public ResponseEntity<Account> getAccount(@PathVariable String accountId) {
+    log.debug("Retrieving account for id {}", accountId);
+
+    final Account account = this.accountsService.getAccount(accountId);
+
+    return account == null ? ResponseEntity.ok().build() : ResponseEntity.ok().eTag(account.getEntityTag()).body(account);
+  }
+
+  /**
+   * Same as {@link #getAccount(String)}, except that a request whose {@code If-None-Match} header matches the entity tag of
+   * the account waits up to {@code waitSeconds} for the account to change before being answered with {@code 304 Not Modified}.
+   */
+  @GetMapping(path = "/{accountId}", params = "waitSeconds")
+  public DeferredResult<ResponseEntity<Account>> awaitAccountChange(
+          @PathVariable final String accountId,
+          @RequestParam(name = "waitSeconds") final long waitSeconds,
+          @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) final String ifNoneMatch) {
+
+    final Account account = this.accountsService.getAccount(accountId);
+    final String entityTag = account == null ? null : account.getEntityTag();
+
+    if (entityTag == null || waitSeconds <= 0 || !matches(ifNoneMatch, entityTag)) {
+      final DeferredResult<ResponseEntity<Account>> result = new DeferredResult<>();
+      result.setResult(getAccount(accountId));
+      return result;
+    }
+
+    log.debug("Waiting up to {}s for a change to account {}", waitSeconds, accountId);
+    return this.accountChangeWaiters.awaitChange(account, entityTag, waitSeconds);
+  }
+
+  @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> getAccounts(@RequestParam(name = "accountIds") List<String> accountIds) {
+    return streamAccounts(accountIds);
+  }
+
+  /**
+   * Same as {@link #getAccounts(List)}, with the ids in the body, for batches too large for a URL.
+   */
+  @PostMapping(path = "/lookup", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> lookUpAccounts(@RequestBody List<String> accountIds) {
+    return streamAccounts(accountIds);
+  }
+
+  /**
+   * Writes the accounts which exist as a JSON array, looking every account up just before writing it,
+   * so that the response is never buffered as a whole. Every account is a snapshot of its own balance
+   * at the time it is written: the batch is not a consistent cut across accounts.
+   */
+  private ResponseEntity<StreamingResponseBody> streamAccounts(final List<String> accountIds) {
+
+    if (accountIds.size() > this.maxBatchSize) {
+
+      final byte[] message =
+              String
+                      .format("Failed to retrieve %s accounts. At most %s accounts can be retrieved at once.", accountIds.size(), this.maxBatchSize)
+                      .getBytes(StandardCharsets.UTF_8);
+
+      return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(out -> out.write(message));
+    }
+
+    log.info("Retrieving {} accounts", accountIds.size());
+
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON_UTF8).body(out -> {
+
+      try (final JsonGenerator generator = this.accountWriter.getFactory().createGenerator(out)) {
+
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.writeStartArray();
+
+        final Iterator<Account> accounts = this.accountsService.getAccounts(accountIds).iterator();
+        while (accounts.hasNext()) {
+          this.accountWriter.writeValue(generator, accounts.next());
+        }
+
+        generator.writeEndArray();
+      }
+    });
+  }
+
+  /**
+   * @return whether header {@code If-None-Match} is {@code *} or lists {@code entityTag}, weak or not
+   */
+  private static boolean matches(final String ifNoneMatch, final String entityTag) {
+
+    if (ifNoneMatch == null) {
+      return false;
+    }
+
+    for (final String tag : ifNoneMatch.split(",")) {
+      final String trimmed = tag.trim();
+      if (trimmed.equals("*") || trimmed.equals(entityTag) || trimmed.equals("W/" + entityTag)) {
+        return true;
+      }
+    }
+
+    return false;
   }
 
   @PatchMapping(path = "/transferMoney", produces = MediaType.APPLICATION_JSON_VALUE)
@@ -54,20 +179,23 @@ public class AccountsController {
           @RequestParam(name = "destinationAccountId") final String destinationAccountId,
           @RequestParam(name = "amount") final BigDecimal amount) {
 
+    // Invalid inputs are rejected before reaching the service, without throwing.
+    final String violation = TransferValidation.violation(sourceAccountId, destinationAccountId, amount);
+    if (violation != null) {
+
+      log.info("Rejecting transfer of amount '{}' from account '{}' to account '{}': {}", amount, sourceAccountId, destinationAccountId, violation);
+
+      return new ResponseEntity<>(
+              String.format("Failed to transfer amount '%s' from account '%s' to account '%s'.", amount, sourceAccountId, destinationAccountId),
+              HttpStatus.BAD_REQUEST
+      );
+    }
+
     MoneyTransferResult result = null;
     Throwable error = null;
     try {
       result = this.accountsService.transferMoney(sourceAccountId, destinationAccountId, amount);
 
-    } catch (final ConstraintViolationException e) {
-
-      error =
-              new MoneyTransferException(
-                      "Failed to transfer amount '%s' from account '%s' to account '%s'.",
-                      new Object[]{amount, sourceAccountId, destinationAccountId},
-                      e
-              );
-
     } catch (final Throwable t) {
       error = t;
     }
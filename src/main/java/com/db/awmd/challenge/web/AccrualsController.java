@@ -0,0 +1,55 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.service.AccrualService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+@RestController
+@RequestMapping("/v1/accruals")
+@Slf4j
+public class AccrualsController {
+
+  private final AccrualService accrualService;
+
+  @Autowired
+  public AccrualsController(AccrualService accrualService) {
+    this.accrualService = accrualService;
+  }
+
+  /**
+   * Applies interest and fees to all accounts, and responds once done. Starting a run again with the same id
+   * resumes it if it failed, and does nothing if it completed.
+   */
+  @PostMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Object> accrue(
+          @RequestParam(name = "runId") final String runId,
+          @RequestParam(name = "interestRate", defaultValue = "0") final BigDecimal interestRate,
+          @RequestParam(name = "fee", defaultValue = "0") final BigDecimal fee,
+          @RequestParam(name = "feeCurrency", defaultValue = Account.DEFAULT_CURRENCY) final String feeCurrency) {
+
+    try {
+      return new ResponseEntity<>(this.accrualService.accrue(runId, interestRate, fee, feeCurrency), HttpStatus.OK);
+
+    } catch (final IllegalArgumentException e) {
+      return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+
+    } catch (final IllegalStateException e) {
+      return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
+
+    } catch (final IOException e) {
+      log.error("Accrual run {} failed: {}", runId, e.getMessage(), e);
+      return new ResponseEntity<>("Accrual run failed: " + e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+  }
+}
@@ -0,0 +1,29 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.service.BalanceSubscriptionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/v1/balanceChanges")
+public class BalanceChangesController {
+
+  private final BalanceSubscriptionService balanceSubscriptionService;
+
+  @Autowired
+  public BalanceChangesController(BalanceSubscriptionService balanceSubscriptionService) {
+    this.balanceSubscriptionService = balanceSubscriptionService;
+  }
+
+  @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter subscribe(@RequestParam(name = "accountIds") final List<String> accountIds) {
+    return this.balanceSubscriptionService.subscribe(accountIds);
+  }
+}
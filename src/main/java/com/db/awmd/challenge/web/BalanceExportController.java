@@ -0,0 +1,73 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.service.BalanceExportFormat;
+import com.db.awmd.challenge.service.BalanceExportService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+@RestController
+@RequestMapping("/v1/balances/export")
+@Slf4j
+public class BalanceExportController {
+
+  private final BalanceExportService balanceExportService;
+
+  @Autowired
+  public BalanceExportController(BalanceExportService balanceExportService) {
+    this.balanceExportService = balanceExportService;
+  }
+
+  /**
+   * Streams a point-in-time snapshot of all balances. The snapshot is taken when the response starts being written.
+   */
+  @GetMapping
+  public ResponseEntity<StreamingResponseBody> exportBalances(
+          @RequestParam(name = "format", defaultValue = "ndjson") final String formatName) {
+
+    final BalanceExportFormat format;
+    try {
+      format = BalanceExportFormat.parse(formatName);
+
+    } catch (final IllegalArgumentException e) {
+      final byte[] message = e.getMessage().getBytes(StandardCharsets.UTF_8);
+      return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(out -> out.write(message));
+    }
+
+    return
+            ResponseEntity
+                    .ok()
+                    .contentType(MediaType.parseMediaType(format.getMediaType() + ";charset=UTF-8"))
+                    .body(out -> this.balanceExportService.export(format, out));
+  }
+
+  /**
+   * Writes a point-in-time snapshot of all balances to a file on the server.
+   */
+  @PostMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Object> exportBalancesToFile(
+          @RequestParam(name = "format", defaultValue = "ndjson") final String formatName) {
+
+    try {
+      return new ResponseEntity<>(this.balanceExportService.exportToFile(BalanceExportFormat.parse(formatName)), HttpStatus.CREATED);
+
+    } catch (final IllegalArgumentException e) {
+      return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+
+    } catch (final IOException e) {
+      log.error("Failed to export balances: {}", e.getMessage(), e);
+      return new ResponseEntity<>("Failed to export balances: " + e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+  }
+}
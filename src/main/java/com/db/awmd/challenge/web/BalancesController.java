@@ -0,0 +1,82 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.repository.BalanceIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.math.BigDecimal;
+
+@RestController
+@RequestMapping("/v1/balances")
+@ConditionalOnProperty(name = "accounts.balance-index.enabled", havingValue = "true")
+public class BalancesController {
+
+  private final BalanceIndex balanceIndex;
+
+  private final int maxLimit;
+
+  @Autowired
+  public BalancesController(
+          BalanceIndex balanceIndex,
+          @Value("${accounts.balance-index.max-page-size:1000}") int maxLimit) {
+
+    this.balanceIndex = balanceIndex;
+    this.maxLimit = maxLimit;
+  }
+
+  @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Object> findBalancesBelow(
+
+          @RequestParam(name = "currency", defaultValue = Account.DEFAULT_CURRENCY) final String currency,
+          @RequestParam(name = "below") final BigDecimal threshold,
+          @RequestParam(name = "limit", defaultValue = "100") final int limit,
+          @RequestParam(name = "cursor", required = false) final String cursor) {
+
+    if (limit < 1 || limit > this.maxLimit) {
+      return invalidLimit(limit);
+    }
+
+    try {
+      return new ResponseEntity<>(this.balanceIndex.findBalancesBelow(currency, threshold, limit, cursor), HttpStatus.OK);
+
+    } catch (final IllegalArgumentException e) {
+      return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+  }
+
+  @GetMapping(path = "/top", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Object> findTopBalances(
+
+          @RequestParam(name = "currency", defaultValue = Account.DEFAULT_CURRENCY) final String currency,
+          @RequestParam(name = "limit", defaultValue = "100") final int limit,
+          @RequestParam(name = "cursor", required = false) final String cursor) {
+
+    if (limit < 1 || limit > this.maxLimit) {
+      return invalidLimit(limit);
+    }
+
+    try {
+      return new ResponseEntity<>(this.balanceIndex.findTopBalances(currency, limit, cursor), HttpStatus.OK);
+
+    } catch (final IllegalArgumentException e) {
+      return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+  }
+
+  private ResponseEntity<Object> invalidLimit(final int limit) {
+
+    return new ResponseEntity<>(
+            String.format("Limit '%s' is not between 1 and %s.", limit, this.maxLimit),
+            HttpStatus.BAD_REQUEST
+    );
+  }
+}
@@ -0,0 +1,83 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.domain.Hold;
+import com.db.awmd.challenge.exception.HoldException;
+import com.db.awmd.challenge.exception.HoldNotFoundException;
+import com.db.awmd.challenge.service.HoldsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+
+@RestController
+@RequestMapping("/v1/holds")
+@Slf4j
+public class HoldsController {
+
+  private final HoldsService holdsService;
+
+  @Autowired
+  public HoldsController(HoldsService holdsService) {
+    this.holdsService = holdsService;
+  }
+
+  @PostMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Object> placeHold(
+
+          @RequestParam(name = "accountId") final String accountId,
+          @RequestParam(name = "amount") final BigDecimal amount,
+          @RequestParam(name = "ttlSeconds", required = false) final Long ttlSeconds) {
+
+    try {
+      return new ResponseEntity<>(this.holdsService.placeHold(accountId, amount, ttlSeconds), HttpStatus.CREATED);
+
+    } catch (final HoldException e) {
+      return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+  }
+
+  @GetMapping(path = "/{holdId}")
+  public ResponseEntity<Hold> getHold(@PathVariable final String holdId) {
+
+    final Hold hold = this.holdsService.getHold(holdId);
+
+    return hold == null ? new ResponseEntity<>(HttpStatus.NOT_FOUND) : new ResponseEntity<>(hold, HttpStatus.OK);
+  }
+
+  @PostMapping(path = "/{holdId}/capture", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Object> captureHold(
+
+          @PathVariable final String holdId,
+          @RequestParam(name = "destinationAccountId") final String destinationAccountId,
+          @RequestParam(name = "amount", required = false) final BigDecimal amount) {
+
+    try {
+      return new ResponseEntity<>(this.holdsService.captureHold(holdId, destinationAccountId, amount), HttpStatus.OK);
+
+    } catch (final HoldNotFoundException e) {
+      return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
+
+    } catch (final HoldException e) {
+      return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+  }
+
+  @DeleteMapping(path = "/{holdId}")
+  public ResponseEntity<Object> releaseHold(@PathVariable final String holdId) {
+
+    log.info("Releasing hold {}", holdId);
+
+    try {
+      this.holdsService.releaseHold(holdId);
+
+    } catch (final HoldNotFoundException e) {
+      return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
+    }
+
+    return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+  }
+}
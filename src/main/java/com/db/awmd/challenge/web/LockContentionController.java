@@ -0,0 +1,43 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.domain.LockContentionReport;
+import com.db.awmd.challenge.service.LockContentionProfiler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/v1/admin/lockContention")
+@ConditionalOnProperty(name = "accounts.lock-profiler.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class LockContentionController {
+
+  private final LockContentionProfiler lockContentionProfiler;
+
+  @Autowired
+  public LockContentionController(LockContentionProfiler lockContentionProfiler) {
+    this.lockContentionProfiler = lockContentionProfiler;
+  }
+
+  @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+  public LockContentionReport getReport() {
+    return this.lockContentionProfiler.getReport();
+  }
+
+  @DeleteMapping
+  public ResponseEntity<Object> reset() {
+
+    log.info("Resetting lock contention statistics");
+
+    this.lockContentionProfiler.reset();
+
+    return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+  }
+}
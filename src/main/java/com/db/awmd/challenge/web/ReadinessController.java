@@ -0,0 +1,31 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.service.StartupWarmUp;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Readiness probe, which fails until the application started and warmed up.
+ */
+@RestController
+@RequestMapping("/v1/readiness")
+public class ReadinessController {
+
+  private final StartupWarmUp startupWarmUp;
+
+  @Autowired
+  public ReadinessController(StartupWarmUp startupWarmUp) {
+    this.startupWarmUp = startupWarmUp;
+  }
+
+  @GetMapping
+  public ResponseEntity<Object> getReadiness() {
+    return this.startupWarmUp.isReady()
+            ? new ResponseEntity<>("Ready.", HttpStatus.OK)
+            : new ResponseEntity<>("Starting up.", HttpStatus.SERVICE_UNAVAILABLE);
+  }
+}
@@ -0,0 +1,67 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.domain.ScheduledTransfer;
+import com.db.awmd.challenge.service.TransferScheduler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+@RestController
+@RequestMapping("/v1/scheduledTransfers")
+@Slf4j
+public class ScheduledTransfersController {
+
+  private final TransferScheduler transferScheduler;
+
+  @Autowired
+  public ScheduledTransfersController(TransferScheduler transferScheduler) {
+    this.transferScheduler = transferScheduler;
+  }
+
+  @PostMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Object> scheduleTransfer(
+
+          @RequestParam(name = "sourceAccountId") final String sourceAccountId,
+          @RequestParam(name = "destinationAccountId") final String destinationAccountId,
+          @RequestParam(name = "amount") final BigDecimal amount,
+          @RequestParam(name = "executionTime") final Instant executionTime,
+          @RequestParam(name = "intervalSeconds", defaultValue = "0") final long intervalSeconds) {
+
+    try {
+      return new ResponseEntity<>(
+              this.transferScheduler.schedule(sourceAccountId, destinationAccountId, amount, executionTime, intervalSeconds),
+              HttpStatus.CREATED
+      );
+
+    } catch (final IllegalArgumentException e) {
+
+      return new ResponseEntity<>(
+              String.format(
+                      "Failed to schedule transfer of amount '%s' from account '%s' to account '%s'.",
+                      amount, sourceAccountId, destinationAccountId
+              ),
+              HttpStatus.BAD_REQUEST
+      );
+    }
+  }
+
+  @GetMapping(path = "/{id}")
+  public ResponseEntity<ScheduledTransfer> getScheduledTransfer(@PathVariable final String id) {
+
+    final ScheduledTransfer transfer = this.transferScheduler.getScheduledTransfer(id);
+
+    return transfer == null ? new ResponseEntity<>(HttpStatus.NOT_FOUND) : new ResponseEntity<>(transfer, HttpStatus.OK);
+  }
+
+  @DeleteMapping(path = "/{id}")
+  public ResponseEntity<Object> cancelScheduledTransfer(@PathVariable final String id) {
+    log.info("Cancelling scheduled transfer {}", id);
+    return new ResponseEntity<>(this.transferScheduler.cancel(id) ? HttpStatus.NO_CONTENT : HttpStatus.NOT_FOUND);
+  }
+}
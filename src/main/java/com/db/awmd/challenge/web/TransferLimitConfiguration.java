@@ -0,0 +1,62 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.utils.GradientLimiter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+/**
+ * Puts a {@link TransferLimitInterceptor} in front of the transfers, enabled with {@code accounts.transfer-limit.enabled}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "accounts.transfer-limit.enabled", havingValue = "true")
+@Slf4j
+public class TransferLimitConfiguration extends WebMvcConfigurerAdapter {
+
+  @Value("${accounts.transfer-limit.initial:20}")
+  private int initialLimit;
+
+  @Value("${accounts.transfer-limit.min:4}")
+  private int minLimit;
+
+  @Value("${accounts.transfer-limit.max:1000}")
+  private int maxLimit;
+
+  @Value("${accounts.transfer-limit.max-client-share:1}")
+  private double maxClientShare;
+
+  @Value("${accounts.transfer-limit.client-header:X-Client-Id}")
+  private String clientHeader;
+
+  @Value("${accounts.transfer-limit.retry-after-seconds:1}")
+  private int retryAfterSeconds;
+
+  @Bean
+  public TransferLimitInterceptor transferLimitInterceptor() {
+
+    log.info(
+            "Limiting transfers in progress adaptively from {} between {} and {}, at most {} of the limit per client",
+            this.initialLimit,
+            this.minLimit,
+            this.maxLimit,
+            this.maxClientShare
+    );
+
+    return
+            new TransferLimitInterceptor(
+                    new GradientLimiter(this.initialLimit, this.minLimit, this.maxLimit),
+                    this.maxClientShare,
+                    this.clientHeader,
+                    this.retryAfterSeconds
+            );
+  }
+
+  @Override
+  public void addInterceptors(final InterceptorRegistry registry) {
+    registry.addInterceptor(transferLimitInterceptor()).addPathPatterns("/v1/accounts/transferMoney");
+  }
+}
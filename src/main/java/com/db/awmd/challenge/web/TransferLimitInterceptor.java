@@ -0,0 +1,137 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.utils.GradientLimiter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sheds the transfers exceeding the concurrency limit of a {@link GradientLimiter} before they reach the service,
+ * with {@code 429 Too Many Requests} and a {@code Retry-After} header, so that the latency of the transfers admitted
+ * stays bounded under overload. {@code 503 Service Unavailable} would make Tomcat close the connection, and clients
+ * reconnecting would add to the overload.
+ *
+ * <p>Unless {@code maxClientShare} is 1, no client may have more than that share of the limit in progress,
+ * which leaves room for the other clients. Clients are told apart by the header {@code clientHeader},
+ * or by their address without it.</p>
+ */
+@Slf4j
+public class TransferLimitInterceptor extends HandlerInterceptorAdapter {
+
+  private static final String STARTED_NANOS = TransferLimitInterceptor.class.getName() + ".startedNanos";
+
+  private static final String CLIENT = TransferLimitInterceptor.class.getName() + ".client";
+
+  private final GradientLimiter limiter;
+
+  private final double maxClientShare;
+
+  private final String clientHeader;
+
+  private final String retryAfterSeconds;
+
+  /**
+   * Transfers in progress by client, only counted if {@code maxClientShare} is less than 1.
+   */
+  private final Map<String, Integer> clientsInFlight = new ConcurrentHashMap<>();
+
+  private final LongAdder rejected = new LongAdder();
+
+  public TransferLimitInterceptor(
+          final GradientLimiter limiter,
+          final double maxClientShare,
+          final String clientHeader,
+          final int retryAfterSeconds) {
+
+    this.limiter = limiter;
+    this.maxClientShare = maxClientShare;
+    this.clientHeader = clientHeader;
+    this.retryAfterSeconds = Integer.toString(retryAfterSeconds);
+  }
+
+  @Override
+  public boolean preHandle(final HttpServletRequest request, final HttpServletResponse response, final Object handler) throws IOException {
+
+    String client = null;
+
+    if (this.maxClientShare < 1) {
+      client = clientOf(request);
+      final int maxInFlight = Math.max(1, (int) Math.ceil(this.limiter.getLimit() * this.maxClientShare));
+
+      if (this.clientsInFlight.merge(client, 1, Integer::sum) > maxInFlight) {
+        releaseClient(client);
+        return reject(response, HttpStatus.TOO_MANY_REQUESTS, "Too many transfers in progress for client " + client + ".");
+      }
+    }
+
+    if (!this.limiter.tryAcquire()) {
+      if (client != null) {
+        releaseClient(client);
+      }
+      return reject(response, HttpStatus.TOO_MANY_REQUESTS, "Too many transfers in progress.");
+    }
+
+    request.setAttribute(STARTED_NANOS, System.nanoTime());
+    if (client != null) {
+      request.setAttribute(CLIENT, client);
+    }
+
+    return true;
+  }
+
+  @Override
+  public void afterCompletion(final HttpServletRequest request, final HttpServletResponse response, final Object handler, final Exception ex) {
+
+    final Long startedNanos = (Long) request.getAttribute(STARTED_NANOS);
+    if (startedNanos == null) {
+      return;
+    }
+
+    this.limiter.release(System.nanoTime() - startedNanos);
+
+    final String client = (String) request.getAttribute(CLIENT);
+    if (client != null) {
+      releaseClient(client);
+    }
+  }
+
+  /**
+   * @return the number of transfers rejected since the start
+   */
+  public long getRejected() {
+    return this.rejected.sum();
+  }
+
+  private String clientOf(final HttpServletRequest request) {
+
+    final String client = request.getHeader(this.clientHeader);
+
+    return client == null || client.isEmpty() ? request.getRemoteAddr() : client;
+  }
+
+  private void releaseClient(final String client) {
+    this.clientsInFlight.computeIfPresent(client, (c, inFlight) -> inFlight == 1 ? null : inFlight - 1);
+  }
+
+  private boolean reject(final HttpServletResponse response, final HttpStatus status, final String message) throws IOException {
+
+    this.rejected.increment();
+    log.debug("Rejected transfer with status {}, limit {}: {}", status.value(), this.limiter.getLimit(), message);
+
+    response.setStatus(status.value());
+    response.setHeader(HttpHeaders.RETRY_AFTER, this.retryAfterSeconds);
+    response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+    response.getWriter().write(message);
+
+    return false;
+  }
+}
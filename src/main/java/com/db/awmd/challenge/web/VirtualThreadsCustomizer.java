@@ -0,0 +1,42 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.utils.VirtualThreads;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.AbstractProtocol;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.embedded.ConfigurableEmbeddedServletContainer;
+import org.springframework.boot.context.embedded.EmbeddedServletContainerCustomizer;
+import org.springframework.boot.context.embedded.tomcat.TomcatEmbeddedServletContainerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs every request on a new virtual thread instead of a thread of the pool of Tomcat, so that the number of requests
+ * in progress is no longer capped by {@code server.tomcat.max-threads}. Requires Java 21 or later.
+ */
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+@Slf4j
+public class VirtualThreadsCustomizer implements EmbeddedServletContainerCustomizer {
+
+  @Override
+  public void customize(final ConfigurableEmbeddedServletContainer container) {
+
+    if (!VirtualThreads.isSupported()) {
+      throw new IllegalStateException("spring.threads.virtual.enabled requires Java 21 or later, the running Java version is " + System.getProperty("java.version"));
+    }
+
+    if (!(container instanceof TomcatEmbeddedServletContainerFactory)) {
+      throw new IllegalStateException("spring.threads.virtual.enabled is only supported with Tomcat, not " + container.getClass().getName());
+    }
+
+    ((TomcatEmbeddedServletContainerFactory) container).addConnectorCustomizers(connector -> {
+
+      final ProtocolHandler protocolHandler = connector.getProtocolHandler();
+      if (protocolHandler instanceof AbstractProtocol) {
+        ((AbstractProtocol<?>) protocolHandler).setExecutor(VirtualThreads.newThreadPerTaskExecutor("http-virtual-"));
+        log.info("Running requests of connector {} on virtual threads", connector);
+      }
+    });
+  }
+}
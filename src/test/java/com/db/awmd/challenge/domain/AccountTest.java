@@ -0,0 +1,76 @@
+package com.db.awmd.challenge.domain;
+
+import com.db.awmd.challenge.exception.OperationException;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class AccountTest {
+
+  @Test
+  public void versionCountsCommittedUpdates() throws Exception {
+
+    final Account account = new Account("Id-1", BigDecimal.TEN);
+    assertThat(account.getVersion()).isZero();
+
+    account.credit(BigDecimal.ONE);
+    account.hold(BigDecimal.ONE);
+    assertThatThrownBy(() -> account.debit(BigDecimal.valueOf(11))).isInstanceOf(OperationException.class);
+
+    assertThat(account.getVersion()).isEqualTo(2);
+    assertThat(account.getAvailableBalance()).isEqualByComparingTo("10");
+  }
+
+  @Test
+  public void concurrentUpdatesAreAllCommittedAndReadConsistently() throws Exception {
+
+    final int writers = 3;
+    final int captures = 20_000;
+    final Account account = new Account("Id-1", BigDecimal.valueOf(10L * writers * captures));
+
+    final ExecutorService executor = Executors.newFixedThreadPool(writers + 1);
+    final AtomicBoolean writing = new AtomicBoolean(true);
+
+    // Holding lowers the available balance and capturing leaves it unchanged: reading the balance and the held balance
+    // of different updates would show it going up.
+    final Future<?> reader = executor.submit(() -> {
+      BigDecimal previous = account.getAvailableBalance();
+      while (writing.get()) {
+        final BigDecimal available = account.getAvailableBalance();
+        assertThat(available).isLessThanOrEqualTo(previous);
+        previous = available;
+      }
+    });
+
+    final List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < writers; t++) {
+      futures.add(executor.submit(() -> {
+        for (int n = 0; n < captures; n++) {
+          account.hold(BigDecimal.TEN);
+          account.capture(BigDecimal.TEN);
+        }
+        return null;
+      }));
+    }
+
+    for (final Future<?> future : futures) {
+      future.get();
+    }
+    writing.set(false);
+    reader.get();
+    executor.shutdown();
+
+    assertThat(account.getBalance()).isEqualByComparingTo("0");
+    assertThat(account.getHeldBalance()).isEqualByComparingTo("0");
+    assertThat(account.getVersion()).isEqualTo(2L * writers * captures);
+  }
+}
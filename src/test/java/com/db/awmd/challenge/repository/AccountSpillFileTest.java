@@ -0,0 +1,85 @@
+package com.db.awmd.challenge.repository;
+
+import com.db.awmd.challenge.domain.Account;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AccountSpillFileTest {
+
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  private AccountSpillFile spillFile;
+
+  @Before
+  public void openFile() throws IOException {
+    this.spillFile = new AccountSpillFile(this.folder.getRoot().toPath(), 16);
+  }
+
+  @After
+  public void closeFile() throws IOException {
+    this.spillFile.close();
+  }
+
+  @Test
+  public void rewritingAnAccountReusesItsSlot() throws Exception {
+
+    for (int i = 0; i < 10; i++) {
+      this.spillFile.write(new Account("Id-" + i, BigDecimal.valueOf(i)));
+    }
+    final long length = this.spillFile.length();
+
+    // Evicted and faulted in again and again, with balances of growing length.
+    for (int n = 0; n < 10_000; n++) {
+      final Account account = this.spillFile.read("Id-" + n % 10);
+      account.credit(new BigDecimal("1.01"));
+      this.spillFile.write(account);
+    }
+
+    assertThat(this.spillFile.size()).isEqualTo(10);
+    assertThat(this.spillFile.length()).isLessThanOrEqualTo(4 * length);
+    assertThat(this.spillFile.read("Id-3").getBalance()).isEqualByComparingTo(new BigDecimal("1.01").multiply(BigDecimal.valueOf(1000)).add(BigDecimal.valueOf(3)));
+  }
+
+  @Test
+  public void readsNeverSeeARecordBeingRewritten() throws Exception {
+
+    this.spillFile.write(new Account("Id-0", BigDecimal.ZERO));
+
+    final AtomicBoolean writing = new AtomicBoolean(true);
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    final Future<Integer> reads = executor.submit(() -> {
+      int count = 0;
+      while (writing.get()) {
+        final Account account = this.spillFile.read("Id-0");
+        assertThat(account.getHeldBalance()).isEqualByComparingTo(account.getBalance());
+        count++;
+      }
+      return count;
+    });
+
+    try {
+      for (int n = 0; n < 20_000; n++) {
+        final BigDecimal amount = BigDecimal.valueOf(n, n % 7);
+        this.spillFile.write(new Account("Id-0", "EUR", amount, amount));
+      }
+    } finally {
+      writing.set(false);
+      executor.shutdown();
+    }
+
+    assertThat(reads.get()).isPositive();
+  }
+}
@@ -0,0 +1,181 @@
+package com.db.awmd.challenge.repository;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountBalance;
+import com.db.awmd.challenge.domain.AccountBalancePage;
+import com.db.awmd.challenge.exception.OperationException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BalanceIndexTest {
+
+  private AccountsRepositoryInMemory repository;
+
+  private BalanceIndex index;
+
+  @Before
+  public void beforeEveryTest() {
+
+    final AccountListeners listeners = new AccountListeners();
+    this.repository = new AccountsRepositoryInMemory(listeners);
+    this.index = new BalanceIndex(listeners);
+    this.index.start();
+
+    this.repository.createAccount(new Account("a", new BigDecimal("30")));
+    this.repository.createAccount(new Account("b", new BigDecimal("10")));
+    this.repository.createAccount(new Account("c", new BigDecimal("20.00")));
+    this.repository.createAccount(new Account("d", new BigDecimal("20")));
+  }
+
+  @Test
+  public void findBalancesBelow() {
+
+    assertThat(ids(this.index.findBalancesBelow("EUR", new BigDecimal("20"), 10, null))).containsExactly("b");
+    assertThat(ids(this.index.findBalancesBelow("EUR", new BigDecimal("20.01"), 10, null))).containsExactly("b", "c", "d");
+    assertThat(ids(this.index.findBalancesBelow("EUR", BigDecimal.ONE, 10, null))).isEmpty();
+  }
+
+  @Test
+  public void balancesAreOnlyComparedInTheSameCurrency() {
+
+    this.repository.createAccount(new Account("e", "JPY", new BigDecimal("1500"), BigDecimal.ZERO));
+    this.repository.createAccount(new Account("f", "JPY", new BigDecimal("15"), BigDecimal.ZERO));
+
+    assertThat(ids(this.index.findTopBalances("EUR", 10, null))).containsExactly("a", "d", "c", "b");
+    assertThat(ids(this.index.findTopBalances("JPY", 10, null))).containsExactly("e", "f");
+    assertThat(ids(this.index.findBalancesBelow("JPY", new BigDecimal("20"), 10, null))).containsExactly("f");
+    assertThat(ids(this.index.findTopBalances("USD", 10, null))).isEmpty();
+    assertThat(this.index.size()).isEqualTo(6);
+  }
+
+  @Test
+  public void findTopBalances_pagesWithCursor() {
+
+    final AccountBalancePage first = this.index.findTopBalances("EUR", 2, null);
+    assertThat(ids(first)).containsExactly("a", "d");
+    assertThat(first.getNextCursor()).isNotNull();
+
+    final AccountBalancePage second = this.index.findTopBalances("EUR", 2, first.getNextCursor());
+    assertThat(ids(second)).containsExactly("c", "b");
+    assertThat(second.getNextCursor()).isNull();
+  }
+
+  @Test
+  public void followsBalanceChanges() throws OperationException {
+
+    this.repository.getAccount("b").credit(new BigDecimal("100"));
+    this.repository.getAccount("a").debit(new BigDecimal("25"));
+
+    final List<AccountBalance> top = this.index.findTopBalances("EUR", 10, null).getAccounts();
+
+    assertThat(top).extracting("accountId").containsExactly("b", "d", "c", "a");
+    assertThat(top.get(0).getBalance()).isEqualByComparingTo("110");
+    assertThat(top.get(3).getBalance()).isEqualByComparingTo("5");
+  }
+
+  @Test
+  public void clearedAccountsAreNoLongerIndexed() throws OperationException {
+
+    final Account account = this.repository.getAccount("a");
+
+    this.repository.clearAccounts();
+    account.credit(BigDecimal.ONE);
+
+    assertThat(this.index.size()).isZero();
+  }
+
+  @Test
+  public void invalidCursorIsRejected() {
+
+    assertThatThrownBy(() -> this.index.findTopBalances("EUR", 10, "not a cursor"))
+            .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void staysConsistentWithConcurrentTransfers() throws InterruptedException {
+
+    final int accounts = 200;
+    for (int i = 0; i < accounts; i++) {
+      this.repository.createAccount(new Account("id-" + i, new BigDecimal("1000")));
+    }
+
+    final ExecutorService executor = Executors.newFixedThreadPool(8);
+    for (int t = 0; t < 8; t++) {
+      final Random random = new Random(t);
+      executor.execute(() -> {
+        for (int i = 0; i < 20_000; i++) {
+          try {
+            this.repository.getAccount("id-" + random.nextInt(accounts)).debit(BigDecimal.ONE);
+            this.repository.getAccount("id-" + random.nextInt(accounts)).credit(BigDecimal.ONE);
+          } catch (final OperationException e) {
+            throw new IllegalStateException(e);
+          }
+        }
+      });
+    }
+    executor.shutdown();
+    assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+    final List<AccountBalance> indexed = this.index.findTopBalances("EUR", accounts + 4, null).getAccounts();
+
+    assertThat(indexed).hasSize(accounts + 4);
+    for (final AccountBalance balance : indexed) {
+      assertThat(balance.getBalance()).isEqualByComparingTo(this.repository.getAccount(balance.getAccountId()).getBalance());
+    }
+  }
+
+  @Test
+  public void pagesListAccountsAtMostOnceDuringConcurrentTransfers() throws InterruptedException {
+
+    final int accounts = 200;
+    for (int i = 0; i < accounts; i++) {
+      this.repository.createAccount(new Account("id-" + i, new BigDecimal("1000")));
+    }
+
+    final AtomicBoolean running = new AtomicBoolean(true);
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    for (int t = 0; t < 4; t++) {
+      final Random random = new Random(t);
+      executor.execute(() -> {
+        while (running.get()) {
+          try {
+            this.repository.getAccount("id-" + random.nextInt(accounts)).credit(BigDecimal.ONE);
+            this.repository.getAccount("id-" + random.nextInt(accounts)).debit(BigDecimal.ONE);
+          } catch (final OperationException e) {
+            throw new IllegalStateException(e);
+          }
+        }
+      });
+    }
+
+    try {
+      for (int i = 0; i < 500; i++) {
+        assertThat(ids(this.index.findTopBalances("EUR", accounts + 4, null))).doesNotHaveDuplicates();
+        assertThat(ids(this.index.findBalancesBelow("EUR", new BigDecimal("1000"), accounts + 4, null))).doesNotHaveDuplicates();
+      }
+    } finally {
+      running.set(false);
+      executor.shutdown();
+    }
+    assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+  }
+
+  private static List<String> ids(final AccountBalancePage page) {
+
+    final List<String> ids = new ArrayList<>();
+    page.getAccounts().forEach(balance -> ids.add(balance.getAccountId()));
+    return ids;
+  }
+}
@@ -0,0 +1,90 @@
+package com.db.awmd.challenge.repository;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CompactAccountsRepositoryTest {
+
+  private final CompactAccountsRepository repository = new CompactAccountsRepository(new AccountListeners(), 16);
+
+  @Test
+  public void createAndGetAccounts() {
+
+    final Account account = new Account("Id-123", new BigDecimal("12.5"));
+    this.repository.createAccount(account);
+    this.repository.createAccount(new Account("Id-456"));
+
+    assertThat(this.repository.getAccount("Id-123")).isSameAs(account);
+    assertThat(account.getAccountId()).isEqualTo("Id-123");
+    assertThat(this.repository.getAccount("unknown")).isNull();
+    assertThat(this.repository.getAccounts(Arrays.asList("Id-456", "unknown", "Id-123")).map(Account::getAccountId).collect(Collectors.toList()))
+            .containsExactly("Id-456", "Id-123");
+  }
+
+  @Test
+  public void createAccount_failsOnDuplicateId() {
+
+    this.repository.createAccount(new Account("Id-123"));
+
+    assertThatThrownBy(() -> this.repository.createAccount(new Account("Id-123")))
+            .isInstanceOf(DuplicateAccountIdException.class);
+
+    this.repository.createAccount(new Account("Id-456"));
+    assertThat(this.repository.getAccount("Id-456").getAccountId()).isEqualTo("Id-456");
+  }
+
+  @Test
+  public void clearedAccountsKeepTheirIds() {
+
+    final Account account = new Account("Id-123");
+    this.repository.createAccount(account);
+
+    this.repository.clearAccounts();
+    this.repository.createAccount(new Account("Id-456"));
+
+    assertThat(this.repository.getAccount("Id-123")).isNull();
+    assertThat(account.getAccountId()).isEqualTo("Id-123");
+  }
+
+  @Test
+  public void createdAccountsAreAlwaysFound() throws InterruptedException {
+
+    final int count = 200_000;
+    final AtomicInteger created = new AtomicInteger();
+    final AtomicInteger missing = new AtomicInteger();
+
+    final ExecutorService executor = Executors.newFixedThreadPool(3);
+    executor.execute(() -> {
+      for (int i = 0; i < count; i++) {
+        this.repository.createAccount(new Account("Id-" + i));
+        created.set(i + 1);
+      }
+    });
+    for (int t = 0; t < 2; t++) {
+      executor.execute(() -> {
+        while (created.get() < count) {
+          final int i = created.get() - 1;
+          if (i >= 0 && this.repository.getAccount("Id-" + i) == null) {
+            missing.incrementAndGet();
+          }
+        }
+      });
+    }
+    executor.shutdown();
+
+    assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+    assertThat(missing.get()).isZero();
+  }
+}
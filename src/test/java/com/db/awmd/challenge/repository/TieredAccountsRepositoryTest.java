@@ -0,0 +1,223 @@
+package com.db.awmd.challenge.repository;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountListener;
+import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TieredAccountsRepositoryTest {
+
+  private static final int MAX_RESIDENT = 10;
+
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  private final AccountListeners listeners = new AccountListeners();
+
+  private TieredAccountsRepository repository;
+
+  @Before
+  public void startRepository() throws IOException {
+    this.repository = new TieredAccountsRepository(this.listeners, MAX_RESIDENT, 3_600_000, this.folder.getRoot().getPath());
+    this.repository.start();
+  }
+
+  @After
+  public void stopRepository() throws IOException {
+    this.repository.stop();
+  }
+
+  @Test
+  public void evictedAccountsAreFaultedInWithTheirState() throws Exception {
+
+    for (int i = 0; i < 50; i++) {
+      final Account account = new Account("Id-" + i, BigDecimal.valueOf(100 + i));
+      this.repository.createAccount(account);
+      account.hold(BigDecimal.valueOf(i));
+    }
+
+    this.repository.evict();
+    assertThat(this.repository.residentCount()).isLessThanOrEqualTo(MAX_RESIDENT * 9 / 10);
+
+    for (int i = 0; i < 50; i++) {
+      final Account account = this.repository.getAccount("Id-" + i);
+      assertThat(account.getBalance()).isEqualByComparingTo(BigDecimal.valueOf(100 + i));
+      assertThat(account.getHeldBalance()).isEqualByComparingTo(BigDecimal.valueOf(i));
+    }
+    assertThat(this.repository.getAccount("unknown")).isNull();
+  }
+
+  @Test
+  public void frequentlyUsedAccountsStayResident() {
+
+    for (int i = 0; i < 2 * MAX_RESIDENT; i++) {
+      this.repository.createAccount(new Account("Id-" + i));
+    }
+    for (int n = 0; n < 5; n++) {
+      this.repository.getAccount("Id-3");
+    }
+
+    this.repository.evict();
+
+    assertThat(this.repository.residentCount()).isLessThanOrEqualTo(MAX_RESIDENT);
+    assertThat(this.repository.isResident("Id-3")).isTrue();
+  }
+
+  @Test
+  public void accountsLookedUpConcurrentlyStayResident() throws Exception {
+
+    for (int i = 0; i < 2 * MAX_RESIDENT; i++) {
+      this.repository.createAccount(new Account("Id-" + i));
+    }
+
+    // Enough lookups to fill the access buffers of every thread several times.
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    final List<Future<?>> workers = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      workers.add(executor.submit(() -> {
+        for (int n = 0; n < 10_000; n++) {
+          this.repository.getAccount("Id-3");
+        }
+      }));
+    }
+    executor.shutdown();
+    for (final Future<?> worker : workers) {
+      worker.get();
+    }
+
+    this.repository.evict();
+
+    assertThat(this.repository.residentCount()).isLessThanOrEqualTo(MAX_RESIDENT);
+    assertThat(this.repository.isResident("Id-3")).isTrue();
+  }
+
+  @Test
+  public void referencedAccountsKeepTheirIdentityAndChanges() throws Exception {
+
+    final Account account = new Account("Id-0", BigDecimal.TEN);
+    this.repository.createAccount(account);
+    for (int i = 1; i < 2 * MAX_RESIDENT; i++) {
+      this.repository.createAccount(new Account("Id-" + i));
+      this.repository.getAccount("Id-" + i);
+    }
+
+    this.repository.evict();
+    assertThat(this.repository.isResident("Id-0")).isFalse();
+    final int resident = this.repository.residentCount();
+
+    // The account is evicted, but changed through the reference kept by a caller.
+    account.credit(BigDecimal.ONE);
+
+    assertThat(this.repository.isResident("Id-0")).isTrue();
+    assertThat(this.repository.residentCount()).isEqualTo(resident + 1);
+    assertThat(this.repository.getAccount("Id-0")).isSameAs(account);
+    assertThat(account.getBalance()).isEqualByComparingTo("11");
+  }
+
+  @Test
+  public void createAccount_failsOnDuplicateIdOfEvictedAccount() {
+
+    for (int i = 0; i < 2 * MAX_RESIDENT; i++) {
+      this.repository.createAccount(new Account("Id-" + i));
+    }
+    this.repository.evict();
+
+    for (int i = 0; i < 2 * MAX_RESIDENT; i++) {
+      final String accountId = "Id-" + i;
+      assertThatThrownBy(() -> this.repository.createAccount(new Account(accountId)))
+              .isInstanceOf(DuplicateAccountIdException.class);
+    }
+  }
+
+  @Test
+  public void clearAccountsRemovesEvictedAccounts() {
+
+    final List<String> removed = new ArrayList<>();
+    this.listeners.add(new AccountListener() {
+      @Override
+      public void accountRemoved(final Account account) {
+        removed.add(account.getAccountId());
+      }
+    });
+
+    for (int i = 0; i < 2 * MAX_RESIDENT; i++) {
+      this.repository.createAccount(new Account("Id-" + i));
+    }
+    this.repository.evict();
+    this.repository.getAccount("Id-0");
+
+    this.repository.clearAccounts();
+
+    assertThat(removed).hasSize(2 * MAX_RESIDENT).doesNotHaveDuplicates();
+    assertThat(this.repository.getAccount("Id-0")).isNull();
+    assertThat(this.repository.residentCount()).isZero();
+    this.repository.createAccount(new Account("Id-0"));
+  }
+
+  @Test
+  public void moneyIsConservedWhileAccountsAreEvicted() throws Exception {
+
+    final int accounts = 5 * MAX_RESIDENT;
+    for (int i = 0; i < accounts; i++) {
+      this.repository.createAccount(new Account("Id-" + i, BigDecimal.valueOf(1_000)));
+    }
+
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    final List<Future<?>> workers = new ArrayList<>();
+    for (int t = 0; t < 3; t++) {
+      final Random random = new Random(t);
+      workers.add(executor.submit(() -> {
+        for (int n = 0; n < 20_000; n++) {
+          final Account account = this.repository.getAccount("Id-" + random.nextInt(accounts));
+          if (random.nextBoolean()) {
+            account.credit(BigDecimal.ONE);
+          } else {
+            account.debit(BigDecimal.ONE);
+          }
+        }
+        return null;
+      }));
+    }
+    workers.add(executor.submit(() -> {
+      for (int n = 0; n < 200; n++) {
+        this.repository.evict();
+        Thread.yield();
+      }
+    }));
+    executor.shutdown();
+
+    long credits = 0;
+    for (final Future<?> worker : workers) {
+      worker.get();
+    }
+    for (int t = 0; t < 3; t++) {
+      final Random random = new Random(t);
+      for (int n = 0; n < 20_000; n++) {
+        random.nextInt(accounts);
+        credits += random.nextBoolean() ? 1 : -1;
+      }
+    }
+
+    BigDecimal total = BigDecimal.ZERO;
+    for (int i = 0; i < accounts; i++) {
+      total = total.add(this.repository.getAccount("Id-" + i).getBalance());
+    }
+    assertThat(total).isEqualByComparingTo(BigDecimal.valueOf(1_000L * accounts + credits));
+  }
+}
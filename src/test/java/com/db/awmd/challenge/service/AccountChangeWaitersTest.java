@@ -0,0 +1,79 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountListener;
+import com.db.awmd.challenge.repository.AccountListeners;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AccountChangeWaitersTest {
+
+  private final AccountListeners listeners = new AccountListeners();
+
+  private final AccountsRepositoryInMemory repository = new AccountsRepositoryInMemory(this.listeners);
+
+  private final AccountChangeWaiters waiters = new AccountChangeWaiters(this.listeners, 1, 60, false);
+
+  @Before
+  public void start() {
+    this.waiters.start();
+  }
+
+  @After
+  public void stop() {
+    this.waiters.stop();
+  }
+
+  @Test
+  public void waitersRegisteredDuringAChangeAreCompleted() throws Exception {
+
+    final Account account = new Account("Id-1", new BigDecimal("100"));
+    this.repository.createAccount(account);
+
+    final String entityTag = account.getEntityTag();
+    final AtomicReference<DeferredResult<ResponseEntity<Account>>> waiter = new AtomicReference<>();
+    final AtomicBoolean registering = new AtomicBoolean();
+
+    // Registers a waiter for the old version once the waiters were notified, but before the change is visible.
+    this.listeners.add(new AccountListener() {
+      @Override
+      public void balanceChanged(final Account changed, final BigDecimal oldBalance, final BigDecimal newBalance) {
+
+        if (registering.compareAndSet(false, true)) {
+          final Thread thread = new Thread(() -> waiter.set(AccountChangeWaitersTest.this.waiters.awaitChange(account, entityTag, 60)));
+          thread.start();
+          try {
+            thread.join(200);
+          } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      }
+    });
+
+    account.credit(BigDecimal.TEN);
+
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while ((waiter.get() == null || !waiter.get().hasResult()) && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+
+    assertThat(waiter.get()).isNotNull();
+    assertThat(waiter.get().hasResult()).isTrue();
+
+    @SuppressWarnings("unchecked")
+    final ResponseEntity<Account> response = (ResponseEntity<Account>) waiter.get().getResult();
+    assertThat(response.getHeaders().getETag()).isEqualTo(account.getEntityTag());
+  }
+}
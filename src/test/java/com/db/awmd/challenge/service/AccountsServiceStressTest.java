@@ -0,0 +1,285 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountListener;
+import com.db.awmd.challenge.exception.MoneyTransferException;
+import com.db.awmd.challenge.exception.OperationException;
+import com.db.awmd.challenge.repository.AccountListeners;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.rules.SpringClassRule;
+import org.springframework.test.context.junit4.rules.SpringMethodRule;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs randomized concurrent transfers, credits and debits, and checks that:
+ * <ul>
+ *   <li>money is conserved: the sum of the balances is the initial sum, plus the credits, minus the debits,</li>
+ *   <li>no balance is ever negative, not even transiently,</li>
+ *   <li>no thread deadlocks.</li>
+ * </ul>
+ *
+ * <p>Every run is identified by its topology and seed, printed on failure. The operations of a run are reproducible
+ * from its seed; their interleaving is not. More seeds and operations can be run with
+ * {@code -Dstress.seeds=<number of seeds>}, {@code -Dstress.seed=<first seed>} and {@code -Dstress.operations=<number per thread>}.</p>
+ */
+@RunWith(Parameterized.class)
+@SpringBootTest(properties = {"logging.level.com.db.awmd.challenge=WARN", "logging.level.com.db.awmd.challenge.service.AccountsService=OFF"})
+public class AccountsServiceStressTest {
+
+  @ClassRule
+  public static final SpringClassRule SPRING_CLASS_RULE = new SpringClassRule();
+
+  private static final int THREADS = 8;
+
+  private static final long TIMEOUT_SECONDS = 60;
+
+  /**
+   * Which accounts take part in an operation.
+   */
+  private enum Topology {
+
+    /**
+     * Two accounts transferring to each other, the worst case for lock ordering.
+     */
+    PAIR(2) {
+      @Override
+      int pick(final Random random, final int accounts) {
+        return random.nextInt(accounts);
+      }
+    },
+
+    /**
+     * Every operation involves the first account.
+     */
+    STAR(16) {
+      @Override
+      int pick(final Random random, final int accounts) {
+        return random.nextBoolean() ? 0 : random.nextInt(accounts);
+      }
+    },
+
+    /**
+     * Accounts are picked with a heavily skewed distribution.
+     */
+    SKEWED(256) {
+      @Override
+      int pick(final Random random, final int accounts) {
+        return (int) (accounts * Math.pow(random.nextDouble(), 4));
+      }
+    },
+
+    UNIFORM(256) {
+      @Override
+      int pick(final Random random, final int accounts) {
+        return random.nextInt(accounts);
+      }
+    };
+
+    private final int accounts;
+
+    Topology(final int accounts) {
+      this.accounts = accounts;
+    }
+
+    abstract int pick(Random random, int accounts);
+  }
+
+  @Parameterized.Parameters(name = "{0}, seed {1}")
+  public static Collection<Object[]> runs() {
+
+    final long firstSeed = Long.getLong("stress.seed", 1L);
+    final int seeds = Integer.getInteger("stress.seeds", 2);
+
+    final List<Object[]> runs = new ArrayList<>();
+    for (final Topology topology : Topology.values()) {
+      for (long seed = firstSeed; seed < firstSeed + seeds; seed++) {
+        runs.add(new Object[]{topology, seed});
+      }
+    }
+
+    return runs;
+  }
+
+  @Rule
+  public final SpringMethodRule springMethodRule = new SpringMethodRule();
+
+  @Parameterized.Parameter(0)
+  public Topology topology;
+
+  @Parameterized.Parameter(1)
+  public long seed;
+
+  @Autowired
+  private AccountsService accountsService;
+
+  @Autowired
+  private AccountListeners accountListeners;
+
+  @MockBean
+  private NotificationService notificationService;
+
+  private final Queue<String> violations = new ConcurrentLinkedQueue<>();
+
+  private final AccountListener nonNegativeBalanceChecker = new AccountListener() {
+    @Override
+    public void balanceChanged(final Account account, final BigDecimal oldBalance, final BigDecimal newBalance) {
+      if (newBalance.signum() < 0) {
+        AccountsServiceStressTest.this.violations.add(
+                String.format("Balance of account %s went from %s to %s", account.getAccountId(), oldBalance, newBalance));
+      }
+    }
+  };
+
+  @Before
+  public void beforeEveryTest() {
+    this.accountsService.getAccountsRepository().clearAccounts();
+    this.accountListeners.add(this.nonNegativeBalanceChecker);
+  }
+
+  @After
+  public void afterEveryTest() {
+    this.accountListeners.remove(this.nonNegativeBalanceChecker);
+    this.accountsService.getAccountsRepository().clearAccounts();
+  }
+
+  @Test
+  public void invariantsHoldUnderConcurrentOperations() throws Exception {
+
+    final int operations = Integer.getInteger("stress.operations", 2_000);
+    final Random setup = new Random(this.seed);
+
+    BigDecimal initialTotal = BigDecimal.ZERO;
+    for (int i = 0; i < this.topology.accounts; i++) {
+      final BigDecimal balance = BigDecimal.valueOf(setup.nextInt(100_000), 2);
+      this.accountsService.createAccount(new Account(accountId(i), balance));
+      initialTotal = initialTotal.add(balance);
+    }
+
+    final LongAdder creditedCents = new LongAdder();
+    final LongAdder debitedCents = new LongAdder();
+    final CountDownLatch start = new CountDownLatch(1);
+
+    final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    final List<Future<?>> workers = new ArrayList<>();
+    for (int t = 0; t < THREADS; t++) {
+      final Random random = new Random(this.seed * 31 + t);
+      workers.add(executor.submit(() -> {
+        start.await();
+        for (int i = 0; i < operations; i++) {
+          runOperation(random, creditedCents, debitedCents);
+        }
+        return null;
+      }));
+    }
+
+    start.countDown();
+    executor.shutdown();
+    awaitWithoutDeadlock(executor);
+
+    for (final Future<?> worker : workers) {
+      worker.get();
+    }
+
+    BigDecimal total = BigDecimal.ZERO;
+    for (int i = 0; i < this.topology.accounts; i++) {
+      final BigDecimal balance = this.accountsService.getAccount(accountId(i)).getBalance();
+      assertThat(balance.signum()).as(describe("balance of account " + accountId(i))).isGreaterThanOrEqualTo(0);
+      total = total.add(balance);
+    }
+
+    final BigDecimal expectedTotal =
+            initialTotal
+                    .add(BigDecimal.valueOf(creditedCents.sum(), 2))
+                    .subtract(BigDecimal.valueOf(debitedCents.sum(), 2));
+
+    assertThat(this.violations).as(describe("non-negative balances")).isEmpty();
+    assertThat(total).as(describe("sum of the balances")).isEqualByComparingTo(expectedTotal);
+  }
+
+  private void runOperation(final Random random, final LongAdder creditedCents, final LongAdder debitedCents) {
+
+    final int accounts = this.topology.accounts;
+    final String accountId = accountId(this.topology.pick(random, accounts));
+    final long cents = 1 + random.nextInt(random.nextInt(10) == 0 ? 100_000 : 1_000);
+    final BigDecimal amount = BigDecimal.valueOf(cents, 2);
+
+    final int operation = random.nextInt(10);
+    try {
+      if (operation < 7) {
+        this.accountsService.transferMoney(accountId, accountId(this.topology.pick(random, accounts)), amount);
+
+      } else if (operation == 7) {
+        this.accountsService.getAccount(accountId).credit(amount);
+        creditedCents.add(cents);
+
+      } else if (operation == 8) {
+        this.accountsService.getAccount(accountId).debit(amount);
+        debitedCents.add(cents);
+
+      } else {
+        this.accountsService.transferMoney(accountId, "unknown", amount);
+      }
+
+    } catch (final MoneyTransferException | OperationException e) {
+      // Insufficient funds or unknown account: the operation is rejected without any effect.
+    }
+  }
+
+  private void awaitWithoutDeadlock(final ExecutorService executor) throws InterruptedException {
+
+    final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+
+    while (!executor.awaitTermination(100, TimeUnit.MILLISECONDS)) {
+
+      final long[] deadlocked = threads.findDeadlockedThreads();
+      if (deadlocked != null) {
+        executor.shutdownNow();
+        fail(describe("deadlock") + Arrays.toString(threads.getThreadInfo(deadlocked, true, true)));
+      }
+
+      if (System.nanoTime() > deadline) {
+        final ThreadInfo[] dump = threads.dumpAllThreads(true, true);
+        executor.shutdownNow();
+        fail(describe("timeout") + Arrays.toString(dump));
+      }
+    }
+  }
+
+  private String describe(final String invariant) {
+    return String.format("[%s, seed %s] %s", this.topology, this.seed, invariant);
+  }
+
+  private static String accountId(final int index) {
+    return "stress-" + index;
+  }
+}
@@ -11,14 +11,15 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
 
-import javax.validation.ConstraintViolationException;
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -56,6 +57,9 @@ public class AccountsServiceTest {
   @MockBean
   private NotificationService notificationService;
 
+  @Autowired
+  private FxRates fxRates;
+
   @Before
   public void beforeEveryTest() {
     this.accountsService.getAccountsRepository().clearAccounts();
@@ -90,47 +94,47 @@ public class AccountsServiceTest {
 
   @Test
   public void transferMoney_failsIfSourceAccountIdIsNull() {
-    assertConstraintViolationException(null, "2", BigDecimal.ONE);
+    assertInvalidInput(null, "2", BigDecimal.ONE);
   }
 
   @Test
   public void transferMoney_failsIfSourceAccountIdIsEmpty() {
-    assertConstraintViolationException("", "2", BigDecimal.ONE);
+    assertInvalidInput("", "2", BigDecimal.ONE);
   }
 
   @Test
   public void transferMoney_failsIfSourceAccountIdIsBlank() {
-    assertConstraintViolationException(" \t  \r  ", "2", BigDecimal.ONE);
+    assertInvalidInput(" \t  \r  ", "2", BigDecimal.ONE);
   }
 
   @Test
   public void transferMoney_failsIfDestinationAccountIdIsNull() {
-    assertConstraintViolationException("1", null, BigDecimal.ONE);
+    assertInvalidInput("1", null, BigDecimal.ONE);
   }
 
   @Test
   public void transferMoney_failsIfDestinationAccountIdIsEmpty() {
-    assertConstraintViolationException("1", "", BigDecimal.ONE);
+    assertInvalidInput("1", "", BigDecimal.ONE);
   }
 
   @Test
   public void transferMoney_failsIfDestinationAccountIdIsBlank() {
-    assertConstraintViolationException("1", " \t  \r  ", BigDecimal.ONE);
+    assertInvalidInput("1", " \t  \r  ", BigDecimal.ONE);
   }
 
   @Test
   public void transferMoney_failsIfAmountIsNull() {
-    assertConstraintViolationException("1", "2", null);
+    assertInvalidInput("1", "2", null);
   }
 
   @Test
   public void transferMoney_failsIfAmountIsZero() {
-    assertConstraintViolationException("1", "2", BigDecimal.ZERO);
+    assertInvalidInput("1", "2", BigDecimal.ZERO);
   }
 
   @Test
   public void transferMoney_failsIfAmountIsNegative() {
-    assertConstraintViolationException("1", "2", new BigDecimal("-0.00000000000000000000000001"));
+    assertInvalidInput("1", "2", new BigDecimal("-0.00000000000000000000000001"));
   }
 
   @Test
@@ -180,6 +184,42 @@ public class AccountsServiceTest {
             .hasStackTraceContaining("Current balance is less than the amount to be debited.");
   }
 
+  @Test
+  public void transferMoney_convertsAmountToDestinationCurrency() throws MoneyTransferException {
+
+    this.fxRates.publish("EUR", Collections.singletonMap("USD", new BigDecimal("1.0843")), Instant.now());
+
+    this.accountsService.createAccount(new Account("source", new BigDecimal("100"), "EUR"));
+    this.accountsService.createAccount(new Account("destination", new BigDecimal("10"), "USD"));
+
+    final MoneyTransferResult result = this.accountsService.transferMoney("source", "destination", new BigDecimal("12.34"));
+
+    assertThat(result.getCurrency()).isEqualTo("EUR");
+    assertThat(result.getDestinationAmount()).isEqualTo(new BigDecimal("13.38"));
+    assertThat(result.getDestinationCurrency()).isEqualTo("USD");
+    assertThat(getAccountBalance("source")).isEqualTo(new BigDecimal("87.66"));
+    assertThat(getAccountBalance("destination")).isEqualTo(new BigDecimal("23.38"));
+
+    Mockito.verify(this.notificationService).notifyAboutTransfer(
+            this.accountsService.getAccount("source"), "Amount 12.34 EUR was transferred from your account to account destination.");
+    Mockito.verify(this.notificationService).notifyAboutTransfer(
+            this.accountsService.getAccount("destination"), "Amount 13.38 USD was transferred from account source to your account.");
+  }
+
+  @Test
+  public void transferMoney_failsIfThereIsNoExchangeRate() {
+
+    this.accountsService.createAccount(new Account("source", new BigDecimal("100"), "EUR"));
+    this.accountsService.createAccount(new Account("destination", new BigDecimal("10"), "XTS"));
+
+    assertThatThrownBy(() -> this.accountsService.transferMoney("source", "destination", BigDecimal.ONE))
+            .isInstanceOf(MoneyTransferException.class)
+            .hasRootCauseInstanceOf(OperationException.class)
+            .hasStackTraceContaining("No exchange rate from EUR to XTS.");
+
+    assertThat(getAccountBalance("source")).isEqualTo(new BigDecimal("100"));
+  }
+
   @Test
   public void transferMoney_sourceAccountIsRefundedIfDestinationAccountsBalanceCouldNotBeUpdated() throws OperationException {
 
@@ -309,8 +349,9 @@ public class AccountsServiceTest {
   }
 
 
-  private void assertConstraintViolationException(String sourceAccountId, String destinationAccountId, BigDecimal amount) {
+  private void assertInvalidInput(String sourceAccountId, String destinationAccountId, BigDecimal amount) {
     assertThatThrownBy(() -> this.accountsService.transferMoney(sourceAccountId, destinationAccountId, amount))
-            .isInstanceOf(ConstraintViolationException.class);
+            .isInstanceOf(MoneyTransferException.class)
+            .hasCauseInstanceOf(OperationException.class);
   }
 }
@@ -0,0 +1,162 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccrualReport;
+import com.db.awmd.challenge.repository.AccountListeners;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class AccrualServiceTest {
+
+  private static final int PARTITIONS = 4;
+
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  private final AccountsRepositoryInMemory repository = new AccountsRepositoryInMemory(new AccountListeners());
+
+  private AccrualService accrualService;
+
+  @Before
+  public void start() {
+    this.accrualService = new AccrualService(this.repository, new FxRates(), PARTITIONS, 2, this.folder.getRoot().toString());
+  }
+
+  @After
+  public void stop() throws InterruptedException {
+    this.accrualService.stop();
+  }
+
+  private BigDecimal balance(final String accountId) {
+    return this.repository.getAccount(accountId).getBalance();
+  }
+
+  @Test
+  public void interestIsCreditedAndFeesDebited() throws IOException {
+
+    this.repository.createAccount(new Account("Id-1", new BigDecimal("1000")));
+    this.repository.createAccount(new Account("Id-2", new BigDecimal("1")));
+    this.repository.createAccount(new Account("Id-3", new BigDecimal("100"), "USD"));
+
+    final AccrualReport report = this.accrualService.accrue("2026-10", new BigDecimal("0.0125"), new BigDecimal("2"), "EUR");
+
+    assertThat(balance("Id-1")).isEqualByComparingTo("1010.50");
+    // Neither the fee, for lack of funds, nor the rate, for lack of an exchange rate, could be applied.
+    assertThat(balance("Id-2")).isEqualByComparingTo("1");
+    assertThat(balance("Id-3")).isEqualByComparingTo("100");
+
+    assertThat(report.getPartitions()).isEqualTo(PARTITIONS);
+    assertThat(report.getAccountsAccrued()).isEqualTo(1);
+    assertThat(report.getAccountsFailed()).isEqualTo(2);
+  }
+
+  @Test
+  public void runsAreAppliedOnce() throws IOException {
+
+    for (int i = 0; i < 100; i++) {
+      this.repository.createAccount(new Account("Id-" + i, new BigDecimal("100")));
+    }
+
+    assertThat(this.accrualService.accrue("2026-10", new BigDecimal("0.01"), BigDecimal.ZERO, "EUR").getAccountsAccrued()).isEqualTo(100);
+
+    final AccrualReport completed = this.accrualService.accrue("2026-10", new BigDecimal("0.01"), BigDecimal.ZERO, "EUR");
+    assertThat(completed.getPartitionsResumed()).isEqualTo(PARTITIONS);
+    assertThat(completed.getAccountsAccrued()).isZero();
+
+    // Without its checkpoint, the run still finds every account already accrued.
+    Files.delete(this.folder.getRoot().toPath().resolve("accrual-2026-10.checkpoint"));
+    final AccrualReport restarted = this.accrualService.accrue("2026-10", new BigDecimal("0.01"), BigDecimal.ZERO, "EUR");
+    assertThat(restarted.getAccountsSkipped()).isEqualTo(100);
+
+    for (int i = 0; i < 100; i++) {
+      assertThat(balance("Id-" + i)).isEqualByComparingTo("101");
+    }
+  }
+
+  @Test
+  public void failedAccountsAreNotRecordedAsAccrued() throws Exception {
+
+    this.repository.createAccount(new Account("Id-1", new BigDecimal("1")));
+
+    assertThat(this.accrualService.accrue("2026-10", BigDecimal.ZERO, new BigDecimal("2"), "EUR").getAccountsFailed()).isEqualTo(1);
+    assertThat(balance("Id-1")).isEqualByComparingTo("1");
+
+    this.repository.getAccount("Id-1").credit(BigDecimal.ONE);
+
+    // Without its checkpoint, the run applies the fee it failed to debit before.
+    Files.delete(this.folder.getRoot().toPath().resolve("accrual-2026-10.checkpoint"));
+    final AccrualReport restarted = this.accrualService.accrue("2026-10", BigDecimal.ZERO, new BigDecimal("2"), "EUR");
+    assertThat(restarted.getAccountsAccrued()).isEqualTo(1);
+    assertThat(restarted.getAccountsSkipped()).isZero();
+    assertThat(balance("Id-1")).isEqualByComparingTo("0");
+  }
+
+  @Test
+  public void runsResumeWithThePartitionsLeft() throws IOException {
+
+    for (int i = 0; i < 100; i++) {
+      this.repository.createAccount(new Account("Id-" + i, new BigDecimal("100")));
+    }
+
+    Files.write(
+            this.folder.getRoot().toPath().resolve("accrual-2026-10.checkpoint"),
+            Arrays.asList("interestRate=0.01 fee=0 feeCurrency=EUR partitions=4", "0", "2"),
+            StandardCharsets.UTF_8
+    );
+
+    assertThatThrownBy(() -> this.accrualService.accrue("2026-10", new BigDecimal("0.02"), BigDecimal.ZERO, "EUR"))
+            .isInstanceOf(IllegalArgumentException.class);
+
+    final AccrualReport report = this.accrualService.accrue("2026-10", new BigDecimal("0.01"), BigDecimal.ZERO, "EUR");
+    assertThat(report.getPartitionsResumed()).isEqualTo(2);
+
+    long accrued = 0;
+    for (int i = 0; i < 100; i++) {
+      final int partition = Math.floorMod(("Id-" + i).hashCode(), PARTITIONS);
+      assertThat(balance("Id-" + i)).isEqualByComparingTo(partition == 0 || partition == 2 ? "100" : "101");
+      accrued += partition == 0 || partition == 2 ? 0 : 1;
+    }
+    assertThat(report.getAccountsAccrued()).isEqualTo(accrued);
+  }
+
+  @Test
+  public void otherRunsWaitForAnIncompleteRun() throws IOException {
+
+    for (int i = 0; i < 100; i++) {
+      this.repository.createAccount(new Account("Id-" + i, new BigDecimal("100")));
+    }
+
+    // Run A was applied to every account, but failed before recording the partitions but one.
+    this.accrualService.accrue("A", new BigDecimal("0.01"), BigDecimal.ZERO, "EUR");
+    Files.write(
+            this.folder.getRoot().toPath().resolve("accrual-A.checkpoint"),
+            Arrays.asList("interestRate=0.01 fee=0 feeCurrency=EUR partitions=4", "0"),
+            StandardCharsets.UTF_8
+    );
+
+    assertThatThrownBy(() -> this.accrualService.accrue("B", new BigDecimal("0.01"), BigDecimal.ZERO, "EUR"))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("Accrual run A has not completed");
+
+    assertThat(this.accrualService.accrue("A", new BigDecimal("0.01"), BigDecimal.ZERO, "EUR").getAccountsAccrued()).isZero();
+    assertThat(this.accrualService.accrue("B", new BigDecimal("0.01"), BigDecimal.ZERO, "EUR").getAccountsAccrued()).isEqualTo(100);
+
+    // Both runs were applied once to every account.
+    for (int i = 0; i < 100; i++) {
+      assertThat(balance("Id-" + i)).isEqualByComparingTo("102.01");
+    }
+  }
+}
@@ -0,0 +1,131 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.ExportedBalance;
+import com.db.awmd.challenge.repository.AccountListeners;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BalanceSnapshotsTest {
+
+  private final AccountListeners listeners = new AccountListeners();
+
+  private final AccountsRepositoryInMemory repository = new AccountsRepositoryInMemory(this.listeners);
+
+  private final BalanceSnapshots snapshots = new BalanceSnapshots(this.repository, this.listeners);
+
+  @Before
+  public void start() {
+    this.snapshots.start();
+  }
+
+  @After
+  public void stop() {
+    this.snapshots.stop();
+  }
+
+  @Test
+  public void snapshotIgnoresLaterChanges() throws Exception {
+
+    final Account account = new Account("Id-1", new BigDecimal("100"));
+    this.repository.createAccount(account);
+    this.repository.createAccount(new Account("Id-2", new BigDecimal("50")));
+
+    try (final BalanceSnapshots.Snapshot snapshot = this.snapshots.open()) {
+
+      account.credit(BigDecimal.TEN);
+      account.hold(BigDecimal.ONE);
+      this.repository.createAccount(new Account("Id-3", BigDecimal.ONE));
+
+      final Map<String, ExportedBalance> balances = balancesOf(snapshot);
+      assertThat(balances.keySet()).containsOnly("Id-1", "Id-2");
+      assertThat(balances.get("Id-1").getBalance()).isEqualByComparingTo("100");
+      assertThat(balances.get("Id-1").getHeldBalance()).isEqualByComparingTo("0");
+      assertThat(balances.get("Id-2").getBalance()).isEqualByComparingTo("50");
+      assertThat(snapshot.getChangedAccounts()).isEqualTo(2);
+    }
+
+    assertThat(account.getBalance()).isEqualByComparingTo("110");
+  }
+
+  @Test
+  public void snapshotIncludesOperationsInProgress() throws Exception {
+
+    final Account source = new Account("Id-1", new BigDecimal("100"));
+    final Account destination = new Account("Id-2", new BigDecimal("50"));
+    this.repository.createAccount(source);
+    this.repository.createAccount(destination);
+
+    final CountDownLatch debited = new CountDownLatch(1);
+    final CountDownLatch credit = new CountDownLatch(1);
+
+    // A transfer debits its source before the snapshot is opened, and credits its destination after.
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    final CompletableFuture<Void> transfer = CompletableFuture.runAsync(() -> {
+      final long epoch = this.snapshots.beginOperation();
+      try {
+        source.debit(BigDecimal.TEN);
+        debited.countDown();
+        credit.await();
+        destination.credit(BigDecimal.TEN);
+      } catch (final Exception e) {
+        throw new IllegalStateException(e);
+      } finally {
+        this.snapshots.endOperation(epoch);
+      }
+    }, executor);
+
+    assertThat(debited.await(10, TimeUnit.SECONDS)).isTrue();
+    final long epoch = this.snapshots.currentEpoch();
+    final CompletableFuture<BalanceSnapshots.Snapshot> opening = CompletableFuture.supplyAsync(this.snapshots::open, executor);
+    while (this.snapshots.currentEpoch() == epoch) {
+      Thread.yield();
+    }
+
+    // A later change of the destination is not part of the snapshot, whereas the transfer completing after it is.
+    destination.credit(BigDecimal.ONE);
+    assertThat(opening.isDone()).isFalse();
+    credit.countDown();
+    transfer.get(10, TimeUnit.SECONDS);
+
+    try (final BalanceSnapshots.Snapshot snapshot = opening.get(10, TimeUnit.SECONDS)) {
+
+      final Map<String, ExportedBalance> balances = balancesOf(snapshot);
+      assertThat(balances.get("Id-1").getBalance()).isEqualByComparingTo("90");
+      assertThat(balances.get("Id-2").getBalance()).isEqualByComparingTo("60");
+    }
+
+    assertThat(destination.getBalance()).isEqualByComparingTo("61");
+    executor.shutdown();
+  }
+
+  @Test
+  public void closedSnapshotsReleaseTheirChanges() throws Exception {
+
+    final Account account = new Account("Id-1", new BigDecimal("100"));
+    this.repository.createAccount(account);
+
+    final BalanceSnapshots.Snapshot snapshot = this.snapshots.open();
+    snapshot.close();
+    account.credit(BigDecimal.TEN);
+
+    assertThat(snapshot.getChangedAccounts()).isZero();
+  }
+
+  private static Map<String, ExportedBalance> balancesOf(final BalanceSnapshots.Snapshot snapshot) {
+    return snapshot.getBalances().collect(Collectors.toMap(ExportedBalance::getAccountId, balance -> balance));
+  }
+}
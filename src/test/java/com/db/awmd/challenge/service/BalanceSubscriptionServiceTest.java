@@ -0,0 +1,202 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountBalance;
+import com.db.awmd.challenge.repository.AccountListeners;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BalanceSubscriptionServiceTest {
+
+  /**
+   * Records the balances sent, blocking every send until {@link #resumed} is counted down, and keeps the callbacks
+   * which the container would call.
+   */
+  private static final class RecordingEmitter extends SseEmitter {
+
+    final List<AccountBalance> sent = new CopyOnWriteArrayList<>();
+
+    final CountDownLatch sending = new CountDownLatch(1);
+
+    final CountDownLatch resumed = new CountDownLatch(1);
+
+    volatile boolean failing;
+
+    volatile Runnable completionCallback;
+
+    volatile Runnable timeoutCallback;
+
+    @Override
+    public void send(final SseEventBuilder builder) throws IOException {
+
+      this.sending.countDown();
+      try {
+        this.resumed.await();
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException(e);
+      }
+
+      if (this.failing) {
+        throw new IOException("Broken pipe");
+      }
+
+      for (final ResponseBodyEmitter.DataWithMediaType data : builder.build()) {
+        if (data.getData() instanceof AccountBalance) {
+          this.sent.add((AccountBalance) data.getData());
+        }
+      }
+    }
+
+    @Override
+    public synchronized void onCompletion(final Runnable callback) {
+      this.completionCallback = callback;
+    }
+
+    @Override
+    public synchronized void onTimeout(final Runnable callback) {
+      this.timeoutCallback = callback;
+    }
+  }
+
+  private final AccountListeners listeners = new AccountListeners();
+
+  private final AccountsRepositoryInMemory repository = new AccountsRepositoryInMemory(this.listeners);
+
+  private final AccountsService accountsService =
+          new AccountsService(
+                  this.repository,
+                  (account, description) -> { },
+                  new BalanceSnapshots(this.repository, this.listeners),
+                  new VelocityLimits("", Account.DEFAULT_CURRENCY, new FxRates()),
+                  new FxRates()
+          );
+
+  private final List<RecordingEmitter> emitters = new CopyOnWriteArrayList<>();
+
+  private final BalanceSubscriptionService subscriptionService =
+          new BalanceSubscriptionService(this.listeners, 1, () -> {
+            final RecordingEmitter emitter = new RecordingEmitter();
+            this.emitters.add(emitter);
+            return emitter;
+          }, false);
+
+  @Before
+  public void start() {
+    this.accountsService.createAccount(new Account("source", new BigDecimal("100")));
+    this.accountsService.createAccount(new Account("destination", new BigDecimal("0")));
+    this.subscriptionService.start();
+  }
+
+  @After
+  public void stop() {
+    this.emitters.forEach(emitter -> emitter.resumed.countDown());
+    this.subscriptionService.stop();
+  }
+
+  private RecordingEmitter subscribe(final String... accountIds) {
+
+    this.subscriptionService.subscribe(Arrays.asList(accountIds));
+    return this.emitters.get(this.emitters.size() - 1);
+  }
+
+  private static void await(final BooleanSupplier condition) throws InterruptedException {
+
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (!condition.getAsBoolean()) {
+      assertThat(System.nanoTime()).as("Timed out").isLessThan(deadline);
+      Thread.sleep(10);
+    }
+  }
+
+  @Test
+  public void changesAreCoalescedWhileSending() throws Exception {
+
+    final RecordingEmitter emitter = subscribe("destination");
+
+    this.accountsService.transferMoney("source", "destination", new BigDecimal("1"));
+    assertThat(emitter.sending.await(10, TimeUnit.SECONDS)).isTrue();
+
+    // Only the latest of the changes made while the first one is sent remains to be sent.
+    this.accountsService.transferMoney("source", "destination", new BigDecimal("2"));
+    this.accountsService.transferMoney("source", "destination", new BigDecimal("3"));
+    this.accountsService.transferMoney("source", "destination", new BigDecimal("4"));
+    emitter.resumed.countDown();
+
+    await(() -> emitter.sent.size() == 2);
+    Thread.sleep(100);
+
+    assertThat(emitter.sent).containsExactly(
+            new AccountBalance("destination", new BigDecimal("1")),
+            new AccountBalance("destination", new BigDecimal("10"))
+    );
+  }
+
+  @Test(timeout = 10_000)
+  public void blockedSubscriberDoesNotDelayTransfers() throws Exception {
+
+    final RecordingEmitter emitter = subscribe("source", "destination");
+
+    this.accountsService.transferMoney("source", "destination", new BigDecimal("1"));
+    assertThat(emitter.sending.await(10, TimeUnit.SECONDS)).isTrue();
+
+    for (int i = 0; i < 99; i++) {
+      this.accountsService.transferMoney("source", "destination", new BigDecimal("1"));
+    }
+
+    assertThat(this.accountsService.getAccount("destination").getBalance()).isEqualByComparingTo("100");
+    assertThat(emitter.sent).isEmpty();
+  }
+
+  @Test
+  public void completedSubscriptionIsRemoved() {
+
+    final RecordingEmitter emitter = subscribe("source", "destination");
+    assertThat(this.subscriptionService.subscribedAccounts()).isEqualTo(2);
+
+    emitter.completionCallback.run();
+
+    assertThat(this.subscriptionService.subscribedAccounts()).isZero();
+  }
+
+  @Test
+  public void timedOutSubscriptionIsRemoved() {
+
+    final RecordingEmitter emitter = subscribe("source");
+    final RecordingEmitter other = subscribe("source");
+
+    emitter.timeoutCallback.run();
+    assertThat(this.subscriptionService.subscribedAccounts()).isEqualTo(1);
+
+    other.timeoutCallback.run();
+    assertThat(this.subscriptionService.subscribedAccounts()).isZero();
+  }
+
+  @Test
+  public void subscriptionFailingToSendIsRemoved() throws Exception {
+
+    final RecordingEmitter emitter = subscribe("destination");
+    emitter.failing = true;
+    emitter.resumed.countDown();
+
+    this.accountsService.transferMoney("source", "destination", new BigDecimal("1"));
+
+    await(() -> this.subscriptionService.subscribedAccounts() == 0);
+    assertThat(emitter.sent).isEmpty();
+  }
+}
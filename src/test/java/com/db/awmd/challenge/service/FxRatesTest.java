@@ -0,0 +1,102 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.exception.OperationException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class FxRatesTest {
+
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  private final FxRates fxRates = new FxRates();
+
+  private void publish() {
+
+    final Map<String, BigDecimal> rates = new HashMap<>();
+    rates.put("USD", new BigDecimal("1.25"));
+    rates.put("JPY", new BigDecimal("160"));
+
+    this.fxRates.publish("EUR", rates, Instant.EPOCH);
+  }
+
+  @Test
+  public void crossRatesAreComputedFromTheBase() {
+
+    publish();
+
+    final FxRates.Snapshot snapshot = this.fxRates.getSnapshot();
+    assertThat(snapshot.getBase()).isEqualTo("EUR");
+    assertThat(snapshot.getCurrencies()).containsOnly("EUR", "USD", "JPY");
+    assertThat(snapshot.rate("EUR", "USD")).isEqualByComparingTo("1.25");
+    assertThat(snapshot.rate("USD", "EUR")).isEqualByComparingTo("0.8");
+    assertThat(snapshot.rate("USD", "JPY")).isEqualByComparingTo("128");
+    assertThat(snapshot.rate("USD", "GBP")).isNull();
+  }
+
+  @Test
+  public void amountsAreRoundedToTheMinorUnitOfTheTargetCurrency() throws OperationException {
+
+    publish();
+
+    assertThat(this.fxRates.convert(new BigDecimal("10.005"), "EUR", "USD")).isEqualTo(new BigDecimal("12.51"));
+    assertThat(this.fxRates.convert(new BigDecimal("1.01"), "USD", "JPY")).isEqualTo(new BigDecimal("129"));
+    assertThat(this.fxRates.convert(new BigDecimal("1.01"), "GBP", "GBP")).isEqualTo(new BigDecimal("1.01"));
+  }
+
+  @Test
+  public void conversionsFailWithoutRate() {
+
+    publish();
+
+    assertThatThrownBy(() -> this.fxRates.convert(BigDecimal.ONE, "EUR", "GBP"))
+            .isInstanceOf(OperationException.class)
+            .hasMessage("No exchange rate from EUR to GBP.");
+    assertThatThrownBy(() -> this.fxRates.convert(new BigDecimal("0.001"), "JPY", "EUR"))
+            .isInstanceOf(OperationException.class);
+  }
+
+  @Test
+  public void ratesArePublishedAsAWhole() throws OperationException {
+
+    publish();
+    final FxRates.Snapshot previous = this.fxRates.getSnapshot();
+
+    this.fxRates.publish("USD", new HashMap<>(), Instant.EPOCH);
+
+    assertThat(previous.rate("EUR", "USD")).isEqualByComparingTo("1.25");
+    assertThat(this.fxRates.getSnapshot().rate("EUR", "USD")).isNull();
+    assertThatThrownBy(() -> this.fxRates.publish("EUR", Collections.singletonMap("USD", BigDecimal.ZERO), Instant.EPOCH))
+            .isInstanceOf(IllegalArgumentException.class);
+    assertThat(this.fxRates.getSnapshot().getBase()).isEqualTo("USD");
+  }
+
+  @Test
+  public void ratesAreLoadedFromFile() throws IOException {
+
+    final Path file = this.folder.getRoot().toPath().resolve("fx-rates.properties");
+    Files.write(file, "base=EUR\nUSD=1.25\n".getBytes(StandardCharsets.UTF_8));
+
+    final FxRateFileWatcher watcher = new FxRateFileWatcher(this.fxRates, file.toString());
+    watcher.load();
+    assertThat(this.fxRates.getSnapshot().rate("USD", "EUR")).isEqualByComparingTo("0.8");
+
+    Files.write(file, "USD=1.25\n".getBytes(StandardCharsets.UTF_8));
+    assertThatThrownBy(watcher::load).isInstanceOf(IllegalArgumentException.class);
+    assertThat(this.fxRates.getSnapshot().rate("USD", "EUR")).isEqualByComparingTo("0.8");
+  }
+}
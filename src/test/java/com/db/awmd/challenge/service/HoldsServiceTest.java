@@ -0,0 +1,175 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.Hold;
+import com.db.awmd.challenge.domain.MoneyTransferResult;
+import com.db.awmd.challenge.exception.HoldException;
+import com.db.awmd.challenge.exception.HoldNotFoundException;
+import com.db.awmd.challenge.exception.MoneyTransferException;
+import com.db.awmd.challenge.exception.OperationException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"holds.expiry.tick-millis=10", "accounts.velocity-limits.rules=PT1H::100"})
+public class HoldsServiceTest {
+
+  @Autowired
+  private HoldsService holdsService;
+
+  @Autowired
+  private AccountsService accountsService;
+
+  @MockBean
+  private NotificationService notificationService;
+
+  @Before
+  public void beforeEveryTest() {
+    this.accountsService.getAccountsRepository().clearAccounts();
+    this.accountsService.createAccount(new Account("source", new BigDecimal("100")));
+    this.accountsService.createAccount(new Account("destination", new BigDecimal("10")));
+  }
+
+  @After
+  public void afterEveryTest() {
+    this.accountsService.getAccountsRepository().clearAccounts();
+  }
+
+  @Test
+  public void placeHold_reducesAvailableBalanceOnly() throws HoldException {
+
+    final Hold hold = this.holdsService.placeHold("source", new BigDecimal("60"), null);
+
+    assertThat(this.holdsService.getHold(hold.getId())).isEqualTo(hold);
+    assertThat(account("source").getBalance()).isEqualByComparingTo("100");
+    assertThat(account("source").getHeldBalance()).isEqualByComparingTo("60");
+    assertThat(account("source").getAvailableBalance()).isEqualByComparingTo("40");
+  }
+
+  @Test
+  public void placeHold_failsIfAmountIsGreaterThanAvailableBalance() throws HoldException {
+
+    this.holdsService.placeHold("source", new BigDecimal("60"), null);
+
+    assertThatThrownBy(() -> this.holdsService.placeHold("source", new BigDecimal("41"), null))
+            .isInstanceOf(HoldException.class)
+            .hasMessage("Failed to hold amount '41' on account 'source'.")
+            .hasRootCauseInstanceOf(OperationException.class);
+  }
+
+  @Test
+  public void placeHold_failsOnInvalidInput() {
+
+    assertThatThrownBy(() -> this.holdsService.placeHold(" ", BigDecimal.ONE, null))
+            .isInstanceOf(HoldException.class)
+            .hasMessage("Failed to hold amount '1' on account ' '.")
+            .hasRootCauseInstanceOf(OperationException.class);
+    assertThatThrownBy(() -> this.holdsService.placeHold("source", BigDecimal.ZERO, null)).isInstanceOf(HoldException.class);
+    assertThatThrownBy(() -> this.holdsService.placeHold("source", BigDecimal.ONE, 0L)).isInstanceOf(HoldException.class);
+
+    assertThat(this.accountsService.getAccount("source").getHeldBalance()).isEqualByComparingTo("0");
+  }
+
+  @Test
+  public void placeHold_failsIfAccountDoesNotExist() {
+
+    assertThatThrownBy(() -> this.holdsService.placeHold("unknown", BigDecimal.ONE, null))
+            .isInstanceOf(HoldException.class);
+  }
+
+  @Test
+  public void heldFundsCannotBeTransferred() throws HoldException {
+
+    this.holdsService.placeHold("source", new BigDecimal("60"), null);
+
+    assertThatThrownBy(() -> this.accountsService.transferMoney("source", "destination", new BigDecimal("41")))
+            .isInstanceOf(MoneyTransferException.class)
+            .hasStackTraceContaining("Current balance is less than the amount to be debited.");
+  }
+
+  @Test
+  public void releaseHold_makesFundsAvailableAgain() throws HoldException, HoldNotFoundException {
+
+    final Hold hold = this.holdsService.placeHold("source", new BigDecimal("60"), null);
+
+    this.holdsService.releaseHold(hold.getId());
+
+    assertThat(this.holdsService.getHold(hold.getId())).isNull();
+    assertThat(account("source").getAvailableBalance()).isEqualByComparingTo("100");
+    assertThatThrownBy(() -> this.holdsService.releaseHold(hold.getId())).isInstanceOf(HoldNotFoundException.class);
+  }
+
+  @Test
+  public void captureHold_transfersCapturedAmountAndReleasesTheRest() throws HoldException, HoldNotFoundException {
+
+    final Hold hold = this.holdsService.placeHold("source", new BigDecimal("60"), null);
+
+    final MoneyTransferResult result = this.holdsService.captureHold(hold.getId(), "destination", new BigDecimal("25"));
+
+    assertThat(result.getSourceAccountBalanceNew()).isEqualByComparingTo("75");
+    assertThat(result.getDestinationAccountBalanceNew()).isEqualByComparingTo("35");
+    assertThat(account("source").getHeldBalance()).isEqualByComparingTo("0");
+    assertThat(this.holdsService.getHold(hold.getId())).isNull();
+  }
+
+  @Test
+  public void captureHold_failsIfAmountIsGreaterThanHold() throws HoldException {
+
+    final Hold hold = this.holdsService.placeHold("source", new BigDecimal("60"), null);
+
+    assertThatThrownBy(() -> this.holdsService.captureHold(hold.getId(), "destination", new BigDecimal("61")))
+            .isInstanceOf(HoldException.class);
+
+    assertThat(this.holdsService.getHold(hold.getId())).isEqualTo(hold);
+    assertThat(account("source").getHeldBalance()).isEqualByComparingTo("60");
+  }
+
+  @Test
+  public void captureHold_exceedingVelocityLimitKeepsHoldPending() throws HoldException, HoldNotFoundException {
+
+    this.accountsService.createAccount(new Account("limited", new BigDecimal("1000")));
+    final Hold hold = this.holdsService.placeHold("limited", new BigDecimal("150"), null);
+
+    assertThatThrownBy(() -> this.holdsService.captureHold(hold.getId(), "destination", null))
+            .isInstanceOf(HoldException.class)
+            .hasRootCauseInstanceOf(OperationException.class);
+
+    assertThat(this.holdsService.getHold(hold.getId())).isEqualTo(hold);
+    assertThat(account("limited").getHeldBalance()).isEqualByComparingTo("150");
+
+    final MoneyTransferResult result = this.holdsService.captureHold(hold.getId(), "destination", new BigDecimal("100"));
+
+    assertThat(result.getSourceAccountBalanceNew()).isEqualByComparingTo("900");
+    assertThat(account("limited").getHeldBalance()).isEqualByComparingTo("0");
+    assertThat(this.holdsService.getHold(hold.getId())).isNull();
+  }
+
+  @Test
+  public void expiredHoldIsReleased() throws HoldException, InterruptedException {
+
+    final Hold hold = this.holdsService.placeHold("source", new BigDecimal("60"), 1L);
+
+    final long deadline = System.currentTimeMillis() + 5_000;
+    while (account("source").getHeldBalance().signum() > 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+
+    assertThat(this.holdsService.getHold(hold.getId())).isNull();
+    assertThat(account("source").getAvailableBalance()).isEqualByComparingTo("100");
+  }
+
+  private Account account(final String accountId) {
+    return this.accountsService.getAccount(accountId);
+  }
+}
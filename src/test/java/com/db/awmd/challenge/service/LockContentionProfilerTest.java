@@ -0,0 +1,114 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountListener;
+import com.db.awmd.challenge.domain.LockContentionReport;
+import com.db.awmd.challenge.exception.OperationException;
+import com.db.awmd.challenge.repository.AccountListeners;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LockContentionProfilerTest {
+
+  private AccountListeners listeners;
+
+  private AccountsRepositoryInMemory repository;
+
+  private LockContentionProfiler profiler;
+
+  @Before
+  public void beforeEveryTest() {
+
+    this.listeners = new AccountListeners();
+    this.repository = new AccountsRepositoryInMemory(this.listeners);
+    this.profiler = new LockContentionProfiler(this.listeners, 16, 60_000);
+    this.profiler.start();
+
+    this.repository.createAccount(new Account("hot"));
+    for (int i = 0; i < 1000; i++) {
+      this.repository.createAccount(new Account("cold-" + i));
+    }
+  }
+
+  @After
+  public void afterEveryTest() {
+    this.profiler.stop();
+  }
+
+  @Test
+  public void mostContendedAccountComesFirst() throws InterruptedException {
+
+    this.listeners.add(new AccountListener() {
+      @Override
+      public void balanceChanged(final Account account, final BigDecimal oldBalance, final BigDecimal newBalance) {
+        if (account.getAccountId().equals("hot")) {
+          LockSupport.parkNanos(100_000);
+        }
+      }
+    });
+
+    final ExecutorService executor = Executors.newFixedThreadPool(8);
+    for (int t = 0; t < 8; t++) {
+      executor.execute(() -> {
+        for (int i = 0; i < 1_000; i++) {
+          try {
+            this.repository.getAccount("hot").credit(BigDecimal.ONE);
+            this.repository.getAccount("cold-" + ThreadLocalRandom.current().nextInt(1000)).credit(BigDecimal.ONE);
+          } catch (final OperationException e) {
+            throw new IllegalStateException(e);
+          }
+        }
+      });
+    }
+    executor.shutdown();
+    assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+    final LockContentionReport report = this.profiler.getReport();
+
+    assertThat(report.getSamples()).isGreaterThan(16_000L / Account.LOCK_SAMPLING_INTERVAL / 2);
+    assertThat(report.getDroppedSamples()).isZero();
+    assertThat(report.getAccounts()).hasSize(16);
+    assertThat(report.getAccounts().get(0).getAccountId()).isEqualTo("hot");
+  }
+
+  @Test
+  public void samplesNotAggregatedInTimeAreCountedAsDropped() {
+
+    final Account account = this.repository.getAccount("hot");
+
+    // A single thread writes to a single buffer, of 1024 samples.
+    for (int i = 0; i < 1034; i++) {
+      this.profiler.lockSampled(account, 1L, 1L);
+    }
+
+    final LockContentionReport report = this.profiler.getReport();
+
+    assertThat(report.getSamples()).isEqualTo(1024L);
+    assertThat(report.getDroppedSamples()).isEqualTo(10L);
+    assertThat(report.getWaitNanos()).isEqualTo(1024L);
+  }
+
+  @Test
+  public void resetClearsStatistics() throws OperationException {
+
+    for (int i = 0; i < 10_000; i++) {
+      this.repository.getAccount("hot").credit(BigDecimal.ONE);
+    }
+
+    this.profiler.reset();
+
+    assertThat(this.profiler.getReport().getSamples()).isZero();
+    assertThat(this.profiler.getReport().getAccounts()).isEmpty();
+  }
+}
@@ -0,0 +1,198 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.ScheduledTransfer;
+import com.db.awmd.challenge.repository.AccountListeners;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TransferSchedulerTest {
+
+  private final AccountListeners listeners = new AccountListeners();
+
+  private final AccountsRepositoryInMemory repository = new AccountsRepositoryInMemory(this.listeners);
+
+  private final CountDownLatch notified = new CountDownLatch(1);
+
+  private final CountDownLatch resumed = new CountDownLatch(1);
+
+  private volatile boolean blockNotifications;
+
+  /**
+   * Notifications block the transfer executing until {@link #resumed} is counted down, when {@link #blockNotifications} is set.
+   */
+  private final AccountsService accountsService =
+          new AccountsService(
+                  this.repository,
+                  (account, description) -> {
+                    if (this.blockNotifications) {
+                      this.notified.countDown();
+                      try {
+                        this.resumed.await();
+                      } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                      }
+                    }
+                  },
+                  new BalanceSnapshots(this.repository, this.listeners),
+                  new VelocityLimits("", Account.DEFAULT_CURRENCY, new FxRates()),
+                  new FxRates()
+          );
+
+  private final TransferScheduler scheduler = new TransferScheduler(this.accountsService, 10, 2, 16, false);
+
+  @Before
+  public void start() {
+    this.accountsService.createAccount(new Account("source", new BigDecimal("100")));
+    this.accountsService.createAccount(new Account("destination", new BigDecimal("0")));
+    this.scheduler.start();
+  }
+
+  @After
+  public void stop() throws InterruptedException {
+    this.resumed.countDown();
+    this.scheduler.stop();
+  }
+
+  private BigDecimal balance(final String accountId) {
+    return this.accountsService.getAccount(accountId).getBalance();
+  }
+
+  private static void await(final BooleanSupplier condition) throws InterruptedException {
+
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (!condition.getAsBoolean()) {
+      assertThat(System.nanoTime()).as("Timed out").isLessThan(deadline);
+      Thread.sleep(10);
+    }
+  }
+
+  @Test
+  public void oneOffTransferIsExecutedOnce() throws InterruptedException {
+
+    final ScheduledTransfer transfer = this.scheduler.schedule("source", "destination", new BigDecimal("10"), Instant.now(), 0);
+
+    await(() -> balance("destination").compareTo(BigDecimal.ZERO) > 0);
+    await(() -> this.scheduler.getScheduledTransfer(transfer.getId()) == null);
+
+    assertThat(balance("source")).isEqualByComparingTo("90");
+    assertThat(balance("destination")).isEqualByComparingTo("10");
+    assertThat(this.scheduler.cancel(transfer.getId())).isFalse();
+  }
+
+  @Test
+  public void overdueTransfersAreNotLeftPending() throws Exception {
+
+    this.accountsService.getAccount("source").credit(new BigDecimal("1000"));
+
+    // A fast ticker and concurrent scheduling threads, so that transfers are likely executed as soon as scheduled.
+    final TransferScheduler scheduler = new TransferScheduler(this.accountsService, 1, 4, 1, false);
+    scheduler.start();
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      final List<Future<List<ScheduledTransfer>>> scheduled = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        scheduled.add(executor.submit(() -> {
+          final List<ScheduledTransfer> transfers = new ArrayList<>();
+          for (int i = 0; i < 5_000; i++) {
+            transfers.add(scheduler.schedule("source", "destination", new BigDecimal("0.01"), Instant.now().minusSeconds(3600), 0));
+          }
+          return transfers;
+        }));
+      }
+      final List<ScheduledTransfer> transfers = new ArrayList<>();
+      for (final Future<List<ScheduledTransfer>> future : scheduled) {
+        transfers.addAll(future.get());
+      }
+
+      await(() -> balance("destination").compareTo(new BigDecimal("200")) == 0);
+      await(() -> transfers.stream().allMatch(transfer -> scheduler.getScheduledTransfer(transfer.getId()) == null));
+
+    } finally {
+      executor.shutdown();
+      scheduler.stop();
+    }
+  }
+
+  @Test
+  public void overdueRecurringTransferCatchesUpAndKeepsRecurring() throws InterruptedException {
+
+    final Instant start = Instant.now().minusSeconds(3);
+    final ScheduledTransfer transfer = this.scheduler.schedule("source", "destination", new BigDecimal("10"), start, 1);
+
+    // Pending as the sixth occurrence once the four overdue ones and the next one were executed.
+    await(() -> {
+      final ScheduledTransfer next = this.scheduler.getScheduledTransfer(transfer.getId());
+      return next != null && !next.getExecutionTime().isBefore(start.plusSeconds(5));
+    });
+
+    assertThat(balance("destination")).isEqualByComparingTo("50");
+    assertThat(this.scheduler.cancel(transfer.getId())).isTrue();
+  }
+
+  @Test
+  public void recurringTransferIsRescheduledUntilCancelled() throws InterruptedException {
+
+    final Instant start = Instant.now();
+    final ScheduledTransfer transfer = this.scheduler.schedule("source", "destination", new BigDecimal("10"), start, 1);
+
+    // Pending as the third occurrence once executed twice.
+    await(() -> !this.scheduler.getScheduledTransfer(transfer.getId()).getExecutionTime().isBefore(start.plusSeconds(2)));
+
+    assertThat(balance("source")).isEqualByComparingTo("80");
+    assertThat(balance("destination")).isEqualByComparingTo("20");
+
+    assertThat(this.scheduler.cancel(transfer.getId())).isTrue();
+    assertThat(this.scheduler.getScheduledTransfer(transfer.getId())).isNull();
+  }
+
+  @Test
+  public void recurringTransferCancelledWhileExecutingIsNotRescheduled() throws InterruptedException {
+
+    this.blockNotifications = true;
+    final ScheduledTransfer transfer = this.scheduler.schedule("source", "destination", new BigDecimal("10"), Instant.now(), 1);
+
+    assertThat(this.notified.await(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(this.scheduler.cancel(transfer.getId())).isTrue();
+    this.resumed.countDown();
+
+    Thread.sleep(1_500);
+
+    assertThat(this.scheduler.getScheduledTransfer(transfer.getId())).isNull();
+    assertThat(balance("destination")).isEqualByComparingTo("10");
+  }
+
+  @Test
+  public void failedOccurrenceOfRecurringTransferDoesNotStopIt() throws Exception {
+
+    final ScheduledTransfer transfer = this.scheduler.schedule("source", "destination", new BigDecimal("1000"), Instant.now(), 1);
+
+    // The first occurrence fails for lack of funds, and the next one is pending.
+    await(() -> {
+      final ScheduledTransfer next = this.scheduler.getScheduledTransfer(transfer.getId());
+      return next != null && next.getExecutionTime().isAfter(transfer.getExecutionTime());
+    });
+    assertThat(balance("destination")).isEqualByComparingTo("0");
+
+    this.accountsService.getAccount("source").credit(new BigDecimal("1000"));
+
+    await(() -> balance("destination").compareTo(BigDecimal.ZERO) > 0);
+    assertThat(balance("destination")).isEqualByComparingTo("1000");
+    assertThat(this.scheduler.cancel(transfer.getId())).isTrue();
+  }
+}
@@ -0,0 +1,138 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.exception.OperationException;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class VelocityLimitsTest {
+
+  private final AtomicLong now = new AtomicLong(1_000_000);
+
+  private final FxRates fxRates = new FxRates();
+
+  @Test
+  public void transfersAreLimitedInCount() throws OperationException {
+
+    final VelocityLimits limits = new VelocityLimits("PT1M:3:", "EUR", this.fxRates, this.now::get);
+
+    for (int i = 0; i < 3; i++) {
+      limits.acquire("Id-1", BigDecimal.TEN, "EUR");
+    }
+
+    assertThatThrownBy(() -> limits.acquire("Id-1", BigDecimal.ONE, "EUR"))
+            .isInstanceOf(OperationException.class)
+            .hasMessage("Transfer of amount 1 from account Id-1 exceeds the velocity limit PT1M:3:.");
+    limits.acquire("Id-2", BigDecimal.ONE, "EUR");
+  }
+
+  @Test
+  public void transfersAreLimitedInAmount() throws OperationException {
+
+    final VelocityLimits limits = new VelocityLimits("PT1M::100, PT1H:1000:", "EUR", this.fxRates, this.now::get);
+
+    limits.acquire("Id-1", new BigDecimal("60"), "EUR");
+    assertThatThrownBy(() -> limits.acquire("Id-1", new BigDecimal("40.0001"), "EUR")).isInstanceOf(OperationException.class);
+    limits.acquire("Id-1", new BigDecimal("40"), "EUR");
+  }
+
+  @Test
+  public void windowSlides() throws OperationException {
+
+    final VelocityLimits limits = new VelocityLimits("PT1M:10:", "EUR", this.fxRates, this.now::get);
+    this.now.set(60_000 * 1000L);
+
+    for (int i = 0; i < 10; i++) {
+      limits.acquire("Id-1", BigDecimal.ONE, "EUR");
+    }
+
+    // Three quarters of the previous window are still in the sliding window.
+    this.now.addAndGet(75_000);
+    for (int i = 0; i < 3; i++) {
+      limits.acquire("Id-1", BigDecimal.ONE, "EUR");
+    }
+    assertThatThrownBy(() -> limits.acquire("Id-1", BigDecimal.ONE, "EUR")).isInstanceOf(OperationException.class);
+
+    this.now.addAndGet(60_000);
+    limits.acquire("Id-1", BigDecimal.ONE, "EUR");
+  }
+
+  @Test
+  public void amountsAreConvertedToTheCurrencyOfTheLimits() throws OperationException {
+
+    this.fxRates.publish("EUR", Collections.singletonMap("JPY", new BigDecimal("160")), Instant.EPOCH);
+    final VelocityLimits limits = new VelocityLimits("PT1M::100", "EUR", this.fxRates, this.now::get);
+
+    limits.acquire("Id-1", new BigDecimal("60"), "EUR");
+    assertThatThrownBy(() -> limits.acquire("Id-1", new BigDecimal("6500"), "JPY")).isInstanceOf(OperationException.class);
+    limits.acquire("Id-1", new BigDecimal("6400"), "JPY");
+
+    assertThatThrownBy(() -> limits.acquire("Id-2", BigDecimal.ONE, "USD"))
+            .isInstanceOf(OperationException.class)
+            .hasMessageContaining("No exchange rate");
+  }
+
+  @Test
+  public void releasedPermitsAreNotCounted() throws OperationException {
+
+    final VelocityLimits limits = new VelocityLimits("PT1M:1:", "EUR", this.fxRates, this.now::get);
+
+    limits.acquire("Id-1", BigDecimal.ONE, "EUR").release();
+    limits.acquire("Id-1", BigDecimal.ONE, "EUR");
+  }
+
+  @Test
+  public void idleAccountsAreNoLongerTracked() throws OperationException {
+
+    final VelocityLimits limits = new VelocityLimits("PT1M:1:", "EUR", this.fxRates, this.now::get);
+    limits.acquire("Id-1", BigDecimal.ONE, "EUR");
+
+    this.now.addAndGet(30_000);
+    limits.removeIdleAccounts();
+    assertThat(limits.trackedAccounts()).isEqualTo(1);
+
+    this.now.addAndGet(60_000);
+    limits.removeIdleAccounts();
+    assertThat(limits.trackedAccounts()).isZero();
+  }
+
+  @Test
+  public void concurrentTransfersNeverExceedTheLimit() throws Exception {
+
+    final VelocityLimits limits = new VelocityLimits("PT1H:1000:", "EUR", this.fxRates, this.now::get);
+    final AtomicInteger admitted = new AtomicInteger();
+
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    final List<Future<?>> workers = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      workers.add(executor.submit(() -> {
+        for (int i = 0; i < 1_000; i++) {
+          try {
+            limits.acquire("Id-1", BigDecimal.ONE, "EUR");
+            admitted.incrementAndGet();
+          } catch (final OperationException e) {
+            // Limit reached.
+          }
+        }
+      }));
+    }
+    executor.shutdown();
+    for (final Future<?> worker : workers) {
+      worker.get();
+    }
+
+    assertThat(admitted.get()).isEqualTo(1_000);
+  }
+}
@@ -0,0 +1,71 @@
+package com.db.awmd.challenge.utils;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GradientLimiterTest {
+
+  /**
+   * Starts as many requests as the limit allows, and completes them all with the same latency.
+   */
+  private static void saturate(final GradientLimiter limiter, final long latencyMillis, final int rounds) {
+
+    for (int r = 0; r < rounds; r++) {
+      int started = 0;
+      while (limiter.tryAcquire()) {
+        started++;
+      }
+      for (int i = 0; i < started; i++) {
+        limiter.release(TimeUnit.MILLISECONDS.toNanos(latencyMillis));
+      }
+    }
+  }
+
+  @Test
+  public void requestsInProgressAreLimited() {
+
+    final GradientLimiter limiter = new GradientLimiter(2, 1, 10);
+
+    assertThat(limiter.tryAcquire()).isTrue();
+    assertThat(limiter.tryAcquire()).isTrue();
+    assertThat(limiter.tryAcquire()).isFalse();
+    assertThat(limiter.getInFlight()).isEqualTo(2);
+
+    limiter.release(1_000_000);
+    assertThat(limiter.tryAcquire()).isTrue();
+  }
+
+  @Test
+  public void limitFollowsLatency() {
+
+    final GradientLimiter limiter = new GradientLimiter(10, 2, 100);
+
+    saturate(limiter, 1, 100);
+    assertThat(limiter.getLimit()).isEqualTo(100);
+
+    // Requests queue: the limit shrinks.
+    saturate(limiter, 20, 20);
+    assertThat(limiter.getLimit()).isLessThan(20);
+
+    // Queues drained: the limit grows again.
+    saturate(limiter, 1, 100);
+    assertThat(limiter.getLimit()).isEqualTo(100);
+    assertThat(limiter.getInFlight()).isZero();
+  }
+
+  @Test
+  public void limitDoesNotGrowWhileUnused() {
+
+    final GradientLimiter limiter = new GradientLimiter(10, 2, 100);
+
+    for (int i = 0; i < 1000; i++) {
+      assertThat(limiter.tryAcquire()).isTrue();
+      limiter.release(1_000_000);
+    }
+
+    assertThat(limiter.getLimit()).isEqualTo(10);
+  }
+}
@@ -0,0 +1,62 @@
+package com.db.awmd.challenge.utils;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class IdDictionaryTest {
+
+  private final IdDictionary ids = new IdDictionary(4);
+
+  @Test
+  public void assignsDenseHandles() {
+
+    assertThat(this.ids.add("a")).isEqualTo(0);
+    assertThat(this.ids.add("b")).isEqualTo(1);
+    assertThat(this.ids.add("a")).isEqualTo(-1);
+
+    assertThat(this.ids.size()).isEqualTo(2);
+    assertThat(this.ids.handleOf("b")).isEqualTo(1);
+    assertThat(this.ids.handleOf("c")).isEqualTo(-1);
+    assertThat(this.ids.get(0)).isEqualTo("a");
+  }
+
+  @Test
+  public void storesNonAsciiIds() {
+
+    final String[] samples = {"", "Id-éè", "☃", "Id-😀-end", "\u007F\u0080߿ࠀ￿"};
+
+    for (final String sample : samples) {
+      this.ids.add(sample);
+    }
+
+    for (int i = 0; i < samples.length; i++) {
+      assertThat(this.ids.handleOf(samples[i])).isEqualTo(i);
+      assertThat(this.ids.get(i)).isEqualTo(samples[i]);
+    }
+
+    assertThat(this.ids.handleOf("Id-é")).isEqualTo(-1);
+    assertThat(this.ids.handleOf("Id-éèx")).isEqualTo(-1);
+  }
+
+  @Test
+  public void rejectsUnpairedSurrogates() {
+
+    assertThatThrownBy(() -> this.ids.add("Id-\uD83D")).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void growsAcrossPages() {
+
+    final int count = 300_000;
+    for (int i = 0; i < count; i++) {
+      assertThat(this.ids.add("account-" + i)).isEqualTo(i);
+    }
+
+    for (int i = 0; i < count; i += 997) {
+      assertThat(this.ids.handleOf("account-" + i)).isEqualTo(i);
+      assertThat(this.ids.get(i)).isEqualTo("account-" + i);
+    }
+  }
+}
@@ -0,0 +1,80 @@
+package com.db.awmd.challenge.utils;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.MoneyTransferResult;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the specialized serializers write the same JSON as the default bean serializer.
+ */
+public class JsonSerializersTest {
+
+  @JsonSerialize(using = JsonSerializer.None.class)
+  private interface DefaultSerialization {
+  }
+
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  private final ObjectMapper defaultMapper =
+          new ObjectMapper()
+                  .addMixIn(Account.class, DefaultSerialization.class)
+                  .addMixIn(MoneyTransferResult.class, DefaultSerialization.class);
+
+  private final Random random = new Random(7);
+
+  @Test
+  public void toPlainString_isSameAsBigDecimalToPlainString() {
+
+    for (int i = 0; i < 100_000; i++) {
+      final BigDecimal value = randomAmount();
+      assertThat(BigDecimalJsonSerializer.toPlainString(value)).isEqualTo(value.toPlainString());
+    }
+  }
+
+  @Test
+  public void account() throws JsonProcessingException {
+
+    assertSameJson(new Account("Id-123", new BigDecimal("123.45")));
+    assertSameJson(new Account("Id-\"quoted\" éè ☃", BigDecimal.ZERO));
+    assertSameJson(new Account(null, null));
+
+    for (int i = 0; i < 10_000; i++) {
+      assertSameJson(new Account("Id-" + i, randomAmount()));
+    }
+  }
+
+  @Test
+  public void moneyTransferResult() throws JsonProcessingException {
+
+    assertSameJson(new MoneyTransferResult("source", "destination", new BigDecimal("99.5"), "EUR", new BigDecimal("107.89"), "USD", new BigDecimal("23.95"), new BigDecimal("144.0")));
+    assertSameJson(new MoneyTransferResult(null, null, null, null, null, null, null, null));
+
+    for (int i = 0; i < 10_000; i++) {
+      assertSameJson(new MoneyTransferResult("source-" + i, "destination-" + i, randomAmount(), "EUR", randomAmount(), "EUR", randomAmount(), randomAmount()));
+    }
+  }
+
+  private void assertSameJson(final Object value) throws JsonProcessingException {
+
+    assertThat(this.mapper.writeValueAsString(value)).isEqualTo(this.defaultMapper.writeValueAsString(value));
+    assertThat(this.mapper.writeValueAsBytes(value)).isEqualTo(this.defaultMapper.writeValueAsBytes(value));
+  }
+
+  private BigDecimal randomAmount() {
+
+    final BigInteger unscaled = new BigInteger(1 + this.random.nextInt(100), this.random);
+    final int scale = this.random.nextInt(30) - 10;
+
+    return new BigDecimal(this.random.nextBoolean() ? unscaled : unscaled.negate(), scale);
+  }
+}
@@ -0,0 +1,52 @@
+package com.db.awmd.challenge.utils;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SpaceSavingTest {
+
+  @Test
+  public void tracksAllKeysBelowCapacity() {
+
+    final SpaceSaving<String> sketch = new SpaceSaving<>(3);
+
+    assertThat(sketch.add("a", 5)).isNull();
+    assertThat(sketch.add("b", 7)).isNull();
+    assertThat(sketch.add("a", 5)).isNull();
+
+    assertThat(sketch.top()).extracting("key").containsExactly("a", "b");
+    assertThat(sketch.top()).extracting("weight").containsExactly(10L, 7L);
+    assertThat(sketch.top()).extracting("error").containsExactly(0L, 0L);
+  }
+
+  @Test
+  public void replacesLightestKey() {
+
+    final SpaceSaving<String> sketch = new SpaceSaving<>(2);
+    sketch.add("a", 5);
+    sketch.add("b", 3);
+
+    assertThat(sketch.add("c", 1)).isEqualTo("b");
+
+    assertThat(sketch.top()).extracting("key").containsExactly("a", "c");
+    assertThat(sketch.top()).extracting("weight").containsExactly(5L, 4L);
+    assertThat(sketch.top()).extracting("error").containsExactly(0L, 3L);
+  }
+
+  @Test
+  public void findsHeavyHittersInLongTail() {
+
+    final SpaceSaving<Integer> sketch = new SpaceSaving<>(16);
+    final Random random = new Random(3);
+
+    for (int i = 0; i < 100_000; i++) {
+      final int key = random.nextBoolean() ? random.nextInt(3) : 3 + random.nextInt(100_000);
+      sketch.add(key, 1 + random.nextInt(10));
+    }
+
+    assertThat(sketch.top().subList(0, 3)).extracting("key").containsOnly(0, 1, 2);
+  }
+}
@@ -0,0 +1,114 @@
+package com.db.awmd.challenge.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TimingWheelTest {
+
+  private static final long START = 1_000_000L;
+  private static final long TICK = 10L;
+
+  private final TimingWheel<String> wheel = new TimingWheel<>(START, TICK);
+
+  private final List<String> expired = new ArrayList<>();
+
+  @Test
+  public void timeoutExpiresOnceItsDeadlineIsReached() {
+
+    this.wheel.schedule("a", START + 55);
+
+    advanceTo(START + 50);
+    assertThat(this.expired).isEmpty();
+
+    advanceTo(START + 60);
+    assertThat(this.expired).containsExactly("a");
+
+    advanceTo(START + 10_000);
+    assertThat(this.expired).containsExactly("a");
+  }
+
+  @Test
+  public void timeoutInThePastExpiresOnNextAdvance() {
+
+    advanceTo(START + 1_000);
+    this.wheel.schedule("a", START);
+
+    advanceTo(START + 1_000);
+    assertThat(this.expired).containsExactly("a");
+  }
+
+  @Test
+  public void cancelledTimeoutDoesNotExpire() {
+
+    final TimingWheel.Timeout<String> a = this.wheel.schedule("a", START + 100);
+    this.wheel.schedule("b", START + 100);
+
+    assertThat(a.cancel()).isTrue();
+    assertThat(a.cancel()).isFalse();
+
+    advanceTo(START + 100);
+    assertThat(this.expired).containsExactly("b");
+    assertThat(a.isCancelled()).isTrue();
+  }
+
+  @Test
+  public void cancellationAfterPlacementIsHonoured() {
+
+    final TimingWheel.Timeout<String> a = this.wheel.schedule("a", START + 1_000_000);
+    advanceTo(START);
+
+    assertThat(a.cancel()).isTrue();
+
+    advanceTo(START + 2_000_000);
+    assertThat(this.expired).isEmpty();
+  }
+
+  @Test
+  public void expiredTimeoutCannotBeCancelled() {
+
+    final TimingWheel.Timeout<String> a = this.wheel.schedule("a", START);
+    advanceTo(START);
+
+    assertThat(a.isExpired()).isTrue();
+    assertThat(a.cancel()).isFalse();
+  }
+
+  @Test
+  public void timeoutsExpireInDeadlineOrderAcrossAllLevels() {
+
+    final Random random = new Random(42);
+    final int nTimeouts = 10_000;
+    final long maxTicks = 1L << 34; // beyond the span of the top level
+
+    for (int i = 0; i < nTimeouts; i++) {
+      final long deadline = START + TICK * (long) (random.nextDouble() * maxTicks);
+      this.wheel.schedule(Long.toString(deadline), deadline);
+    }
+
+    // Advances in large steps, checking that nothing expires early.
+    long now = START;
+    int checked = 0;
+    while (this.expired.size() < nTimeouts) {
+
+      now += TICK * (1L << 24);
+      advanceTo(now);
+
+      for (; checked < this.expired.size(); checked++) {
+        assertThat(Long.parseLong(this.expired.get(checked))).isLessThanOrEqualTo(now);
+      }
+    }
+
+    final List<Long> expiredDeadlines = new ArrayList<>();
+    this.expired.forEach(deadline -> expiredDeadlines.add(Long.parseLong(deadline)));
+    assertThat(expiredDeadlines).isSorted();
+  }
+
+  private void advanceTo(final long nowMillis) {
+    this.wheel.advanceTo(nowMillis, this.expired::add);
+  }
+}
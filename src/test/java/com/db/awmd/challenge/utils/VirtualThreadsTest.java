@@ -0,0 +1,43 @@
+package com.db.awmd.challenge.utils;
+
+import org.junit.Test;
+
+import java.util.concurrent.ThreadFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+public class VirtualThreadsTest {
+
+  @Test
+  public void threadFactory_createsPlatformThreadsUnlessVirtual() {
+
+    final Thread thread = VirtualThreads.threadFactory("test-", false).newThread(() -> { });
+
+    assertThat(thread.getName()).startsWith("test-");
+    assertThat(thread.getClass()).isEqualTo(Thread.class);
+  }
+
+  @Test
+  public void threadFactory_createsVirtualThreadsIfSupported() throws Exception {
+
+    assumeTrue(VirtualThreads.isSupported());
+
+    final ThreadFactory threadFactory = VirtualThreads.threadFactory("test-", true);
+    final Thread thread = threadFactory.newThread(() -> { });
+
+    assertThat(thread.getName()).isEqualTo("test-1");
+    assertThat((Boolean) Thread.class.getMethod("isVirtual").invoke(thread)).isTrue();
+  }
+
+  @Test
+  public void threadFactory_failsIfUnsupported() {
+
+    assumeFalse(VirtualThreads.isSupported());
+
+    assertThatThrownBy(() -> VirtualThreads.threadFactory("test-")).isInstanceOf(IllegalStateException.class);
+    assertThatThrownBy(() -> VirtualThreads.newThreadPerTaskExecutor("test-")).isInstanceOf(IllegalStateException.class);
+  }
+}
@@ -10,18 +10,26 @@ import org.springframework.boot.json.JsonParserFactory;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockAsyncContext;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.web.context.WebApplicationContext;
 
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import java.math.BigDecimal;
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.setup.MockMvcBuilders.webAppContextSetup;
 
@@ -95,6 +103,20 @@ public class AccountsControllerTest {
       .content("{\"accountId\":\"\",\"balance\":1000}")).andExpect(status().isBadRequest());
   }
 
+  @Test
+  public void createAccountWithCurrency() throws Exception {
+    this.mockMvc.perform(post("/v1/accounts").contentType(MediaType.APPLICATION_JSON)
+      .content("{\"accountId\":\"Id-123\",\"balance\":1000,\"currency\":\"USD\"}")).andExpect(status().isCreated());
+
+    assertThat(accountsService.getAccount("Id-123").getCurrency()).isEqualTo("USD");
+  }
+
+  @Test
+  public void createAccountInvalidCurrency() throws Exception {
+    this.mockMvc.perform(post("/v1/accounts").contentType(MediaType.APPLICATION_JSON)
+      .content("{\"accountId\":\"Id-123\",\"balance\":1000,\"currency\":\"usd\"}")).andExpect(status().isBadRequest());
+  }
+
   @Test
   public void getAccount() throws Exception {
     String uniqueAccountId = "Id-" + System.currentTimeMillis();
@@ -103,7 +125,116 @@ public class AccountsControllerTest {
     this.mockMvc.perform(get("/v1/accounts/" + uniqueAccountId))
       .andExpect(status().isOk())
       .andExpect(
-        content().string("{\"accountId\":\"" + uniqueAccountId + "\",\"balance\":123.45}"));
+        content().string("{\"accountId\":\"" + uniqueAccountId + "\",\"balance\":123.45,\"currency\":\"EUR\"}"));
+  }
+
+  @Test
+  public void getAccountNotModified() throws Exception {
+    this.accountsService.createAccount(new Account("Id-1", new BigDecimal("10")));
+    this.accountsService.createAccount(new Account("Id-2", new BigDecimal("10")));
+
+    String entityTag = this.mockMvc.perform(get("/v1/accounts/Id-1"))
+      .andExpect(status().isOk())
+      .andExpect(header().string("ETag", notNullValue()))
+      .andReturn().getResponse().getHeader("ETag");
+
+    this.mockMvc.perform(get("/v1/accounts/Id-1").header("If-None-Match", entityTag))
+      .andExpect(status().isNotModified())
+      .andExpect(header().string("ETag", entityTag))
+      .andExpect(content().string(""));
+
+    this.accountsService.transferMoney("Id-1", "Id-2", new BigDecimal("1"));
+
+    this.mockMvc.perform(get("/v1/accounts/Id-1").header("If-None-Match", entityTag))
+      .andExpect(status().isOk())
+      .andExpect(header().string("ETag", not(entityTag)))
+      .andExpect(content().string("{\"accountId\":\"Id-1\",\"balance\":9,\"currency\":\"EUR\"}"));
+  }
+
+  @Test
+  public void awaitAccountChange() throws Exception {
+    this.accountsService.createAccount(new Account("Id-1", new BigDecimal("10")));
+    this.accountsService.createAccount(new Account("Id-2", new BigDecimal("10")));
+
+    String entityTag = this.accountsService.getAccount("Id-1").getEntityTag();
+
+    MvcResult mvcResult = this.mockMvc.perform(get("/v1/accounts/Id-1").param("waitSeconds", "30").header("If-None-Match", entityTag))
+      .andExpect(request().asyncStarted())
+      .andReturn();
+
+    assertThatThrownBy(() -> mvcResult.getAsyncResult(100)).isInstanceOf(IllegalStateException.class);
+
+    this.accountsService.transferMoney("Id-2", "Id-1", new BigDecimal("1"));
+
+    this.mockMvc.perform(asyncDispatch(mvcResult))
+      .andExpect(status().isOk())
+      .andExpect(header().string("ETag", not(entityTag)))
+      .andExpect(content().string("{\"accountId\":\"Id-1\",\"balance\":11,\"currency\":\"EUR\"}"));
+  }
+
+  @Test
+  public void awaitAccountChangeTimesOut() throws Exception {
+    this.accountsService.createAccount(new Account("Id-1", new BigDecimal("10")));
+
+    String entityTag = this.accountsService.getAccount("Id-1").getEntityTag();
+
+    MvcResult mvcResult = this.mockMvc.perform(get("/v1/accounts/Id-1").param("waitSeconds", "30").header("If-None-Match", entityTag))
+      .andExpect(request().asyncStarted())
+      .andReturn();
+
+    // MockMvc has no container to time requests out.
+    MockAsyncContext asyncContext = (MockAsyncContext) mvcResult.getRequest().getAsyncContext();
+    for (AsyncListener listener : asyncContext.getListeners()) {
+      listener.onTimeout(new AsyncEvent(asyncContext));
+    }
+
+    this.mockMvc.perform(asyncDispatch(mvcResult))
+      .andExpect(status().isNotModified())
+      .andExpect(header().string("ETag", entityTag));
+  }
+
+  @Test
+  public void getAccounts() throws Exception {
+    this.accountsService.createAccount(new Account("Id-1", new BigDecimal("1.5")));
+    this.accountsService.createAccount(new Account("Id-2", new BigDecimal("20")));
+
+    MvcResult mvcResult = this.mockMvc.perform(get("/v1/accounts").param("accountIds", "Id-2,unknown,Id-1,Id-2"))
+      .andExpect(request().asyncStarted())
+      .andReturn();
+
+    mvcResult.getAsyncResult();
+    assertThat(mvcResult.getResponse().getStatus()).isEqualTo(HttpStatus.OK.value());
+    assertThat(mvcResult.getResponse().getContentAsString()).isEqualTo("[{\"accountId\":\"Id-2\",\"balance\":20,\"currency\":\"EUR\"},{\"accountId\":\"Id-1\",\"balance\":1.5,\"currency\":\"EUR\"}]");
+  }
+
+  @Test
+  public void lookUpAccounts() throws Exception {
+    this.accountsService.createAccount(new Account("Id-1", new BigDecimal("1.5")));
+
+    MvcResult mvcResult = this.mockMvc.perform(post("/v1/accounts/lookup").contentType(MediaType.APPLICATION_JSON)
+      .content("[\"Id-1\",\"unknown\"]"))
+      .andExpect(request().asyncStarted())
+      .andReturn();
+
+    mvcResult.getAsyncResult();
+    assertThat(mvcResult.getResponse().getStatus()).isEqualTo(HttpStatus.OK.value());
+    assertThat(mvcResult.getResponse().getContentAsString()).isEqualTo("[{\"accountId\":\"Id-1\",\"balance\":1.5,\"currency\":\"EUR\"}]");
+  }
+
+  @Test
+  public void lookUpAccountsTooMany() throws Exception {
+    StringBuilder ids = new StringBuilder("[\"Id-0\"");
+    for (int i = 1; i <= 1000; i++) {
+      ids.append(",\"Id-").append(i).append('"');
+    }
+
+    MvcResult mvcResult = this.mockMvc.perform(post("/v1/accounts/lookup").contentType(MediaType.APPLICATION_JSON)
+      .content(ids.append(']').toString()))
+      .andExpect(request().asyncStarted())
+      .andReturn();
+
+    mvcResult.getAsyncResult();
+    assertThat(mvcResult.getResponse().getStatus()).isEqualTo(HttpStatus.BAD_REQUEST.value());
   }
 
   @Test
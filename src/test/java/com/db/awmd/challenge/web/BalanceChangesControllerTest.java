@@ -0,0 +1,92 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.service.AccountsService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.context.WebApplicationContext;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.webAppContextSetup;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@WebAppConfiguration
+public class BalanceChangesControllerTest {
+
+  private static final String BALANCE_CHANGE = "event:balance\ndata:{\"accountId\":\"Id-1\",\"balance\":\"11\"}\n\n";
+
+  private MockMvc mockMvc;
+
+  @Autowired
+  private AccountsService accountsService;
+
+  @Autowired
+  private WebApplicationContext webApplicationContext;
+
+  @Before
+  public void prepareMockMvc() {
+    this.mockMvc = webAppContextSetup(this.webApplicationContext).build();
+
+    // Reset the existing accounts before each test.
+    this.accountsService.getAccountsRepository().clearAccounts();
+    this.accountsService.createAccount(new Account("Id-1", new BigDecimal("10")));
+    this.accountsService.createAccount(new Account("Id-2", new BigDecimal("20")));
+  }
+
+  @Test
+  public void subscribe() throws Exception {
+    MvcResult mvcResult = this.mockMvc.perform(get("/v1/balanceChanges").param("accountIds", "Id-1"))
+      .andExpect(request().asyncStarted())
+      .andReturn();
+
+    MockHttpServletResponse response = mvcResult.getResponse();
+    assertThat(response.getContentType()).startsWith("text/event-stream");
+
+    this.accountsService.transferMoney("Id-2", "Id-1", new BigDecimal("1"));
+
+    awaitContent(response, BALANCE_CHANGE);
+
+    // MockMvc has no container to time requests out.
+    MockAsyncContext asyncContext = (MockAsyncContext) mvcResult.getRequest().getAsyncContext();
+    for (AsyncListener listener : asyncContext.getListeners()) {
+      listener.onTimeout(new AsyncEvent(asyncContext));
+    }
+
+    this.accountsService.transferMoney("Id-2", "Id-1", new BigDecimal("1"));
+    Thread.sleep(200);
+
+    assertThat(response.getContentAsString()).isEqualTo(BALANCE_CHANGE);
+  }
+
+  @Test
+  public void subscribeWithoutAccountIds() throws Exception {
+    this.mockMvc.perform(get("/v1/balanceChanges"))
+      .andExpect(status().isBadRequest());
+  }
+
+  private static void awaitContent(MockHttpServletResponse response, String content) throws Exception {
+    long deadline = System.currentTimeMillis() + 5_000;
+    while (!response.getContentAsString().equals(content) && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+
+    assertThat(response.getContentAsString()).isEqualTo(content);
+  }
+}
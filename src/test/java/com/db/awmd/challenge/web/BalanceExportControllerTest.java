@@ -0,0 +1,117 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.BalanceExportService;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.json.JsonParserFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.webAppContextSetup;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@WebAppConfiguration
+public class BalanceExportControllerTest {
+
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  private MockMvc mockMvc;
+
+  @Autowired
+  private AccountsService accountsService;
+
+  @Autowired
+  private BalanceExportService balanceExportService;
+
+  @Autowired
+  private WebApplicationContext webApplicationContext;
+
+  @Before
+  public void prepareMockMvc() {
+    this.mockMvc = webAppContextSetup(this.webApplicationContext).build();
+
+    // Reset the existing accounts before each test.
+    accountsService.getAccountsRepository().clearAccounts();
+
+    this.accountsService.createAccount(new Account("Id-1", new BigDecimal("1.5")));
+    this.accountsService.createAccount(new Account("Id,\"2\"", new BigDecimal("20")));
+  }
+
+  @Test
+  public void exportBalancesAsNdjson() throws Exception {
+    MvcResult mvcResult = this.mockMvc.perform(get("/v1/balances/export"))
+      .andExpect(request().asyncStarted())
+      .andReturn();
+
+    mvcResult.getAsyncResult();
+    assertThat(mvcResult.getResponse().getContentType()).startsWith("application/x-ndjson");
+    assertThat(mvcResult.getResponse().getContentAsString().split("\n")).containsOnly(
+      "{\"accountId\":\"Id-1\",\"balance\":\"1.5\",\"heldBalance\":\"0\",\"currency\":\"EUR\"}",
+      "{\"accountId\":\"Id,\\\"2\\\"\",\"balance\":\"20\",\"heldBalance\":\"0\",\"currency\":\"EUR\"}");
+  }
+
+  @Test
+  public void exportBalancesAsCsv() throws Exception {
+    MvcResult mvcResult = this.mockMvc.perform(get("/v1/balances/export").param("format", "csv"))
+      .andExpect(request().asyncStarted())
+      .andReturn();
+
+    mvcResult.getAsyncResult();
+    assertThat(mvcResult.getResponse().getContentType()).startsWith("text/csv");
+    assertThat(mvcResult.getResponse().getContentAsString())
+      .startsWith("accountId,balance,heldBalance,currency\r\n")
+      .contains("Id-1,1.5,0,EUR\r\n", "\"Id,\"\"2\"\"\",20,0,EUR\r\n");
+  }
+
+  @Test
+  public void exportBalancesUnknownFormat() throws Exception {
+    MvcResult mvcResult = this.mockMvc.perform(get("/v1/balances/export").param("format", "xml"))
+      .andExpect(request().asyncStarted())
+      .andReturn();
+
+    mvcResult.getAsyncResult();
+    assertThat(mvcResult.getResponse().getStatus()).isEqualTo(HttpStatus.BAD_REQUEST.value());
+  }
+
+  @Test
+  public void exportBalancesToFile() throws Exception {
+    ReflectionTestUtils.setField(this.balanceExportService, "directory", this.folder.getRoot().toPath());
+
+    MvcResult mvcResult = this.mockMvc.perform(post("/v1/balances/export").param("format", "csv"))
+      .andExpect(status().isCreated())
+      .andReturn();
+
+    Map<String, Object> export = JsonParserFactory.getJsonParser().parseMap(mvcResult.getResponse().getContentAsString());
+    assertThat(export.get("format")).isEqualTo("csv");
+    assertThat(((Number) export.get("accounts")).longValue()).isEqualTo(2);
+    assertThat(new String(Files.readAllBytes(Paths.get((String) export.get("file"))), StandardCharsets.UTF_8))
+      .startsWith("accountId,balance,heldBalance,currency\r\n")
+      .contains("Id-1,1.5,0,EUR\r\n");
+    assertThat(this.folder.getRoot().list()).hasSize(1);
+  }
+}
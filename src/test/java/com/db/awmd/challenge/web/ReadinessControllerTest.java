@@ -0,0 +1,46 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.service.AccountsService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.webAppContextSetup;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"startup.lazy-init.enabled=true", "startup.warm-up.enabled=true", "startup.warm-up.transfers=1000"})
+@WebAppConfiguration
+public class ReadinessControllerTest {
+
+  @Autowired
+  private AccountsService accountsService;
+
+  @Autowired
+  private WebApplicationContext webApplicationContext;
+
+  @Test
+  public void readyOnceWarmedUp() throws Exception {
+    webAppContextSetup(this.webApplicationContext).build()
+      .perform(get("/v1/readiness")).andExpect(status().isOk());
+
+    // The warm-up leaves no account behind.
+    assertThat(this.accountsService.getAccount("warm-up-0")).isNull();
+  }
+
+  @Test
+  public void lazyBeansAreNotCreatedAtStartUp() {
+    ConfigurableApplicationContext context = (ConfigurableApplicationContext) this.webApplicationContext;
+
+    assertThat(context.getBeanFactory().getBeanDefinition("holdsService").isLazyInit()).isTrue();
+    assertThat(context.getBeanFactory().containsSingleton("holdsService")).isFalse();
+    assertThat(context.getBeanFactory().containsSingleton("accountsService")).isTrue();
+  }
+}
@@ -0,0 +1,102 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.NotificationService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.webAppContextSetup;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@WebAppConfiguration
+public class ScheduledTransfersControllerTest {
+
+  private MockMvc mockMvc;
+
+  @Autowired
+  private AccountsService accountsService;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private WebApplicationContext webApplicationContext;
+
+  @MockBean
+  private NotificationService notificationService;
+
+  @Before
+  public void prepareMockMvc() {
+    this.mockMvc = webAppContextSetup(this.webApplicationContext).build();
+
+    // Reset the existing accounts before each test.
+    this.accountsService.getAccountsRepository().clearAccounts();
+    this.accountsService.createAccount(new Account("source", new BigDecimal("100")));
+    this.accountsService.createAccount(new Account("destination", new BigDecimal("10")));
+  }
+
+  @Test
+  public void scheduleGetAndCancel() throws Exception {
+    String executionTime = Instant.now().plusSeconds(3600).toString();
+
+    String body = this.mockMvc.perform(post("/v1/scheduledTransfers")
+      .param("sourceAccountId", "source")
+      .param("destinationAccountId", "destination")
+      .param("amount", "25")
+      .param("executionTime", executionTime)
+      .param("intervalSeconds", "60"))
+      .andExpect(status().isCreated())
+      .andExpect(jsonPath("$.sourceAccountId").value("source"))
+      .andExpect(jsonPath("$.intervalSeconds").value(60))
+      .andReturn().getResponse().getContentAsString();
+
+    String id = this.objectMapper.readTree(body).get("id").asText();
+
+    this.mockMvc.perform(get("/v1/scheduledTransfers/" + id))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.id").value(id))
+      .andExpect(jsonPath("$.destinationAccountId").value("destination"));
+
+    this.mockMvc.perform(delete("/v1/scheduledTransfers/" + id)).andExpect(status().isNoContent());
+
+    this.mockMvc.perform(get("/v1/scheduledTransfers/" + id)).andExpect(status().isNotFound());
+    this.mockMvc.perform(delete("/v1/scheduledTransfers/" + id)).andExpect(status().isNotFound());
+
+    assertThat(this.accountsService.getAccount("source").getBalance()).isEqualByComparingTo("100");
+  }
+
+  @Test
+  public void scheduleNegativeAmount() throws Exception {
+    this.mockMvc.perform(post("/v1/scheduledTransfers")
+      .param("sourceAccountId", "source")
+      .param("destinationAccountId", "destination")
+      .param("amount", "-25")
+      .param("executionTime", Instant.now().toString()))
+      .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void getUnknownScheduledTransfer() throws Exception {
+    this.mockMvc.perform(get("/v1/scheduledTransfers/unknown")).andExpect(status().isNotFound());
+  }
+}
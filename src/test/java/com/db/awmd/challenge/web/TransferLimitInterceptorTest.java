@@ -0,0 +1,57 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.utils.GradientLimiter;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TransferLimitInterceptorTest {
+
+  private static MockHttpServletRequest request(final String client) {
+
+    final MockHttpServletRequest request = new MockHttpServletRequest("PATCH", "/v1/accounts/transferMoney");
+    request.addHeader("X-Client-Id", client);
+    return request;
+  }
+
+  @Test
+  public void transfersOverTheLimitAreShed() throws Exception {
+
+    final TransferLimitInterceptor interceptor = new TransferLimitInterceptor(new GradientLimiter(2, 1, 2), 1, "X-Client-Id", 3);
+
+    final MockHttpServletRequest first = request("A");
+    assertThat(interceptor.preHandle(first, new MockHttpServletResponse(), null)).isTrue();
+    assertThat(interceptor.preHandle(request("B"), new MockHttpServletResponse(), null)).isTrue();
+
+    final MockHttpServletResponse rejected = new MockHttpServletResponse();
+    assertThat(interceptor.preHandle(request("C"), rejected, null)).isFalse();
+    assertThat(rejected.getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+    assertThat(rejected.getHeader("Retry-After")).isEqualTo("3");
+
+    interceptor.afterCompletion(first, new MockHttpServletResponse(), null, null);
+    assertThat(interceptor.preHandle(request("C"), new MockHttpServletResponse(), null)).isTrue();
+    assertThat(interceptor.getRejected()).isEqualTo(1);
+  }
+
+  @Test
+  public void clientsGetAShareOfTheLimit() throws Exception {
+
+    final TransferLimitInterceptor interceptor = new TransferLimitInterceptor(new GradientLimiter(4, 1, 4), 0.5, "X-Client-Id", 1);
+
+    final MockHttpServletRequest first = request("A");
+    assertThat(interceptor.preHandle(first, new MockHttpServletResponse(), null)).isTrue();
+    assertThat(interceptor.preHandle(request("A"), new MockHttpServletResponse(), null)).isTrue();
+
+    final MockHttpServletResponse rejected = new MockHttpServletResponse();
+    assertThat(interceptor.preHandle(request("A"), rejected, null)).isFalse();
+    assertThat(rejected.getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+
+    assertThat(interceptor.preHandle(request("B"), new MockHttpServletResponse(), null)).isTrue();
+
+    interceptor.afterCompletion(first, new MockHttpServletResponse(), null, null);
+    assertThat(interceptor.preHandle(request("A"), new MockHttpServletResponse(), null)).isTrue();
+  }
+}